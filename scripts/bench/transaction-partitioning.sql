@@ -0,0 +1,107 @@
+-- Range-query latency: unpartitioned transaction table vs. monthly partitions (Liquibase changeset 16).
+--
+-- Builds two copies of the same generated history in a scratch "bench" schema, with the indexes the application
+-- uses, then runs the application's date-bounded reads against both under EXPLAIN ANALYZE. Nothing outside the
+-- bench schema is touched.
+--
+--   make bench-partitioning                 # 100M rows over 10 years and 100k accounts
+--   make bench-partitioning BENCH_ROWS=1000000
+--
+-- At 100M rows expect well over 10 GB of disk per copy and an hour or more to load on a laptop.
+
+\set ON_ERROR_STOP on
+\if :{?rows}
+\else
+    \set rows 100000000
+\endif
+\set accounts 100000
+\set months 120
+
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+SET search_path = bench;
+
+CREATE TABLE txn_heap (
+    transaction_id   BIGINT      NOT NULL PRIMARY KEY,
+    account_id       BIGINT      NOT NULL,
+    transaction_type VARCHAR(20) NOT NULL,
+    amount           DECIMAL(10, 2) NOT NULL,
+    transaction_date TIMESTAMP   NOT NULL
+);
+
+CREATE TABLE txn_part (LIKE txn_heap INCLUDING DEFAULTS) PARTITION BY RANGE (transaction_date);
+
+SELECT format('CREATE TABLE %I PARTITION OF txn_part FOR VALUES FROM (%L) TO (%L)',
+              'txn_part_p' || to_char(m, 'YYYYMM'), m::date, (m + INTERVAL '1 month')::date)
+FROM generate_series(date_trunc('month', now()) - (:months - 1) * INTERVAL '1 month',
+                     date_trunc('month', now()), INTERVAL '1 month') AS m
+\gexec
+
+\echo Loading :rows rows
+\timing on
+INSERT INTO txn_heap
+SELECT g,
+       1 + (random() * (:accounts - 1))::bigint,
+       CASE WHEN g % 2 = 0 THEN 'TRANSFER_OUT' ELSE 'TRANSFER_IN' END,
+       round((random() * 1000)::numeric, 2),
+       now() - random() * (:months * INTERVAL '30 days')
+FROM generate_series(1, :rows) AS g;
+
+INSERT INTO txn_part SELECT * FROM txn_heap;
+
+ALTER TABLE txn_part ADD PRIMARY KEY (transaction_id, transaction_date);
+CREATE INDEX ON txn_heap (account_id, transaction_date, transaction_id);
+CREATE INDEX ON txn_part (account_id, transaction_date, transaction_id);
+CREATE INDEX ON txn_heap (transaction_date);
+CREATE INDEX ON txn_part (transaction_date);
+VACUUM ANALYZE txn_heap;
+VACUUM ANALYZE txn_part;
+\timing off
+
+SELECT (SELECT account_id FROM txn_heap WHERE transaction_id = :rows / 2) AS acct,
+       (date_trunc('month', now()) - INTERVAL '6 months')::timestamp AS month_start,
+       (date_trunc('month', now()) - INTERVAL '5 months')::timestamp AS month_end
+\gset
+
+\echo
+\echo ==== One account, one month (findByAccountIdAndDateRange) ====
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM txn_heap WHERE account_id = :acct
+  AND transaction_date BETWEEN :'month_start' AND :'month_end';
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM txn_part WHERE account_id = :acct
+  AND transaction_date BETWEEN :'month_start' AND :'month_end';
+
+\echo
+\echo ==== All accounts, one day ====
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT count(*), sum(amount) FROM txn_heap
+WHERE transaction_date >= :'month_start' AND transaction_date < CAST(:'month_start' AS timestamp) + INTERVAL '1 day';
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT count(*), sum(amount) FROM txn_part
+WHERE transaction_date >= :'month_start' AND transaction_date < CAST(:'month_start' AS timestamp) + INTERVAL '1 day';
+
+\echo
+\echo ==== Newest-first history page of 51 rows (findHistoryPage) ====
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM txn_heap WHERE account_id = :acct
+  AND transaction_date >= '1900-01-01' AND transaction_date < '9999-12-31'
+ORDER BY transaction_date DESC, transaction_id DESC LIMIT 51;
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM txn_part WHERE account_id = :acct
+  AND transaction_date >= '1900-01-01' AND transaction_date < '9999-12-31'
+ORDER BY transaction_date DESC, transaction_id DESC LIMIT 51;
+
+\echo
+\echo ==== Purging the oldest month ====
+\timing on
+BEGIN;
+DELETE FROM txn_heap WHERE transaction_date < date_trunc('month', now()) - (:months - 2) * INTERVAL '1 month';
+ROLLBACK;
+BEGIN;
+SELECT format('ALTER TABLE txn_part DETACH PARTITION %I',
+              'txn_part_p' || to_char(date_trunc('month', now()) - (:months - 1) * INTERVAL '1 month', 'YYYYMM'))
+\gexec
+ROLLBACK;
+\timing off
+
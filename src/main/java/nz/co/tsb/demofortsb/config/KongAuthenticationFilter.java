@@ -36,7 +36,8 @@ public class KongAuthenticationFilter extends OncePerRequestFilter {
 
 
     private static final Set<String> EXACT_WHITELIST = Set.of(
-            "/favicon.ico"
+            "/favicon.ico",
+            "/.well-known/jwks.json"
     );
     private static final List<String> PREFIX_WHITELIST = List.of(
             "/actuator/",
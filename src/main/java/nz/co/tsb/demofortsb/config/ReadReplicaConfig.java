@@ -0,0 +1,83 @@
+package nz.co.tsb.demofortsb.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured DataSource with one that routes {@code @Transactional(readOnly = true)} work to
+ * read replicas (see {@link ReplicaRoutingDataSource}).
+ * <p>
+ * The primary pool is still configured through {@code spring.datasource.*}. Each replica URL in
+ * {@code app.datasource.replicas.urls} gets its own read-only pool with the primary's credentials and driver.
+ * For local testing any second database will do, e.g. the primary's own URL or a second H2 instance.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    public ReadYourWritesGuard readYourWritesGuard(
+            @Value("${app.datasource.replicas.read-your-writes-ms:5000}") long pinMillis) {
+        return new ReadYourWritesGuard(pinMillis);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            ReadYourWritesGuard readYourWritesGuard,
+            MetricService metricService,
+            @Value("${app.datasource.replicas.urls:}") List<String> urls,
+            @Value("${app.datasource.replicas.max-pool-size:10}") int maxPoolSize,
+            @Value("${app.datasource.replicas.health-check-interval-ms:5000}") long healthCheckIntervalMs,
+            @Value("${app.datasource.replicas.max-lag-seconds:5}") double maxLagSeconds) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            if (!StringUtils.hasText(url)) {
+                continue;
+            }
+            String name = "replica-" + replicas.size();
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            replica.setPoolName(name);
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(maxPoolSize);
+            // A replica that is down at startup is skipped by the health check instead of failing the application
+            replica.setInitializationFailTimeout(-1);
+            replicas.put(name, replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWritesGuard, metricService,
+                healthCheckIntervalMs, maxLagSeconds);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,77 @@
+package nz.co.tsb.demofortsb.config;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a user's reads on the primary for a short window after they committed a write, so a client never
+ * reads an older state from a lagging replica than the one it has just been told about.
+ * <p>
+ * Registered as a transaction listener: every read-write transaction that commits pins the authenticated
+ * user, which also covers reads later in the same request. Work without a user (scheduled jobs, anonymous
+ * sign-up) is not pinned. The pins live in this instance only.
+ * </p>
+ */
+public class ReadYourWritesGuard implements TransactionExecutionListener {
+
+    private final long pinMillis;
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    public ReadYourWritesGuard(long pinMillis) {
+        this.pinMillis = pinMillis;
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, @Nullable Throwable commitFailure) {
+        if (commitFailure != null || transaction.isReadOnly() || !transaction.isNewTransaction()) {
+            return;
+        }
+        String user = currentUser();
+        if (user != null) {
+            pinnedUntil.put(user, System.currentTimeMillis() + pinMillis);
+        }
+    }
+
+    /**
+     * @return true if the current user wrote within the window and must read from the primary
+     */
+    public boolean isPinnedToPrimary() {
+        String user = currentUser();
+        if (user == null) {
+            return false;
+        }
+        Long until = pinnedUntil.get(user);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            pinnedUntil.remove(user, until);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drop expired pins of users who have not read since.
+     */
+    void purgeExpired() {
+        long now = System.currentTimeMillis();
+        pinnedUntil.values().removeIf(until -> until < now);
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,189 @@
+package nz.co.tsb.demofortsb.config;
+
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections for read-only transactions to a healthy read replica and everything else to the primary.
+ * <p>
+ * The route is decided when a connection is requested, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager opens the
+ * connection before the transaction's read-only flag is published, and the proxy defers the real request to
+ * the first statement. Replicas are used round-robin among those that passed the last health check (reachable
+ * and, on PostgreSQL, within the allowed replay lag). A replica that fails to hand out a connection is taken
+ * out at once and the read goes to the primary, as do reads pinned by {@link ReadYourWritesGuard}.
+ * </p>
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    // Seconds since the last replayed transaction, or 0 when the standby has replayed everything it received
+    private static final String POSTGRES_LAG_QUERY = "SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = " +
+            "pg_last_wal_replay_lsn() THEN 0 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END, 0)";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ReadYourWritesGuard readYourWritesGuard;
+    private final MetricService metricService;
+    private final long healthCheckIntervalMs;
+    private final double maxLagSeconds;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("replica-health").daemon().factory());
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    ReadYourWritesGuard readYourWritesGuard, MetricService metricService,
+                                    long healthCheckIntervalMs, double maxLagSeconds) {
+        this.primary = primary;
+        this.readYourWritesGuard = readYourWritesGuard;
+        this.metricService = metricService;
+        this.healthCheckIntervalMs = healthCheckIntervalMs;
+        this.maxLagSeconds = maxLagSeconds;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            this.replicas.add(new Replica(name, dataSource));
+            targets.put(name, dataSource);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        if (!replicas.isEmpty()) {
+            healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, healthCheckIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Route route = route();
+        if (route.replica() == null) {
+            metricService.recordDataSourceRoute(PRIMARY, route.reason());
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = route.replica().dataSource.getConnection();
+            metricService.recordDataSourceRoute("replica", route.reason());
+            return connection;
+        } catch (SQLException e) {
+            markDown(route.replica(), e.getMessage());
+            metricService.recordDataSourceRoute(PRIMARY, "replica-failure");
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Replica replica = route().replica();
+        return replica != null ? replica.name : PRIMARY;
+    }
+
+    private Route route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return new Route(null, "read-write");
+        }
+        if (readYourWritesGuard.isPinnedToPrimary()) {
+            return new Route(null, "read-your-writes");
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return new Route(replica, "read-only");
+            }
+        }
+        return new Route(null, "no-healthy-replica");
+    }
+
+    /**
+     * One health check of every replica; a replica that passes goes back into rotation.
+     */
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                double lag = replicationLag(connection);
+                if (lag > maxLagSeconds) {
+                    markDown(replica, "replication lag " + lag + " s");
+                } else if (!replica.healthy) {
+                    replica.healthy = true;
+                    log.info("Read replica {} is back in rotation", replica.name);
+                }
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica, e.getMessage());
+            }
+        }
+        readYourWritesGuard.purgeExpired();
+    }
+
+    private static double replicationLag(Connection connection) throws SQLException {
+        if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+            return connection.isValid(5) ? 0 : Double.MAX_VALUE;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(POSTGRES_LAG_QUERY)) {
+            result.next();
+            return result.getDouble(1);
+        }
+    }
+
+    private void markDown(Replica replica, String reason) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.warn("Read replica {} taken out of rotation: {}", replica.name, reason);
+        }
+    }
+
+    boolean isHealthy(String replicaName) {
+        return replicas.stream().anyMatch(replica -> replica.name.equals(replicaName) && replica.healthy);
+    }
+
+    /**
+     * Stops the health checks and closes the replica pools; the primary belongs to the caller.
+     */
+    @Override
+    public void close() throws Exception {
+        healthChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private record Route(Replica replica, String reason) {}
+
+    private static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package nz.co.tsb.demofortsb.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} housekeeping jobs (e.g. purging expired idempotency records).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -9,21 +9,38 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import nz.co.tsb.demofortsb.dto.request.BatchTransferRequest;
 import nz.co.tsb.demofortsb.dto.request.TransferRequest;
 import nz.co.tsb.demofortsb.dto.response.AccountResponse;
+import nz.co.tsb.demofortsb.dto.response.BalanceAsOfResponse;
+import nz.co.tsb.demofortsb.dto.response.BatchTransferResponse;
+import nz.co.tsb.demofortsb.dto.response.DailyBalanceResponse;
+import nz.co.tsb.demofortsb.dto.response.TransactionPageResponse;
 import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
 import nz.co.tsb.demofortsb.entity.Account;
 import nz.co.tsb.demofortsb.entity.Customer;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.exception.Customer.CustomerNotFoundException;
 import nz.co.tsb.demofortsb.logging.BusinessOperation;
 import nz.co.tsb.demofortsb.service.AccountService;
+import nz.co.tsb.demofortsb.service.CustomerService;
+import nz.co.tsb.demofortsb.service.DailyBalanceService;
+import nz.co.tsb.demofortsb.service.StatementService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Tag(name = "Account Management", description = "Account and transaction operations")
@@ -33,10 +50,20 @@ import java.util.List;
 public class AccountController {
 
     private static final Logger log = LoggerFactory.getLogger(AccountController.class);
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private DailyBalanceService dailyBalanceService;
+
     @Operation(summary = "Get all accounts with all info for debugging")
     @GetMapping("/allinfo")
     @BusinessOperation("get-all-accounts-allinfo-debugging")
@@ -73,14 +100,15 @@ public class AccountController {
     @GetMapping("/me")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<List<AccountResponse>> getMyAccounts() {
-        Long customerId = (Long) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Long customerId = currentCustomerId();
         List<AccountResponse> accounts = accountService.getAccountsByCustomerId(customerId);
         return ResponseEntity.ok(accounts);
     }
 
 
     @Operation(summary = "Get all transactions for an account",
-            description = "Retrieve all transactions for a specific account by account ID")
+            description = "Retrieve all transactions for a specific account by account ID. " +
+                    "Prefer /{accountId}/transactions/page for long histories")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transactions retrieved successfully"),
             @ApiResponse(responseCode = "404", description = "Account not found"),
@@ -98,7 +126,8 @@ public class AccountController {
     }
 
     @Operation(summary = "Get transactions by account number",
-            description = "Retrieve all transactions for an account by account number")
+            description = "Retrieve all transactions for an account by account number. " +
+                    "Prefer /accountnumber/{accountNumber}/transactions/page for long histories")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transactions retrieved successfully"),
             @ApiResponse(responseCode = "404", description = "Account not found"),
@@ -115,36 +144,243 @@ public class AccountController {
         return ResponseEntity.ok(transactions);
     }
 
+    @Operation(summary = "Get a page of transactions for an account",
+            description = "Newest first. Pass the returned nextCursor as 'cursor' to fetch the next page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transactions retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/{accountId}/transactions/page")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<TransactionPageResponse> getAccountTransactionPage(
+            @Parameter(description = "Account ID", required = true)
+            @PathVariable Long accountId,
+            @Parameter(description = "Continuation token from the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, capped by the server")
+            @RequestParam(required = false) Integer size,
+            @Parameter(description = "First day to include (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day to include (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Only this transaction type")
+            @RequestParam(required = false) Transaction.TransactionType type) {
+
+        log.info("Fetching transaction page for account ID: {}", accountId);
+        checkAccountAccess(accountId);
+        return ResponseEntity.ok(accountService.getTransactionPage(accountId, cursor, size, from, to, type));
+    }
+
+    @Operation(summary = "Get a page of transactions by account number",
+            description = "Newest first. Pass the returned nextCursor as 'cursor' to fetch the next page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transactions retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/accountnumber/{accountNumber}/transactions/page")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<TransactionPageResponse> getTransactionPageByAccountNumber(
+            @Parameter(description = "Account number", required = true)
+            @PathVariable String accountNumber,
+            @Parameter(description = "Continuation token from the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, capped by the server")
+            @RequestParam(required = false) Integer size,
+            @Parameter(description = "First day to include (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day to include (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Only this transaction type")
+            @RequestParam(required = false) Transaction.TransactionType type) {
+
+        log.info("Fetching transaction page for account number: {}", accountNumber);
+        if (!isAdmin()) {
+            accountService.checkAccountNumberOwner(currentCustomerId(), accountNumber);
+        }
+        return ResponseEntity.ok(
+                accountService.getTransactionPageByAccountNumber(accountNumber, cursor, size, from, to, type));
+    }
+
+    @Operation(summary = "Get an account's balance as of a date or instant",
+            description = "With 'at', the balance just after that instant; otherwise the closing balance of 'date' " +
+                    "(default today). Served from daily balance snapshots, not the full history")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Balance retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/{accountId}/balance")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<BalanceAsOfResponse> getBalanceAsOf(
+            @Parameter(description = "Account ID", required = true)
+            @PathVariable Long accountId,
+            @Parameter(description = "Day whose closing balance to return (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @Parameter(description = "Instant to return the balance at (yyyy-MM-ddTHH:mm:ss); takes precedence over date")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+
+        log.info("Fetching balance as of {} for account ID: {}", at != null ? at : date, accountId);
+        checkAccountAccess(accountId);
+        return ResponseEntity.ok(at != null
+                ? dailyBalanceService.getBalanceAt(accountId, at)
+                : dailyBalanceService.getBalanceAtEndOf(accountId, date != null ? date : LocalDate.now()));
+    }
+
+    @Operation(summary = "Get an account's daily balances",
+            description = "Closing balance and posting totals for every day from 'from' to 'to' inclusive")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Daily balances retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid or too long date range"),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/{accountId}/balance/daily")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<List<DailyBalanceResponse>> getDailyBalances(
+            @Parameter(description = "Account ID", required = true)
+            @PathVariable Long accountId,
+            @Parameter(description = "First day (yyyy-MM-dd)", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day (yyyy-MM-dd)", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        log.info("Fetching daily balances {} to {} for account ID: {}", from, to, accountId);
+        checkAccountAccess(accountId);
+        return ResponseEntity.ok(dailyBalanceService.getDailyBalances(accountId, from, to));
+    }
+
+    @Operation(summary = "Download an account statement",
+            description = "Streams every transaction in the period, oldest first, as CSV or NDJSON. " +
+                    "Rows are written as they are read, so large statements start downloading immediately")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statement streamed"),
+            @ApiResponse(responseCode = "400", description = "Invalid format or date range"),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/{accountId}/statement")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    @BusinessOperation("export-statement")
+    public ResponseEntity<StreamingResponseBody> exportStatement(
+            @Parameter(description = "Account ID", required = true)
+            @PathVariable Long accountId,
+            @Parameter(description = "First day to include (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day to include (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "csv or ndjson")
+            @RequestParam(defaultValue = "csv") String format) {
+
+        log.info("Exporting {} statement for account ID: {}", format, accountId);
+        checkAccountAccess(accountId);
+        StatementService.Format statementFormat = StatementService.Format.of(format);
+        // Errors after the body starts can only abort the download, so validate everything up front
+        statementService.checkStatement(accountId, from, to);
+
+        StreamingResponseBody body = out -> statementService.writeStatement(accountId, from, to, statementFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(statementFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"statement-" + accountId + "." + statementFormat.extension() + "\"")
+                .body(body);
+    }
+
     @Operation(summary = "Transfer between accounts",
             description = "Transfer money between two accounts belonging to the same customer")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transfer completed successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid transfer request"),
             @ApiResponse(responseCode = "404", description = "Account not found"),
-            @ApiResponse(responseCode = "401", description = "Unauthorized")
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "409", description = "Same Idempotency-Key still in progress"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key reused for a different transfer")
     })
     @PostMapping("/customer/{customerId}/transfer")
     @PreAuthorize("hasRole('ADMIN') or #customerId == authentication.principal.id")
     public ResponseEntity<TransactionResponse> transferBetweenAccounts(
             @Parameter(description = "Customer ID", required = true)
             @PathVariable Long customerId,
+            @Parameter(description = "Client-generated key; retries with the same key replay the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody TransferRequest request) {
 
         log.info("Processing transfer for customer ID: {}", customerId);
-        TransactionResponse transaction = accountService.transferBetweenAccounts(customerId, request);
+        TransactionResponse transaction = accountService.transferBetweenAccounts(customerId, request, idempotencyKey);
         return ResponseEntity.ok(transaction);
     }
 
     @PostMapping("/me/transfer")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<TransactionResponse> transferBetweenAccounts(
+            @Parameter(description = "Client-generated key; retries with the same key replay the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody TransferRequest request) {
-        Long customerId = (Long) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Long customerId = currentCustomerId();
         log.info("Processing transfer for customer ID: {}", customerId);
-        TransactionResponse transaction = accountService.transferBetweenAccounts(customerId, request);
+        TransactionResponse transaction = accountService.transferBetweenAccounts(customerId, request, idempotencyKey);
         return ResponseEntity.ok(transaction);
     }
 
+    @Operation(summary = "Submit a transfer between my accounts",
+            description = "Accept the transfer as PENDING and settle it in the background; poll the Location URL for the outcome")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Transfer accepted for settlement"),
+            @ApiResponse(responseCode = "400", description = "Invalid transfer request"),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PostMapping("/me/transfers:async")
+    @PreAuthorize("hasRole('USER')")
+    @BusinessOperation("transfer-submit")
+    public ResponseEntity<TransactionResponse> submitTransfer(
+            @Valid @RequestBody TransferRequest request) {
+        Long customerId = currentCustomerId();
+        log.info("Accepting async transfer for customer ID: {}", customerId);
+        TransactionResponse pending = accountService.submitTransfer(customerId, request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/accounts/me/transfers/" + pending.getTransactionId()))
+                .body(pending);
+    }
+
+    @Operation(summary = "Get my transfer status",
+            description = "Poll a transfer submitted asynchronously; status moves from PENDING to COMPLETED or FAILED")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transfer found"),
+            @ApiResponse(responseCode = "404", description = "Transfer not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/me/transfers/{transactionId}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<TransactionResponse> getTransferStatus(
+            @Parameter(description = "Transaction ID returned when the transfer was submitted", required = true)
+            @PathVariable Long transactionId) {
+        Long customerId = currentCustomerId();
+        return ResponseEntity.ok(accountService.getTransferStatus(customerId, transactionId));
+    }
+
+    @Operation(summary = "Batch transfer between my accounts",
+            description = "Apply many transfers between the caller's own accounts in one transaction, with a result per item")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed; see per-item results",
+                    content = @Content(schema = @Schema(implementation = BatchTransferResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid batch request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PostMapping("/me/transfers:batch")
+    @PreAuthorize("hasRole('USER')")
+    @BusinessOperation("transfer-batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(
+            @Valid @RequestBody BatchTransferRequest request) {
+        Long customerId = currentCustomerId();
+        log.info("Processing batch of {} transfers for customer ID: {}", request.getTransfers().size(), customerId);
+        BatchTransferResponse response = accountService.transferBatch(customerId, request.getTransfers());
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(summary = "Transfer by national ID",
             description = "Transfer money between accounts using customer's national ID")
     @ApiResponses(value = {
@@ -164,4 +400,33 @@ public class AccountController {
         TransactionResponse transaction = accountService.transferByNationalId(nationalId, request);
         return ResponseEntity.ok(transaction);
     }
-}
\ No newline at end of file
+
+    /**
+     * Customers may only read their own accounts; admins may read any.
+     */
+    private void checkAccountAccess(Long accountId) {
+        if (!isAdmin()) {
+            accountService.checkAccountOwner(currentCustomerId(), accountId);
+        }
+    }
+
+    private boolean isAdmin() {
+        return SecurityContextHolder.getContext().getAuthentication().getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+
+    /**
+     * Resolve the authenticated customer's ID.
+     * JwtAuthFilter authenticates with the email as principal, so look the customer up by email.
+     */
+    private Long currentCustomerId() {
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (principal instanceof Long customerId) {
+            return customerId;
+        }
+        String email = principal.toString();
+        return customerService.findByEmail(email)
+                .map(Customer::getId)
+                .orElseThrow(() -> new CustomerNotFoundException(email));
+    }
+}
@@ -11,15 +11,18 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import nz.co.tsb.demofortsb.dto.request.CustomerLoginRequest;
 import nz.co.tsb.demofortsb.dto.request.CustomerRegistrationRequest;
+import nz.co.tsb.demofortsb.dto.request.RefreshTokenRequest;
 import nz.co.tsb.demofortsb.dto.response.*;
 import nz.co.tsb.demofortsb.entity.Customer;
 import nz.co.tsb.demofortsb.exception.Customer.CustomerNotFoundException;
 import nz.co.tsb.demofortsb.exception.ValidationException;
 import nz.co.tsb.demofortsb.security.JwtUtil;
+import nz.co.tsb.demofortsb.security.RefreshTokenStore;
 import nz.co.tsb.demofortsb.service.CustomerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -55,14 +58,17 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final CustomerService customerService;
     private final JwtUtil jwtUtil;
+    private final RefreshTokenStore refreshTokens;
 
     public AuthController(AuthenticationManager authenticationManager,
                           CustomerService customerService,
-                          JwtUtil jwtUtil
+                          JwtUtil jwtUtil,
+                          RefreshTokenStore refreshTokens
     ) {
         this.authenticationManager = authenticationManager;
         this.customerService = customerService;
         this.jwtUtil = jwtUtil;
+        this.refreshTokens = refreshTokens;
     }
 
     /**
@@ -150,6 +156,15 @@ public class AuthController {
             // Calculate token expiration in seconds // CHANGED: Use JwtUtil's TTL
             long expiresIn = jwtUtil.getTokenTtlMinutes() * 60;
 
+            // Refresh token, so the session can be renewed without checking the password again
+            String refreshToken = null;
+            try {
+                refreshToken = refreshTokens.issue(email, role);
+            } catch (DataAccessException e) {
+                // Still logged in, only without a refresh token
+                logger.warn("Refresh token not issued for {}: {}", email, e.getMessage());
+            }
+
             // Option 1: Get from service (one more DB query but cleaner)
             Customer customer = customerService.findByEmail(email)
                     .orElseThrow(() -> new IllegalStateException("Authenticated user not found"));
@@ -157,7 +172,8 @@ public class AuthController {
 
             // Create SECURE login response using records - minimal data exposure
             LoginUserInfo userInfo = LoginUserInfo.fromCustomer(customer);
-            SecureLoginResponse loginResponse = SecureLoginResponse.loginSuccess(userInfo, token, expiresIn);
+            SecureLoginResponse loginResponse = SecureLoginResponse.loginSuccess(userInfo, token, expiresIn,
+                    refreshToken, refreshToken != null ? refreshTokens.getTtlSeconds() : null);
 
             //OLD RESPONSE contain more data than needed, not good for performance
 //            CustomerReponse customerResponse = new CustomerReponse(customer);
@@ -178,6 +194,47 @@ public class AuthController {
         }
     }
 
+    /**
+     * Refresh endpoint - renews a session with a refresh token instead of the password
+     */
+    @Operation(summary = "Refresh Token", description = "Exchange a refresh token for a new JWT token and a new refresh token; each refresh token can be used once")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Token refreshed", content = @Content(schema = @Schema(implementation = SecureLoginResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Invalid, expired or already used refresh token", content = @Content(schema = @Schema(implementation = SuccessResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Account is not active", content = @Content(schema = @Schema(implementation = SuccessResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = SuccessResponse.class)))
+    })
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        try {
+            // No password check: the refresh token stands in for it
+            RefreshTokenStore.Rotation rotation = refreshTokens.rotate(request.getRefreshToken());
+            if (rotation == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(new SuccessResponse("Invalid or expired refresh token"));
+            }
+
+            Optional<Customer> customer = customerService.findByEmail(rotation.email());
+            if (customer.isEmpty() || !customer.get().isActive()) {
+                logger.warn("Token refresh for inactive account for email: {}", rotation.email());
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(new SuccessResponse("Account is not active. Please contact support."));
+            }
+
+            String token = jwtUtil.generateToken(rotation.email(), rotation.role());
+            long expiresIn = jwtUtil.getTokenTtlMinutes() * 60;
+
+            logger.info("Token refreshed for customer: {}", rotation.email());
+            return ResponseEntity.ok(SecureLoginResponse.refreshSuccess(
+                    LoginUserInfo.fromCustomer(customer.get()), token, expiresIn, rotation.refreshToken()));
+
+        } catch (Exception e) {
+            logger.error("Unexpected error during token refresh", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new SuccessResponse("An error occurred during token refresh. Please try again."));
+        }
+    }
+
     /**
      * Registration endpoint - creates a new customer account
      */
@@ -277,6 +334,32 @@ public class AuthController {
         }
     }
 
+    /**
+     * Logout everywhere endpoint - invalidates every JWT issued to the user so far, on all devices
+     */
+    @Operation(summary = "Logout Everywhere", description = "Invalidate every JWT token issued to the user so far, including the one used for this request")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "All sessions logged out", content = @Content(schema = @Schema(implementation = SuccessResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = SuccessResponse.class)))
+    })
+    @SecurityRequirement(name = "Bearer Authentication")
+    @PostMapping("/logout-all")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> logoutAll(Principal principal) {
+        try {
+            jwtUtil.invalidateAllTokens(principal.getName());
+            SecurityContextHolder.clearContext();
+
+            logger.info("All sessions logged out for email: {}", principal.getName());
+            return ResponseEntity.ok(new SuccessResponse("All sessions logged out"));
+
+        } catch (Exception e) {
+            logger.error("Unexpected error during logout everywhere", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new SuccessResponse("An error occurred during logout"));
+        }
+    }
+
     /**
      * Verify token endpoint - checks if current token is valid
      */
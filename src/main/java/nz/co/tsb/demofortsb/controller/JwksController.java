@@ -0,0 +1,52 @@
+package nz.co.tsb.demofortsb.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import nz.co.tsb.demofortsb.security.JwtKeyRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+/**
+ * Publishes the public keys JWTs are signed with, so the gateway and other services can verify tokens themselves.
+ */
+@Tag(name = "Authentication", description = "APIs for user authentication, registration, and session management")
+@RestController
+public class JwksController {
+
+    private final JwtKeyRing keyRing;
+    private final CacheControl cacheControl;
+    private final String etag;
+
+    public JwksController(JwtKeyRing keyRing,
+                          @Value("${app.jwt.jwks.max-age-seconds:300}") long maxAgeSeconds) {
+        this.keyRing = keyRing;
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+        // The key set only changes with a restart
+        this.etag = "\"" + Integer.toHexString(keyRing.jwks().hashCode()) + "\"";
+    }
+
+    /**
+     * JWK Set endpoint - the key set is rendered once at startup and may be cached by clients for max-age
+     */
+    @Operation(summary = "JSON Web Key Set", description = "Public keys for verifying JWT tokens, selected by the token's kid header")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Current signing and verification keys"),
+            @ApiResponse(responseCode = "304", description = "Key set unchanged since the given ETag")
+    })
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<String> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(keyRing.jwks());
+    }
+}
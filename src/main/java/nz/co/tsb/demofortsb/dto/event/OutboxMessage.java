@@ -0,0 +1,17 @@
+package nz.co.tsb.demofortsb.dto.event;
+
+import nz.co.tsb.demofortsb.entity.OutboxEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * An outbox event as handed to an {@code OutboxPublisher}; the id is unique and increasing per event,
+ * so consumers can de-duplicate redeliveries.
+ */
+public record OutboxMessage(Long id, String eventType, Long aggregateId, String payload, LocalDateTime createdAt) {
+
+    public static OutboxMessage of(OutboxEvent event) {
+        return new OutboxMessage(event.getId(), event.getEventType(), event.getAggregateId(), event.getPayload(),
+                event.getCreatedAt());
+    }
+}
@@ -0,0 +1,41 @@
+package nz.co.tsb.demofortsb.dto.event;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Payload of the outbox events published when a transfer completes or fails
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TransferEvent(
+        String eventType,
+        Long debitTransactionId,
+        Long creditTransactionId,
+        Long fromAccountId,
+        Long toAccountId,
+        Money amount,
+        String currencyCode,
+        Transaction.TransactionStatus status,
+        String failureReason,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+        LocalDateTime occurredAt)
+{
+    public static final String TRANSFER_COMPLETED = "TRANSFER_COMPLETED";
+    public static final String TRANSFER_FAILED = "TRANSFER_FAILED";
+
+    public static TransferEvent completed(Transaction debit, Transaction credit) {
+        return new TransferEvent(TRANSFER_COMPLETED, debit.getTransactionId(), credit.getTransactionId(),
+                debit.getFromAccountId(), debit.getToAccountId(), debit.getAmount(), debit.getCurrencyCode(),
+                Transaction.TransactionStatus.COMPLETED, null, debit.getTransactionDate());
+    }
+
+    public static TransferEvent failed(Transaction transfer) {
+        return new TransferEvent(TRANSFER_FAILED, transfer.getTransactionId(), null,
+                transfer.getFromAccountId(), transfer.getToAccountId(), transfer.getAmount(), transfer.getCurrencyCode(),
+                Transaction.TransactionStatus.FAILED, transfer.getFailureReason(), LocalDateTime.now());
+    }
+}
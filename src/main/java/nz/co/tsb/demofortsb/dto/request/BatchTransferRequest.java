@@ -0,0 +1,25 @@
+package nz.co.tsb.demofortsb.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+@Schema(description = "Batch of transfers between accounts of the same customer")
+public class BatchTransferRequest {
+
+    @NotEmpty(message = "At least one transfer is required")
+    @Valid
+    @Schema(description = "Transfers to apply, in order", required = true)
+    private List<TransferRequest> transfers;
+
+    // Getters and Setters
+    public List<TransferRequest> getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(List<TransferRequest> transfers) {
+        this.transfers = transfers;
+    }
+}
@@ -0,0 +1,47 @@
+package nz.co.tsb.demofortsb.dto.request;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import jakarta.validation.Payload;
+import nz.co.tsb.demofortsb.entity.Money;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Bounds a {@link Money} field, in minor units; null is valid (combine with {@code @NotNull}).
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = MoneyRange.Validator.class)
+public @interface MoneyRange {
+
+    long minMinor();
+
+    long maxMinor();
+
+    String message() default "Amount is out of range";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+
+    class Validator implements ConstraintValidator<MoneyRange, Money> {
+        private long minMinor;
+        private long maxMinor;
+
+        @Override
+        public void initialize(MoneyRange range) {
+            this.minMinor = range.minMinor();
+            this.maxMinor = range.maxMinor();
+        }
+
+        @Override
+        public boolean isValid(Money value, ConstraintValidatorContext context) {
+            return value == null || (value.minorUnits() >= minMinor && value.minorUnits() <= maxMinor);
+        }
+    }
+}
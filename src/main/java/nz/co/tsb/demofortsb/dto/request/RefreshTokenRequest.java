@@ -0,0 +1,30 @@
+package nz.co.tsb.demofortsb.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO for renewing a session with a refresh token
+ */
+public class RefreshTokenRequest {
+
+    @NotBlank(message = "Refresh token is required")
+    @Size(max = 128, message = "Refresh token must not exceed 128 characters")
+    private String refreshToken;
+
+    // Constructors
+    public RefreshTokenRequest() {}
+
+    public RefreshTokenRequest(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    // Getters and Setters
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
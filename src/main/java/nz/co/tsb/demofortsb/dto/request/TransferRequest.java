@@ -3,7 +3,7 @@ package nz.co.tsb.demofortsb.dto.request;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.*;
 
-import java.math.BigDecimal;
+import nz.co.tsb.demofortsb.entity.Money;
 
 
 @Schema(description = "Transfer request between accounts")
@@ -18,11 +18,9 @@ public class TransferRequest {
     private String toAccountNumber;
 
     @NotNull(message = "Amount is required")
-    @Positive(message = "Amount must be positive")
-    @DecimalMin(value = "0.01", message = "Amount must be at least 0.01")
-    @DecimalMax(value = "999999.99", message = "Amount cannot exceed 999999.99")
+    @MoneyRange(minMinor = 1, maxMinor = 99_999_999, message = "Amount must be between 0.01 and 999999.99")
     @Schema(description = "Transfer amount", example = "100.00", required = true)
-    private BigDecimal amount;
+    private Money amount;
 
     @Schema(description = "Transfer description", example = "Payment for services")
     private String description;
@@ -44,11 +42,11 @@ public class TransferRequest {
         this.toAccountNumber = toAccountNumber;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -3,8 +3,8 @@ package nz.co.tsb.demofortsb.dto.response;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import io.swagger.v3.oas.annotations.media.Schema;
 import nz.co.tsb.demofortsb.entity.Account;
+import nz.co.tsb.demofortsb.entity.Money;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Schema(description = "Account response with details")
@@ -20,7 +20,7 @@ public class AccountResponse {
     private String accountNumber;
 
     @Schema(description = "Account balance", example = "1000.00")
-    private BigDecimal balance;
+    private Money balance;
 
     @Schema(description = "Currency code", example = "NZD")
     private String currencyCode;
@@ -45,6 +45,20 @@ public class AccountResponse {
         this.updatedAt = account.getUpdatedAt();
     }
 
+    /**
+     * Used by JPQL constructor expressions that select the columns directly.
+     */
+    public AccountResponse(Long accountId, Long customerId, String accountNumber, Money balance,
+                           String currencyCode, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.accountId = accountId;
+        this.customerId = customerId;
+        this.accountNumber = accountNumber;
+        this.balance = balance;
+        this.currencyCode = currencyCode;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
     // Getters and Setters
     public Long getAccountId() {
         return accountId;
@@ -70,11 +84,11 @@ public class AccountResponse {
         this.accountNumber = accountNumber;
     }
 
-    public BigDecimal getBalance() {
+    public Money getBalance() {
         return balance;
     }
 
-    public void setBalance(BigDecimal balance) {
+    public void setBalance(Money balance) {
         this.balance = balance;
     }
 
@@ -0,0 +1,26 @@
+package nz.co.tsb.demofortsb.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import nz.co.tsb.demofortsb.entity.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * An account's balance at a point in time
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Account balance at a point in time")
+public record BalanceAsOfResponse(
+        @Schema(description = "Account ID", example = "1")
+        Long accountId,
+        @Schema(description = "Balance after every posting up to and including this instant", example = "2025-01-31 23:59:59")
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+        LocalDateTime asOf,
+        @Schema(description = "Balance", example = "1000.00")
+        Money balance,
+        @Schema(description = "Currency code", example = "NZD")
+        String currencyCode)
+{
+}
@@ -0,0 +1,32 @@
+package nz.co.tsb.demofortsb.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import nz.co.tsb.demofortsb.dto.request.TransferRequest;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+
+/**
+ * Outcome of one item in a batch transfer
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Result of a single transfer within a batch")
+public record BatchTransferItemResult(
+        int index,
+        Transaction.TransactionStatus status,
+        String fromAccountNumber,
+        String toAccountNumber,
+        Money amount,
+        TransactionResponse transaction,
+        String error)
+{
+    public static BatchTransferItemResult completed(int index, TransferRequest request, TransactionResponse transaction) {
+        return new BatchTransferItemResult(index, Transaction.TransactionStatus.COMPLETED,
+                request.getFromAccountNumber(), request.getToAccountNumber(), request.getAmount(), transaction, null);
+    }
+
+    public static BatchTransferItemResult failed(int index, TransferRequest request, String error) {
+        return new BatchTransferItemResult(index, Transaction.TransactionStatus.FAILED,
+                request.getFromAccountNumber(), request.getToAccountNumber(), request.getAmount(), null, error);
+    }
+}
@@ -0,0 +1,24 @@
+package nz.co.tsb.demofortsb.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import nz.co.tsb.demofortsb.entity.Transaction;
+
+import java.util.List;
+
+/**
+ * Per-item results of a batch transfer, in request order
+ */
+@Schema(description = "Batch transfer results")
+public record BatchTransferResponse(
+        int total,
+        int succeeded,
+        int failed,
+        List<BatchTransferItemResult> results)
+{
+    public static BatchTransferResponse of(List<BatchTransferItemResult> results) {
+        int succeeded = (int) results.stream()
+                .filter(r -> r.status() == Transaction.TransactionStatus.COMPLETED)
+                .count();
+        return new BatchTransferResponse(results.size(), succeeded, results.size() - succeeded, results);
+    }
+}
@@ -0,0 +1,26 @@
+package nz.co.tsb.demofortsb.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import nz.co.tsb.demofortsb.entity.Money;
+
+import java.time.LocalDate;
+
+/**
+ * One day of an account's daily balance series
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Closing balance and posting totals for one day")
+public record DailyBalanceResponse(
+        @Schema(description = "Day", example = "2025-01-31")
+        LocalDate date,
+        @Schema(description = "Balance at the end of the day", example = "1000.00")
+        Money closingBalance,
+        @Schema(description = "Sum of the day's credits", example = "250.00")
+        Money credits,
+        @Schema(description = "Sum of the day's debits", example = "100.00")
+        Money debits,
+        @Schema(description = "Number of postings on the day", example = "3")
+        int postingCount)
+{
+}
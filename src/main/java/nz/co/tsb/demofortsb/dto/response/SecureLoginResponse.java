@@ -16,6 +16,8 @@ public record SecureLoginResponse(
         String token,
         String tokenType,
         Long expiresIn,
+        String refreshToken,
+        Long refreshExpiresIn,
         @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
         LocalDateTime issuedAt)
 {
@@ -25,7 +27,9 @@ public record SecureLoginResponse(
     public static SecureLoginResponse loginSuccess(
             LoginUserInfo user,
             String token,
-            Long expiresIn
+            Long expiresIn,
+            String refreshToken,
+            Long refreshExpiresIn
     ) {
         return new SecureLoginResponse(
                 "Login successful",
@@ -33,6 +37,29 @@ public record SecureLoginResponse(
                 token,
                 "Bearer",
                 expiresIn,
+                refreshToken,
+                refreshExpiresIn,
+                LocalDateTime.now()
+        );
+    }
+
+    /**
+     * Factory method for a session renewed with a refresh token; the refresh token is replaced with a new one
+     */
+    public static SecureLoginResponse refreshSuccess(
+            LoginUserInfo user,
+            String token,
+            Long expiresIn,
+            String refreshToken
+    ) {
+        return new SecureLoginResponse(
+                "Token refreshed",
+                user,
+                token,
+                "Bearer",
+                expiresIn,
+                refreshToken,
+                null,
                 LocalDateTime.now()
         );
     }
@@ -52,6 +79,8 @@ public record SecureLoginResponse(
                 token,
                 "Bearer",
                 expiresIn,
+                null,
+                null,
                 LocalDateTime.now()
         );
     }
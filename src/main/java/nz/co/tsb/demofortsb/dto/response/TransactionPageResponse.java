@@ -0,0 +1,18 @@
+package nz.co.tsb.demofortsb.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * One page of an account's transaction history, newest first
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "A page of transaction history")
+public record TransactionPageResponse(
+        List<TransactionResponse> transactions,
+        @Schema(description = "Pass as 'cursor' to fetch the next page; absent on the last page")
+        String nextCursor)
+{
+}
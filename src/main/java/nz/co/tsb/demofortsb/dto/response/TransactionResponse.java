@@ -2,10 +2,11 @@ package nz.co.tsb.demofortsb.dto.response;
 
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
+import nz.co.tsb.demofortsb.entity.Money;
 import nz.co.tsb.demofortsb.entity.Transaction;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Schema(description = "Transaction response with details")
@@ -21,7 +22,7 @@ public class TransactionResponse {
     private Transaction.TransactionType transactionType;
 
     @Schema(description = "Transaction amount", example = "100.00")
-    private BigDecimal amount;
+    private Money amount;
 
     @Schema(description = "Transaction date", example = "2025-01-01 10:00:00")
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
@@ -39,6 +40,14 @@ public class TransactionResponse {
     @Schema(description = "Currency code", example = "NZD")
     private String currencyCode;
 
+    @Schema(description = "Account balance just after this transaction; absent until it has completed", example = "250.00")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Money balanceAfter;
+
+    @Schema(description = "Why an asynchronous transfer failed", example = "Insufficient balance in source account")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String failureReason;
+
     public TransactionResponse() {}
 
     public TransactionResponse(Transaction transaction) {
@@ -51,6 +60,28 @@ public class TransactionResponse {
         this.toAccountId = transaction.getToAccountId();
         this.transactionStatus = transaction.getTransactionStatus();
         this.currencyCode = transaction.getCurrencyCode();
+        this.balanceAfter = transaction.getBalanceAfter();
+        this.failureReason = transaction.getFailureReason();
+    }
+
+    /**
+     * Used by JPQL constructor expressions that select the columns directly.
+     */
+    public TransactionResponse(Long transactionId, Long accountId, Transaction.TransactionType transactionType,
+                               Money amount, LocalDateTime transactionDate, Long fromAccountId, Long toAccountId,
+                               Transaction.TransactionStatus transactionStatus, String currencyCode,
+                               Money balanceAfter, String failureReason) {
+        this.transactionId = transactionId;
+        this.accountId = accountId;
+        this.transactionType = transactionType;
+        this.amount = amount;
+        this.transactionDate = transactionDate;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.transactionStatus = transactionStatus;
+        this.currencyCode = currencyCode;
+        this.balanceAfter = balanceAfter;
+        this.failureReason = failureReason;
     }
 
     // Getters and Setters
@@ -78,11 +109,11 @@ public class TransactionResponse {
         this.transactionType = transactionType;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -125,4 +156,20 @@ public class TransactionResponse {
     public void setCurrencyCode(String currencyCode) {
         this.currencyCode = currencyCode;
     }
+
+    public Money getBalanceAfter() {
+        return balanceAfter;
+    }
+
+    public void setBalanceAfter(Money balanceAfter) {
+        this.balanceAfter = balanceAfter;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
 }
@@ -1,7 +1,6 @@
 package nz.co.tsb.demofortsb.entity;
 
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Random;
 
@@ -10,7 +9,9 @@ import java.util.Random;
 public class Account {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence instead of IDENTITY so Hibernate can batch inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_seq")
+    @SequenceGenerator(name = "account_seq", sequenceName = "account_seq", allocationSize = 50)
     @Column(name = "account_id")
     private Long accountId;
 
@@ -21,7 +22,8 @@ public class Account {
     private String accountNumber;
 
     @Column(name = "balance", precision = 10, scale = 2)
-    private BigDecimal balance = BigDecimal.ZERO;
+    @Convert(converter = MoneyConverter.class)
+    private Money balance = Money.ZERO;
 
     @Column(name = "currency_code", length = 3)
     private String currencyCode = "NZD";
@@ -29,6 +31,10 @@ public class Account {
     @Enumerated(EnumType.STRING)
     private AccountStatus status = AccountStatus.ACTIVE;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -52,7 +58,7 @@ public class Account {
     public Account(Long customerId) {
         this.customerId = customerId;
         this.accountNumber = generateAccountNumber();
-        this.balance = BigDecimal.ZERO;
+        this.balance = Money.ZERO;
         this.currencyCode = "NZD";
     }
 
@@ -89,11 +95,11 @@ public class Account {
         this.accountNumber = accountNumber;
     }
 
-    public BigDecimal getBalance() {
+    public Money getBalance() {
         return balance;
     }
 
-    public void setBalance(BigDecimal balance) {
+    public void setBalance(Money balance) {
         this.balance = balance;
     }
 
@@ -105,6 +111,22 @@ public class Account {
         this.currencyCode = currencyCode;
     }
 
+    public AccountStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AccountStatus status) {
+        this.status = status;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
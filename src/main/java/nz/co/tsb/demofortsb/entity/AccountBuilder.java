@@ -3,7 +3,6 @@ package nz.co.tsb.demofortsb.entity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -11,7 +10,7 @@ public class AccountBuilder {
     private Long accountId;
     private Long customerId;
     private String accountNumber;
-    private BigDecimal balance = BigDecimal.ZERO;
+    private Money balance = Money.ZERO;
     private String currencyCode = "NZD";
     private Account.AccountStatus status = Account.AccountStatus.ACTIVE;
     private LocalDateTime createdAt;
@@ -32,7 +31,7 @@ public class AccountBuilder {
         return this;
     }
 
-    public AccountBuilder balance(BigDecimal balance) {
+    public AccountBuilder balance(Money balance) {
         this.balance = balance;
         return this;
     }
@@ -0,0 +1,134 @@
+package nz.co.tsb.demofortsb.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * An account's closing balance at the end of one day, with that day's posting totals.
+ * There is a row for every day the account had completed postings (and one for the day it was opened or
+ * first snapshotted); on days without a row the balance is the closing balance of the latest earlier row.
+ */
+@Entity
+@Table(name = "account_daily_balance")
+@IdClass(AccountDailyBalance.Key.class)
+public class AccountDailyBalance {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "balance_date")
+    private LocalDate balanceDate;
+
+    @Column(name = "closing_balance", nullable = false, precision = 10, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private Money closingBalance;
+
+    @Column(name = "credit_total", nullable = false, precision = 15, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private Money creditTotal;
+
+    @Column(name = "debit_total", nullable = false, precision = 15, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private Money debitTotal;
+
+    @Column(name = "posting_count", nullable = false)
+    private Integer postingCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public AccountDailyBalance() {}
+
+    public AccountDailyBalance(Long accountId, LocalDate balanceDate, Money closingBalance,
+                               Money creditTotal, Money debitTotal, int postingCount) {
+        this.accountId = accountId;
+        this.balanceDate = balanceDate;
+        this.closingBalance = closingBalance;
+        this.creditTotal = creditTotal;
+        this.debitTotal = debitTotal;
+        this.postingCount = postingCount;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Net movement on the day: closing balance minus the previous day's closing balance.
+     */
+    public Money getNetChange() {
+        return creditTotal.minus(debitTotal);
+    }
+
+    /**
+     * Balance at the start of the day, i.e. before any of the day's postings.
+     */
+    public Money getOpeningBalance() {
+        return closingBalance.minus(getNetChange());
+    }
+
+    // Getters and Setters
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getBalanceDate() {
+        return balanceDate;
+    }
+
+    public Money getClosingBalance() {
+        return closingBalance;
+    }
+
+    public void setClosingBalance(Money closingBalance) {
+        this.closingBalance = closingBalance;
+    }
+
+    public Money getCreditTotal() {
+        return creditTotal;
+    }
+
+    public Money getDebitTotal() {
+        return debitTotal;
+    }
+
+    public Integer getPostingCount() {
+        return postingCount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public static class Key implements Serializable {
+        private Long accountId;
+        private LocalDate balanceDate;
+
+        public Key() {}
+
+        public Key(Long accountId, LocalDate balanceDate) {
+            this.accountId = accountId;
+            this.balanceDate = balanceDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Objects.equals(accountId, other.accountId)
+                    && Objects.equals(balanceDate, other.balanceDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, balanceDate);
+        }
+    }
+}
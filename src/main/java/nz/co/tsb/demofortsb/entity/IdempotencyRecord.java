@@ -0,0 +1,129 @@
+package nz.co.tsb.demofortsb.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * The stored outcome of a money-moving request sent with an {@code Idempotency-Key} header.
+ * <p>
+ * Written in the same database transaction as the transfer it records, so a committed row
+ * always means the transfer committed, and the primary key makes concurrent duplicates
+ * across instances block on (and then lose to) the first insert.
+ * </p>
+ */
+@Entity
+@Table(name = "idempotency_record")
+public class IdempotencyRecord implements Persistable<String> {
+
+    // "<customerId>:<Idempotency-Key>" so clients cannot collide with each other's keys
+    @Id
+    @Column(name = "record_key", length = 140)
+    private String recordKey;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "request_fingerprint", nullable = false, length = 64)
+    private String requestFingerprint;
+
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    // Filled in at the end of the transfer's transaction, so never null once committed
+    @Column(name = "response_body")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Always INSERT a new record: a merge could silently overwrite a key another request just committed
+    @Transient
+    private boolean isNew = true;
+
+    // Constructors
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(String recordKey, Long customerId, String requestFingerprint) {
+        this.recordKey = recordKey;
+        this.customerId = customerId;
+        this.requestFingerprint = requestFingerprint;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public String getId() {
+        return recordKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    // Getters and Setters
+    public String getRecordKey() {
+        return recordKey;
+    }
+
+    public void setRecordKey(String recordKey) {
+        this.recordKey = recordKey;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public String getRequestFingerprint() {
+        return requestFingerprint;
+    }
+
+    public void setRequestFingerprint(String requestFingerprint) {
+        this.requestFingerprint = requestFingerprint;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public void setResponseBody(String responseBody) {
+        this.responseBody = responseBody;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
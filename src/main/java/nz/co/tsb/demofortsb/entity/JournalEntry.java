@@ -0,0 +1,59 @@
+package nz.co.tsb.demofortsb.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Header of a double-entry journal entry. Its postings are the {@link Transaction} rows carrying its id,
+ * one per affected account, and their signed amounts always sum to zero.
+ */
+@Entity
+@Table(name = "journal_entry")
+public class JournalEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "journal_entry_seq")
+    @SequenceGenerator(name = "journal_entry_seq", sequenceName = "journal_entry_seq", allocationSize = 50)
+    @Column(name = "id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", length = 20, nullable = false)
+    private EntryType entryType;
+
+    @Column(name = "currency_code", length = 3, nullable = false)
+    private String currencyCode;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public JournalEntry() {}
+
+    public JournalEntry(EntryType entryType, String currencyCode) {
+        this.entryType = entryType;
+        this.currencyCode = currencyCode;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public EntryType getEntryType() {
+        return entryType;
+    }
+
+    public String getCurrencyCode() {
+        return currencyCode;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public enum EntryType {
+        TRANSFER        // money moved between two customer accounts
+    }
+}
@@ -0,0 +1,58 @@
+package nz.co.tsb.demofortsb.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Highest ledger journal sequence per shard whose postings are in the account and transaction tables.
+ * Updated in the same transaction as the postings, so journal replay after a crash never applies one twice.
+ */
+@Entity
+@Table(name = "ledger_checkpoint")
+public class LedgerCheckpoint {
+
+    @Id
+    @Column(name = "shard_id")
+    private Integer shardId;
+
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public LedgerCheckpoint() {}
+
+    public LedgerCheckpoint(Integer shardId) {
+        this.shardId = shardId;
+        this.lastSequence = 0L;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Integer getShardId() {
+        return shardId;
+    }
+
+    public void setShardId(Integer shardId) {
+        this.shardId = shardId;
+    }
+
+    public Long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(Long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,216 @@
+package nz.co.tsb.demofortsb.entity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Immutable amount of money held as a {@code long} count of minor units (cents) plus an ISO currency code.
+ * <p>
+ * Arithmetic is exact and overflow-checked, and never allocates more than the result. In JSON a Money is a
+ * plain decimal number with two places ({@code 100.00}), the same shape the API used for {@code BigDecimal};
+ * in the database it is a DECIMAL(10,2) column via {@link MoneyConverter}.
+ * </p>
+ */
+@Schema(type = "number", format = "decimal", example = "100.00")
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money> {
+
+    public static final String DEFAULT_CURRENCY = "NZD";
+    public static final int SCALE = 2;
+    private static final long MINOR_PER_MAJOR = 100;
+
+    public static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+
+    private final long minorUnits;
+    private final String currencyCode;
+
+    private Money(long minorUnits, String currencyCode) {
+        this.minorUnits = minorUnits;
+        this.currencyCode = currencyCode;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return ofMinor(minorUnits, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minorUnits, String currencyCode) {
+        return minorUnits == 0 && DEFAULT_CURRENCY.equals(currencyCode) ? ZERO : new Money(minorUnits, currencyCode);
+    }
+
+    /**
+     * @throws ArithmeticException if the amount has non-zero digits beyond two decimal places or does not fit
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.movePointRight(SCALE).longValueExact());
+    }
+
+    /**
+     * Parse a plain decimal such as {@code "100"}, {@code "-0.5"} or {@code "12.34"} without going through BigDecimal.
+     * Exponent notation falls back to {@link #of(BigDecimal)}.
+     *
+     * @throws NumberFormatException if the text is not a number
+     * @throws ArithmeticException   if it has non-zero digits beyond two decimal places or does not fit
+     */
+    public static Money parse(String text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        if (i == length) {
+            throw new NumberFormatException("Not a money amount: " + text);
+        }
+
+        long minor = 0;
+        boolean digits = false;
+        int fractionDigits = -1;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits = true;
+                if (fractionDigits >= 0 && ++fractionDigits > SCALE) {
+                    if (c != '0') {
+                        throw new ArithmeticException("Amount cannot have more than 2 decimal places: " + text);
+                    }
+                    continue;
+                }
+                minor = Math.addExact(Math.multiplyExact(minor, 10), c - '0');
+            } else if (c == 'e' || c == 'E') {
+                return of(new BigDecimal(text));
+            } else {
+                throw new NumberFormatException("Not a money amount: " + text);
+            }
+        }
+        if (!digits) {
+            throw new NumberFormatException("Not a money amount: " + text);
+        }
+        for (int scale = Math.max(fractionDigits, 0); scale < SCALE; scale++) {
+            minor = Math.multiplyExact(minor, 10);
+        }
+        return ofMinor(negative ? -minor : minor);
+    }
+
+    public long minorUnits() {
+        return minorUnits;
+    }
+
+    public String currencyCode() {
+        return currencyCode;
+    }
+
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits), currencyCode);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits), currencyCode);
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minorUnits), currencyCode);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    private void checkCurrency(Money other) {
+        if (!currencyCode.equals(other.currencyCode)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currencyCode + " and " + other.currencyCode);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && minorUnits == other.minorUnits && currencyCode.equals(other.currencyCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + currencyCode.hashCode();
+    }
+
+    /**
+     * The amount as a plain two-place decimal, e.g. {@code "-12.05"}; no currency.
+     */
+    @Override
+    public String toString() {
+        // Unsigned division so Long.MIN_VALUE, which has no positive counterpart, still formats correctly
+        long abs = Math.abs(minorUnits);
+        long major = Long.divideUnsigned(abs, MINOR_PER_MAJOR);
+        long minor = Long.remainderUnsigned(abs, MINOR_PER_MAJOR);
+        StringBuilder text = new StringBuilder(24);
+        if (minorUnits < 0) {
+            text.append('-');
+        }
+        text.append(Long.toUnsignedString(major)).append('.');
+        return text.append(minor < 10 ? "0" : "").append(minor).toString();
+    }
+
+    static final class Serializer extends StdSerializer<Money> {
+        Serializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(value.toString());
+        }
+    }
+
+    static final class Deserializer extends StdDeserializer<Money> {
+        Deserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                    && token != JsonToken.VALUE_STRING) {
+                return (Money) ctxt.handleUnexpectedToken(Money.class, p);
+            }
+            try {
+                return parse(p.getText().trim());
+            } catch (NumberFormatException | ArithmeticException e) {
+                return (Money) ctxt.handleWeirdStringValue(Money.class, p.getText(), e.getMessage());
+            }
+        }
+    }
+}
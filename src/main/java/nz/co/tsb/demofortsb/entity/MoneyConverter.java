@@ -0,0 +1,25 @@
+package nz.co.tsb.demofortsb.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Maps {@link Money} to a DECIMAL(10,2) column. The column holds the amount only; every account and
+ * transaction in this service is in {@link Money#DEFAULT_CURRENCY}, which is also what the rows'
+ * currency_code columns record.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.toBigDecimal();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal amount) {
+        return amount == null ? null : Money.of(amount);
+    }
+}
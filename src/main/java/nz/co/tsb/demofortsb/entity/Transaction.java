@@ -1,15 +1,17 @@
 package nz.co.tsb.demofortsb.entity;
 
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
 @Table(name = "transaction")
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence instead of IDENTITY so Hibernate can batch inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = 50)
     @Column(name = "transaction_id")
     private Long transactionId;
 
@@ -20,7 +22,8 @@ public class Transaction {
     private TransactionType transactionType;
 
     @Column(name = "amount", nullable = false, precision = 10, scale = 2)
-    private BigDecimal amount;
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
 
     @Column(name = "transaction_date", nullable = false)
     private LocalDateTime transactionDate;
@@ -43,13 +46,26 @@ public class Transaction {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Journal entry this posting belongs to; null for single-sided and not yet settled rows
+    @Column(name = "journal_entry_id")
+    private Long journalEntryId;
+
+    // Why an asynchronous transfer ended FAILED; null otherwise
+    @Column(name = "failure_reason", length = 255)
+    private String failureReason;
+
+    // Account balance just after this posting, written under the account lock; null until COMPLETED
+    @Column(name = "balance_after", precision = 10, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private Money balanceAfter;
+
 
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
         if (transactionDate == null) {
-            transactionDate = LocalDateTime.now();
+            transactionDate = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
         }
     }
 
@@ -86,11 +102,11 @@ public class Transaction {
         this.transactionType = transactionType;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -150,6 +166,39 @@ public class Transaction {
         this.updatedAt = updatedAt;
     }
 
+    public Long getJournalEntryId() {
+        return journalEntryId;
+    }
+
+    public void setJournalEntryId(Long journalEntryId) {
+        this.journalEntryId = journalEntryId;
+    }
+
+    /**
+     * Amount as a posting against this row's account: negative for money leaving it, positive for money arriving.
+     */
+    public Money getSignedAmount() {
+        return transactionType == TransactionType.TRANSFER_OUT || transactionType == TransactionType.WITHDRAWAL
+                ? amount.negate()
+                : amount;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public Money getBalanceAfter() {
+        return balanceAfter;
+    }
+
+    public void setBalanceAfter(Money balanceAfter) {
+        this.balanceAfter = balanceAfter;
+    }
+
     public enum TransactionType {
         DEPOSIT,        // money added to the account
         WITHDRAWAL,     // money taken out of the account
@@ -1,13 +1,13 @@
 package nz.co.tsb.demofortsb.entity;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 public class TransactionBuilder {
     private Long transactionId;
     private Long accountId;
     private Transaction.TransactionType transactionType;
-    private BigDecimal amount;
+    private Money amount;
     private LocalDateTime transactionDate;
     private Long fromAccountId;
     private Long toAccountId;
@@ -32,7 +32,7 @@ public class TransactionBuilder {
         return this;
     }
 
-    public TransactionBuilder amount(BigDecimal amount) {
+    public TransactionBuilder amount(Money amount) {
         this.amount = amount;
         return this;
     }
@@ -90,7 +90,9 @@ public class TransactionBuilder {
         transaction.setAccountId(this.accountId);
         transaction.setTransactionType(this.transactionType);
         transaction.setAmount(this.amount);
-        transaction.setTransactionDate(this.transactionDate != null ? this.transactionDate : LocalDateTime.now());
+        // Column precision, so the in-memory value equals what is stored and can serve as a history cursor
+        transaction.setTransactionDate(this.transactionDate != null
+                ? this.transactionDate : LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
         transaction.setFromAccountId(this.fromAccountId);
         transaction.setToAccountId(this.toAccountId);
         transaction.setTransactionStatus(this.transactionStatus);
@@ -0,0 +1,15 @@
+package nz.co.tsb.demofortsb.exception.Account;
+
+import nz.co.tsb.demofortsb.exception.BusinessException;
+
+public class ConcurrentTransferException extends BusinessException {
+    private final int attempts;
+
+    public ConcurrentTransferException(int attempts, Throwable cause) {
+        super(String.format("Transfer could not be completed after %d attempts due to concurrent updates. Please retry.",
+                attempts), "TRANSFER_CONTENTION", cause);
+        this.attempts = attempts;
+    }
+
+    public int getAttempts() { return attempts; }
+}
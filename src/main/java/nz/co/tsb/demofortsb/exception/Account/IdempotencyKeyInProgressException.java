@@ -0,0 +1,10 @@
+package nz.co.tsb.demofortsb.exception.Account;
+
+import nz.co.tsb.demofortsb.exception.BusinessException;
+
+public class IdempotencyKeyInProgressException extends BusinessException {
+    public IdempotencyKeyInProgressException(String idempotencyKey) {
+        super(String.format("A request with Idempotency-Key '%s' is still being processed. Please retry.", idempotencyKey),
+                "IDEMPOTENCY_KEY_IN_PROGRESS");
+    }
+}
@@ -0,0 +1,10 @@
+package nz.co.tsb.demofortsb.exception.Account;
+
+import nz.co.tsb.demofortsb.exception.BusinessException;
+
+public class IdempotencyKeyReuseException extends BusinessException {
+    public IdempotencyKeyReuseException(String idempotencyKey) {
+        super(String.format("Idempotency-Key '%s' was already used with a different request", idempotencyKey),
+                "IDEMPOTENCY_KEY_REUSED");
+    }
+}
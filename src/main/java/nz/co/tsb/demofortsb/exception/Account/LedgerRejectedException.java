@@ -0,0 +1,13 @@
+package nz.co.tsb.demofortsb.exception.Account;
+
+import nz.co.tsb.demofortsb.exception.BusinessException;
+
+public class LedgerRejectedException extends BusinessException {
+    public LedgerRejectedException(String message) {
+        super(message, "LEDGER_UNAVAILABLE");
+    }
+
+    public LedgerRejectedException(String message, Throwable cause) {
+        super(message, "LEDGER_UNAVAILABLE", cause);
+    }
+}
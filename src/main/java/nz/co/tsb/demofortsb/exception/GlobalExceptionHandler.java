@@ -5,7 +5,11 @@ import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import nz.co.tsb.demofortsb.dto.ErrorResponse;
 import nz.co.tsb.demofortsb.dto.ValidationErrorResponse;
+import nz.co.tsb.demofortsb.exception.Account.ConcurrentTransferException;
+import nz.co.tsb.demofortsb.exception.Account.IdempotencyKeyInProgressException;
+import nz.co.tsb.demofortsb.exception.Account.IdempotencyKeyReuseException;
 import nz.co.tsb.demofortsb.exception.Account.InsufficientBalanceException;
+import nz.co.tsb.demofortsb.exception.Account.LedgerRejectedException;
 import nz.co.tsb.demofortsb.exception.Customer.CustomerHasActiveAccountsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -125,6 +129,79 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    @ExceptionHandler(ConcurrentTransferException.class)
+    public ResponseEntity<ErrorResponse> handleConcurrentTransferException(
+            ConcurrentTransferException ex, HttpServletRequest request) {
+        String traceId = generateTraceId();
+        log.warn("Transfer contention [{}]: {}", traceId, ex.getMessage());
+
+        Map<String, String> details = Map.of(
+                "attempts", String.valueOf(ex.getAttempts())
+        );
+
+        ErrorResponse error = ErrorResponse.builder()
+                .status(HttpStatus.CONFLICT.value())
+                .error(ex.getErrorCode())
+                .message(ex.getMessage())
+                .path(request.getRequestURI())
+                .details(details)
+                .traceId(traceId)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyInProgressException(
+            IdempotencyKeyInProgressException ex, HttpServletRequest request) {
+        String traceId = generateTraceId();
+        log.warn("Idempotency key in progress [{}]: {}", traceId, ex.getMessage());
+
+        ErrorResponse error = ErrorResponse.builder()
+                .status(HttpStatus.CONFLICT.value())
+                .error(ex.getErrorCode())
+                .message(ex.getMessage())
+                .path(request.getRequestURI())
+                .traceId(traceId)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(LedgerRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleLedgerRejectedException(
+            LedgerRejectedException ex, HttpServletRequest request) {
+        String traceId = generateTraceId();
+        log.warn("Ledger rejected transfer [{}]: {}", traceId, ex.getMessage());
+
+        ErrorResponse error = ErrorResponse.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error(ex.getErrorCode())
+                .message(ex.getMessage())
+                .path(request.getRequestURI())
+                .traceId(traceId)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReuseException(
+            IdempotencyKeyReuseException ex, HttpServletRequest request) {
+        String traceId = generateTraceId();
+        log.warn("Idempotency key reused [{}]: {}", traceId, ex.getMessage());
+
+        ErrorResponse error = ErrorResponse.builder()
+                .status(HttpStatus.UNPROCESSABLE_ENTITY.value())
+                .error(ex.getErrorCode())
+                .message(ex.getMessage())
+                .path(request.getRequestURI())
+                .traceId(traceId)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+    }
+
     @ExceptionHandler(UnauthorizedException.class)
     public ResponseEntity<ErrorResponse> handleUnauthorizedException(
             UnauthorizedException ex, HttpServletRequest request) {
@@ -1,10 +1,19 @@
 package nz.co.tsb.demofortsb.healthCheck;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.ToDoubleFunction;
 
 @Component
 public class MetricService {
@@ -39,4 +48,281 @@ public class MetricService {
                 .record(durationMs, TimeUnit.MILLISECONDS);
 
     }
+
+    /**
+     * Counts a transfer attempt that lost a concurrency race and is about to be retried.
+     *
+     * @param operationName the transfer operation identifier
+     * @param reason        simple class name of the concurrency failure
+     */
+    public void recordTransferRetry(String operationName, String reason) {
+        meterRegistry.counter(
+                "transfer_retry_total",
+                "operation", operationName,
+                "reason", reason
+        ).increment();
+    }
+
+    /**
+     * Records how many attempts a transfer needed before it committed or gave up.
+     *
+     * @param operationName the transfer operation identifier
+     * @param attempts      number of attempts made
+     * @param success       true if the transfer committed, false if retries were exhausted
+     */
+    public void recordTransferAttempts(String operationName, int attempts, boolean success) {
+        DistributionSummary.builder("transfer_attempts")
+                .tags("operation", operationName, "status", success ? "success" : "exhausted")
+                .register(meterRegistry)
+                .record(attempts);
+    }
+
+    /**
+     * Records time spent waiting for account row locks.
+     *
+     * @param waitNanos lock acquisition time in nanoseconds
+     */
+    public void recordTransferLockWait(long waitNanos) {
+        Timer.builder("transfer_lock_wait_seconds")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts how an idempotent request was resolved.
+     *
+     * @param outcome cache_hit, db_hit or joined for replays; executed for a first run; expired for a record
+     *                past retention, which is then run as new
+     */
+    public void recordIdempotency(String outcome) {
+        meterRegistry.counter(
+                "idempotency_requests_total",
+                "outcome", outcome
+        ).increment();
+    }
+
+    /**
+     * Records one ledger write-behind batch.
+     *
+     * @param postings      number of transfers written to the database
+     * @param durationNanos time taken by the batch transaction
+     */
+    public void recordLedgerFlush(int postings, long durationNanos) {
+        meterRegistry.counter("ledger_postings_flushed_total").increment(postings);
+        Timer.builder("ledger_flush_seconds")
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Exposes whether a ledger shard is failing postings because its journal is full and write-behind has not
+     * caught up (1) or not (0).
+     */
+    public void registerLedgerJournalStalled(int shardId, BooleanSupplier stalled) {
+        Gauge.builder("ledger_journal_stalled", stalled, supplier -> supplier.getAsBoolean() ? 1 : 0)
+                .tags("shard", String.valueOf(shardId))
+                .register(meterRegistry);
+    }
+
+    /**
+     * Exposes the number of transfers waiting for a settlement worker.
+     */
+    public void registerTransferSettleQueue(Collection<?> queue) {
+        Gauge.builder("transfer_settle_queue_depth", queue, Collection::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the time from a transfer being accepted to it being settled.
+     *
+     * @param outcome   completed or failed
+     * @param latencyMs accept-to-settle time in milliseconds
+     */
+    public void recordTransferSettle(String outcome, long latencyMs) {
+        Timer.builder("transfer_settle_latency_seconds")
+                .tags("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records how many transfers shared one group commit.
+     */
+    public void recordGroupCommit(int groupSize) {
+        DistributionSummary.builder("transfer_group_size")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(groupSize);
+    }
+
+    /**
+     * Records one published outbox event and how long it waited in the outbox.
+     *
+     * @param eventType outbox event type
+     * @param lagMs     time from the event being written to it being published
+     */
+    public void recordOutboxPublished(String eventType, long lagMs) {
+        meterRegistry.counter(
+                "outbox_events_published_total",
+                "type", eventType
+        ).increment();
+
+        Timer.builder("outbox_publish_lag_seconds")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(lagMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Counts an outbox batch that failed to publish and will be retried.
+     */
+    public void recordOutboxFailure() {
+        meterRegistry.counter("outbox_publish_failures_total").increment();
+    }
+
+    /**
+     * Records one statement export: rows streamed and how long the stream stayed open.
+     *
+     * @param format     csv or ndjson
+     * @param rows       rows written before the export finished or failed
+     * @param durationMs time from first query to last byte
+     * @param success    false if the export was cut short
+     */
+    public void recordStatementExport(String format, long rows, long durationMs, boolean success) {
+        String status = success ? "success" : "failure";
+
+        DistributionSummary.builder("statement_export_rows")
+                .tags("format", format)
+                .register(meterRegistry)
+                .record(rows);
+
+        Timer.builder("statement_export_duration_seconds")
+                .tags("format", format, "status", status)
+                .register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records one transaction-partition maintenance step.
+     *
+     * @param action  create or archive
+     * @param success false if the DDL failed and needs attention
+     */
+    public void recordPartitionMaintenance(String action, boolean success) {
+        Counter.builder("transaction_partition_maintenance_total")
+                .tags("action", action, "status", success ? "success" : "failure")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Exposes how many months after the current one have a transaction partition, without gaps. Below 1, the
+     * next month's postings will fail at the month boundary; -1 means this month's postings are failing now.
+     */
+    public void registerPartitionMonthsAhead(IntSupplier monthsAhead) {
+        Gauge.builder("transaction_partition_months_ahead", monthsAhead, IntSupplier::getAsInt)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records where one connection request was routed.
+     *
+     * @param target primary or replica
+     * @param reason read-write, read-only, read-your-writes, no-healthy-replica or replica-failure
+     */
+    public void recordDataSourceRoute(String target, String reason) {
+        Counter.builder("datasource_route_total")
+                .tags("target", target, "reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Exposes hit, miss, eviction and size meters of a local cache (cache_gets, cache_evictions, cache_size).
+     * The cache must be built with {@code recordStats()}.
+     */
+    public void monitorCache(String cacheName, Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName);
+    }
+
+    /**
+     * Counts one cache read by the tier that answered it.
+     *
+     * @param cacheName cache identifier
+     * @param source    local or redis for a hit, database for a miss
+     */
+    public void recordCacheRead(String cacheName, String source) {
+        Counter.builder("cache_reads_total")
+                .tags("cache", cacheName, "source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Records how long ago a cache entry served from memory was loaded or last written through.
+     */
+    public void recordCacheEntryAge(String cacheName, long ageMs) {
+        Timer.builder("cache_entry_age_seconds")
+                .tags("cache", cacheName)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(ageMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Counts one cross-instance invalidation message.
+     *
+     * @param cacheName cache identifier
+     * @param outcome   published, received or failed; evicted for an entry dropped because of a write
+     */
+    public void recordCacheInvalidation(String cacheName, String outcome) {
+        Counter.builder("cache_invalidation_total")
+                .tags("cache", cacheName, "outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Counts one JWT revocation check by how it was answered.
+     *
+     * @param outcome near_cache_hit (revoked), redis_avoided (not revoked, no Redis call) or redis (copy stale)
+     */
+    public void recordRevocationCheck(String outcome) {
+        Counter.builder("jwt_revocation_checks_total")
+                .tags("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Counts one rebuild of the in-memory JWT blacklist from Redis.
+     */
+    public void recordRevocationResync(boolean success) {
+        Counter.builder("jwt_revocation_resync_total")
+                .tags("status", success ? "success" : "failure")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Counts one refresh token event.
+     *
+     * @param outcome issued (at login), rotated, reused (family revoked), revoked (by logout everywhere) or invalid
+     */
+    public void recordRefreshToken(String outcome) {
+        Counter.builder("jwt_refresh_tokens_total")
+                .tags("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Exposes the number of revoked tokens held in memory.
+     */
+    public <T> void registerRevokedTokens(T nearCache, ToDoubleFunction<T> size) {
+        Gauge.builder("jwt_revoked_tokens", nearCache, size)
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,73 @@
+package nz.co.tsb.demofortsb.repository;
+
+import nz.co.tsb.demofortsb.entity.AccountDailyBalance;
+import nz.co.tsb.demofortsb.entity.Money;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountDailyBalanceRepository extends JpaRepository<AccountDailyBalance, AccountDailyBalance.Key> {
+
+    boolean existsByAccountId(Long accountId);
+
+    /**
+     * Latest snapshot on or before the date: its closing balance is the balance at the end of that date.
+     */
+    Optional<AccountDailyBalance> findFirstByAccountIdAndBalanceDateLessThanEqualOrderByBalanceDateDesc(
+            Long accountId, LocalDate date);
+
+    Optional<AccountDailyBalance> findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(
+            Long accountId, LocalDate date);
+
+    Optional<AccountDailyBalance> findFirstByAccountIdAndBalanceDateGreaterThanEqualOrderByBalanceDateAsc(
+            Long accountId, LocalDate date);
+
+    Optional<AccountDailyBalance> findFirstByAccountIdOrderByBalanceDateAsc(Long accountId);
+
+    List<AccountDailyBalance> findByAccountIdAndBalanceDateBetweenOrderByBalanceDate(
+            Long accountId, LocalDate from, LocalDate to);
+
+    /**
+     * Add a day's postings to its existing snapshot row.
+     *
+     * @return 1 if the row existed, 0 if it has to be inserted
+     */
+    @Modifying
+    @Query("UPDATE AccountDailyBalance b SET b.closingBalance = b.closingBalance + :net, " +
+            "b.creditTotal = b.creditTotal + :credits, b.debitTotal = b.debitTotal + :debits, " +
+            "b.postingCount = b.postingCount + :count, b.updatedAt = :now " +
+            "WHERE b.accountId = :accountId AND b.balanceDate = :date")
+    int addToDay(@Param("accountId") Long accountId,
+                 @Param("date") LocalDate date,
+                 @Param("net") Money net,
+                 @Param("credits") Money credits,
+                 @Param("debits") Money debits,
+                 @Param("count") int count,
+                 @Param("now") LocalDateTime now);
+
+    /**
+     * Carry a late posting's net change into the closing balance of every later day.
+     */
+    @Modifying
+    @Query("UPDATE AccountDailyBalance b SET b.closingBalance = b.closingBalance + :net, b.updatedAt = :now " +
+            "WHERE b.accountId = :accountId AND b.balanceDate > :date")
+    int shiftClosingAfter(@Param("accountId") Long accountId,
+                          @Param("date") LocalDate date,
+                          @Param("net") Money net,
+                          @Param("now") LocalDateTime now);
+
+    /**
+     * Accounts that have no snapshot rows yet, e.g. accounts that predate the table.
+     */
+    @Query("SELECT a.accountId FROM Account a WHERE NOT EXISTS " +
+            "(SELECT 1 FROM AccountDailyBalance b WHERE b.accountId = a.accountId) ORDER BY a.accountId")
+    List<Long> findAccountIdsWithoutSnapshot();
+}
@@ -0,0 +1,14 @@
+package nz.co.tsb.demofortsb.repository;
+
+/**
+ * Projection of the immutable identity columns of an account.
+ * Used to resolve account ids and owners without loading or locking the entity.
+ */
+public interface AccountKey {
+
+    Long getAccountId();
+
+    String getAccountNumber();
+
+    Long getCustomerId();
+}
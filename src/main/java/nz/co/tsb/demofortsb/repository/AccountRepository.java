@@ -1,11 +1,18 @@
 package nz.co.tsb.demofortsb.repository;
 
+import jakarta.persistence.LockModeType;
+import nz.co.tsb.demofortsb.dto.response.AccountResponse;
 import nz.co.tsb.demofortsb.entity.Account;
+import nz.co.tsb.demofortsb.entity.Money;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +21,15 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
 
     List<Account> findByCustomerId(Long customerId);
 
+    /**
+     * A customer's accounts as response DTOs: only the DTO columns are selected and nothing enters the
+     * persistence context, so there is no entity hydration, snapshot or dirty check per row.
+     */
+    @Query("SELECT new nz.co.tsb.demofortsb.dto.response.AccountResponse(a.accountId, a.customerId, a.accountNumber, " +
+            "a.balance, a.currencyCode, a.createdAt, a.updatedAt) FROM Account a WHERE a.customerId = :customerId " +
+            "ORDER BY a.accountId")
+    List<AccountResponse> findResponsesByCustomerId(@Param("customerId") Long customerId);
+
     Optional<Account> findByAccountNumber(String accountNumber);
 
     @Query("SELECT a FROM Account a WHERE a.customerId = :customerId AND a.accountNumber = :accountNumber")
@@ -25,6 +41,65 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
                                                    @Param("accountId") Long accountId);
 
 
+    /**
+     * Lock the given accounts with SELECT ... FOR UPDATE.
+     * Rows are returned (and therefore locked) in account_id order, so two transfers
+     * touching the same pair of accounts always queue instead of deadlocking.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountNumber IN :accountNumbers ORDER BY a.accountId")
+    List<Account> findAllByAccountNumberInForUpdate(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    /**
+     * Same as {@link #findAllByAccountNumberInForUpdate} but by account id.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountId IN :accountIds ORDER BY a.accountId")
+    List<Account> findAllByAccountIdInForUpdate(@Param("accountIds") Collection<Long> accountIds);
+
+    @Query("SELECT a.accountId AS accountId, a.accountNumber AS accountNumber, a.customerId AS customerId " +
+            "FROM Account a WHERE a.accountNumber IN :accountNumbers")
+    List<AccountKey> findKeysByAccountNumberIn(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    /**
+     * Debit an active account in one statement, only if it can cover the amount.
+     * @return 1 if the debit was applied, 0 if funds were insufficient or the account is not active
+     */
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance - :amount, a.version = a.version + 1, " +
+            "a.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE a.accountId = :accountId AND a.balance >= :amount AND a.status = 'ACTIVE'")
+    int debitIfSufficient(@Param("accountId") Long accountId, @Param("amount") Money amount);
+
+    /**
+     * Credit an active account in one statement.
+     * @return 1 if the credit was applied, 0 if the account is not active
+     */
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount, a.version = a.version + 1, " +
+            "a.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE a.accountId = :accountId AND a.status = 'ACTIVE'")
+    int creditIfActive(@Param("accountId") Long accountId, @Param("amount") Money amount);
+
+    /**
+     * Current balance without hydrating the account, e.g. after {@link #debitIfSufficient} in the same transaction.
+     */
+    @Query("SELECT a.balance FROM Account a WHERE a.accountId = :accountId")
+    Money findBalanceByAccountId(@Param("accountId") Long accountId);
+
+    /**
+     * Apply a net balance change written behind by the ledger; the ledger has already validated it.
+     */
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance + :delta, a.version = a.version + 1, " +
+            "a.updatedAt = CURRENT_TIMESTAMP WHERE a.accountId = :accountId")
+    int applyBalanceDelta(@Param("accountId") Long accountId, @Param("delta") Money delta);
+
+    /**
+     * Next chunk of account ids after the given one, in id order, for jobs that walk every account.
+     */
+    @Query("SELECT a.accountId FROM Account a WHERE a.accountId > :afterId ORDER BY a.accountId")
+    List<Long> findAccountIdsAfter(@Param("afterId") Long afterId, Pageable limit);
 
     boolean existsByAccountNumber(String accountNumber);
     boolean existsByAccountId(Long accountId);
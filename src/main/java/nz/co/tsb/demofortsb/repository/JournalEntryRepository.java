@@ -0,0 +1,9 @@
+package nz.co.tsb.demofortsb.repository;
+
+import nz.co.tsb.demofortsb.entity.JournalEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JournalEntryRepository extends JpaRepository<JournalEntry, Long> {
+}
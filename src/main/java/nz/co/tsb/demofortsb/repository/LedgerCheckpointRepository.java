@@ -0,0 +1,9 @@
+package nz.co.tsb.demofortsb.repository;
+
+import nz.co.tsb.demofortsb.entity.LedgerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LedgerCheckpointRepository extends JpaRepository<LedgerCheckpoint, Integer> {
+}
@@ -1,16 +1,30 @@
 package nz.co.tsb.demofortsb.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
 import nz.co.tsb.demofortsb.entity.Transaction;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+/**
+ * Postings. On PostgreSQL the table is partitioned by month of transaction_date (changeset 16): a query that bounds
+ * transaction_date with plain comparisons against parameters reads only the months in range, whereas wrapping the
+ * column in a function or cast reads them all. Lookups by id alone probe the primary key of every month.
+ */
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
@@ -18,11 +32,117 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
 
     Page<Transaction> findByAccountId(Long accountId, Pageable pageable);
 
-    @Query("SELECT t FROM Transaction t WHERE t.fromAccountId = :accountId OR t.toAccountId = :accountId ORDER BY t.transactionDate DESC")
+    /**
+     * Every posting against the account, newest first. Each transfer leg is its own row keyed by the account it
+     * affects, so this is a single index range on account_id rather than an OR over from/to account ids.
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.accountId = :accountId ORDER BY t.transactionDate DESC, t.transactionId DESC")
     List<Transaction> findAllTransactionsForAccount(@Param("accountId") Long accountId);
 
+    /**
+     * {@link #findAllTransactionsForAccount} as response DTOs, selecting only the DTO columns; the rows are never
+     * managed, so a long history costs no persistence context entries or dirty checks. Same access path.
+     */
+    @Query("SELECT new nz.co.tsb.demofortsb.dto.response.TransactionResponse(t.transactionId, t.accountId, " +
+            "t.transactionType, t.amount, t.transactionDate, t.fromAccountId, t.toAccountId, t.transactionStatus, " +
+            "t.currencyCode, t.balanceAfter, t.failureReason) FROM Transaction t WHERE t.accountId = :accountId " +
+            "ORDER BY t.transactionDate DESC, t.transactionId DESC")
+    List<TransactionResponse> findResponsesForAccount(@Param("accountId") Long accountId);
+
+    /**
+     * Keyset page of an account's history, newest first: postings in [from, to) strictly older than the
+     * (beforeDate, beforeId) position. All bounds are non-null so each page is one bounded range scan of
+     * idx_transaction_account_date_id; the first page passes {@code to} and Long.MAX_VALUE as the position.
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.accountId = :accountId " +
+            "AND t.transactionDate >= :from AND t.transactionDate < :to AND t.transactionDate <= :beforeDate " +
+            "AND (t.transactionDate < :beforeDate OR t.transactionId < :beforeId) " +
+            "ORDER BY t.transactionDate DESC, t.transactionId DESC")
+    List<Transaction> findHistoryPage(@Param("accountId") Long accountId,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      @Param("beforeDate") LocalDateTime beforeDate,
+                                      @Param("beforeId") Long beforeId,
+                                      Pageable pageable);
+
+    /**
+     * {@link #findHistoryPage} restricted to one transaction type
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.accountId = :accountId AND t.transactionType = :type " +
+            "AND t.transactionDate >= :from AND t.transactionDate < :to AND t.transactionDate <= :beforeDate " +
+            "AND (t.transactionDate < :beforeDate OR t.transactionId < :beforeId) " +
+            "ORDER BY t.transactionDate DESC, t.transactionId DESC")
+    List<Transaction> findHistoryPageByType(@Param("accountId") Long accountId,
+                                            @Param("type") Transaction.TransactionType type,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            @Param("beforeDate") LocalDateTime beforeDate,
+                                            @Param("beforeId") Long beforeId,
+                                            Pageable pageable);
+
+    /**
+     * An account's postings in [from, to), oldest first, as a forward-only stream for statement export.
+     * Must be consumed inside a transaction; on PostgreSQL the fetch size turns it into a server-side cursor
+     * instead of buffering the whole result in the driver.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.accountId = :accountId " +
+            "AND t.transactionDate >= :from AND t.transactionDate < :to " +
+            "ORDER BY t.transactionDate, t.transactionId")
+    Stream<Transaction> streamStatement(@Param("accountId") Long accountId,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+
+    /**
+     * Postings in [startDate, endDate], both inclusive; only the months between the two are scanned.
+     */
     @Query("SELECT t FROM Transaction t WHERE t.accountId = :accountId AND t.transactionDate BETWEEN :startDate AND :endDate")
     List<Transaction> findByAccountIdAndDateRange(@Param("accountId") Long accountId,
                                                   @Param("startDate") LocalDateTime startDate,
                                                   @Param("endDate") LocalDateTime endDate);
-}
\ No newline at end of file
+
+    /**
+     * Lock the still-PENDING transfers among the given ids, in id order, so a transfer is settled at most once.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.transactionId IN :ids AND t.transactionStatus = 'PENDING' " +
+            "ORDER BY t.transactionId")
+    List<Transaction> findPendingByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Journal entries whose postings do not sum to zero; a correct ledger returns none.
+     */
+    @Query("SELECT t.journalEntryId FROM Transaction t WHERE t.journalEntryId IS NOT NULL GROUP BY t.journalEntryId " +
+            "HAVING SUM(CASE WHEN t.transactionType IN ('TRANSFER_OUT', 'WITHDRAWAL') THEN -t.amount ELSE t.amount END) <> 0")
+    List<Long> findUnbalancedJournalEntryIds();
+
+    @Query("SELECT t.transactionId FROM Transaction t WHERE t.transactionStatus = 'PENDING' " +
+            "AND t.createdAt < :before ORDER BY t.transactionId")
+    List<Long> findPendingIdsCreatedBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * Fill in balance_after on the given accounts' completed postings that predate the column: each is the
+     * account's current balance less every completed posting ordered after it (transaction_date, then id).
+     * Rows that already have a value are left alone. Callers must hold the account locks, so the balance and
+     * the postings cannot move in between. MERGE is native SQL on both PostgreSQL and H2, which has no
+     * UPDATE ... FROM; PostgreSQL only has it from 15, which TransactionBalanceBackfillJob checks at startup.
+     *
+     * @return number of rows filled in
+     */
+    @Modifying
+    @Query(value = "MERGE INTO transaction t USING (" +
+            "SELECT p.transaction_id, p.transaction_date, a.balance - SUM(p.signed_amount) OVER (" +
+            "PARTITION BY p.account_id ORDER BY p.transaction_date DESC, p.transaction_id DESC " +
+            "ROWS UNBOUNDED PRECEDING) + p.signed_amount AS balance_after " +
+            "FROM (SELECT transaction_id, transaction_date, account_id, " +
+            "CASE WHEN transaction_type IN ('TRANSFER_OUT', 'WITHDRAWAL') THEN -amount ELSE amount END AS signed_amount " +
+            "FROM transaction WHERE account_id IN (:accountIds) AND transaction_status = 'COMPLETED') p " +
+            "JOIN account a ON a.account_id = p.account_id) r " +
+            "ON t.transaction_id = r.transaction_id AND t.transaction_date = r.transaction_date " +
+            "WHEN MATCHED AND t.balance_after IS NULL THEN UPDATE SET balance_after = r.balance_after",
+            nativeQuery = true)
+    int backfillBalanceAfter(@Param("accountIds") Collection<Long> accountIds);
+}
@@ -39,11 +39,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             String token = authHeader.substring(7);
 
             try {
-                if (jwtUtil.validateToken(token)) {
+                // One parse and signature check per token, not one per claim
+                VerifiedToken verified = jwtUtil.verify(token);
+                if (verified != null) {
                     // Check if it's not a password reset token
-                    if (!jwtUtil.isPasswordResetToken(token)) {
-                        String email = jwtUtil.extractEmail(token);
-                        String role = jwtUtil.extractRole(token);
+                    if (!verified.isPasswordResetToken()) {
+                        String email = verified.email();
+                        String role = verified.role();
 
                         if (role != null) {
                             UsernamePasswordAuthenticationToken authToken =
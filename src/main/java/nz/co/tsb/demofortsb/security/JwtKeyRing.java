@@ -0,0 +1,148 @@
+package nz.co.tsb.demofortsb.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ES256 (P-256) keys JWTs are signed and verified with, each identified by a {@code kid}.
+ * <p>
+ * {@code JWT_SIGNING_KEYS} lists the keys as comma-separated {@code kid:private:public} entries, with the private key
+ * as Base64 PKCS#8 and the public key as Base64 X.509; an entry with no private key ({@code kid::public}) can only be
+ * used to verify. Tokens are signed with {@code JWT_ACTIVE_KID} and verified with whichever key their {@code kid}
+ * header names, so a key can be rotated without logging anyone out:
+ * <ol>
+ *     <li>add the new key; it is published in the JWKS and verifiers pick it up,</li>
+ *     <li>make it the active key once every verifier has it,</li>
+ *     <li>remove the old key one token lifetime later, when the last token signed with it has expired.</li>
+ * </ol>
+ * The default is a development key that is also configured in Kong; replace it in any shared environment.
+ * </p>
+ */
+@Component
+public class JwtKeyRing {
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private static final int P256_COORDINATE_BYTES = 32;
+
+    private final String activeKid;
+    private final PrivateKey signingKey;
+    // Read on every token whose signature is checked; never changes after startup
+    private final Map<String, PublicKey> verificationKeys;
+    private final String jwks;
+
+    public JwtKeyRing(@Value("${JWT_SIGNING_KEYS:demofortsb-dev-1:MIGHAgEAMBMGByqGSM49AgEGCCqGSM49AwEHBG0wawIBAQQgHNDVBhKB6/yd6t/b0vMO6qQRWMYFO46yofJC+M/EeAChRANCAATl/ctHpK8GS7dCIpEzPJIoQL5Gh1rsxzth7HpuMSHpzdaF+vkJgD5VL3qJ+aZ4D+2s6gWMho+QPBFbV3WBi5cu:MFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAE5f3LR6SvBku3QiKRMzySKEC+Roda7Mc7Yex6bjEh6c3Whfr5CYA+VS96ifmmeA/trOoFjIaPkDwRW1d1gYuXLg==}") String keys,
+                      @Value("${JWT_ACTIVE_KID:demofortsb-dev-1}") String activeKid,
+                      ObjectMapper objectMapper) {
+        Map<String, PrivateKey> privateKeys = new LinkedHashMap<>();
+        Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+        for (String entry : keys.split(",")) {
+            String[] parts = entry.trim().split(":", -1);
+            if (parts.length != 3 || parts[0].isBlank() || parts[2].isBlank()) {
+                throw new IllegalStateException("JWT_SIGNING_KEYS entries must be kid:private:public, got one with "
+                        + parts.length + " parts");
+            }
+            publicKeys.put(parts[0], decodePublicKey(parts[0], parts[2]));
+            if (!parts[1].isBlank()) {
+                privateKeys.put(parts[0], decodePrivateKey(parts[0], parts[1]));
+            }
+        }
+        if (!privateKeys.containsKey(activeKid)) {
+            throw new IllegalStateException("JWT_ACTIVE_KID " + activeKid + " has no private key in JWT_SIGNING_KEYS");
+        }
+        this.activeKid = activeKid;
+        this.signingKey = privateKeys.get(activeKid);
+        this.verificationKeys = Map.copyOf(publicKeys);
+        this.jwks = renderJwks(publicKeys, objectMapper);
+        logger.info("JWT key ring loaded, signing with kid {}, verifying kids {}", activeKid, publicKeys.keySet());
+    }
+
+    public String activeKid() {
+        return activeKid;
+    }
+
+    public PrivateKey signingKey() {
+        return signingKey;
+    }
+
+    /**
+     * @return the public key for this kid, or null if it is not in the ring
+     */
+    public PublicKey verificationKey(String kid) {
+        return kid != null ? verificationKeys.get(kid) : null;
+    }
+
+    /**
+     * @return the public keys as a JWK Set (RFC 7517), rendered once at startup
+     */
+    public String jwks() {
+        return jwks;
+    }
+
+    private static PublicKey decodePublicKey(String kid, String base64) {
+        try {
+            PublicKey key = KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+            if (((ECPublicKey) key).getParams().getCurve().getField().getFieldSize() != 256) {
+                throw new IllegalStateException("JWT key " + kid + " is not a P-256 key");
+            }
+            return key;
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("JWT public key " + kid + " is not a Base64 X.509 EC key", e);
+        }
+    }
+
+    private static PrivateKey decodePrivateKey(String kid, String base64) {
+        try {
+            return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("JWT private key " + kid + " is not a Base64 PKCS#8 EC key", e);
+        }
+    }
+
+    private static String renderJwks(Map<String, PublicKey> publicKeys, ObjectMapper objectMapper) {
+        List<Map<String, String>> jwkList = new ArrayList<>();
+        publicKeys.forEach((kid, key) -> {
+            ECPublicKey ecKey = (ECPublicKey) key;
+            Map<String, String> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("kid", kid);
+            jwk.put("use", "sig");
+            jwk.put("alg", "ES256");
+            jwk.put("x", coordinate(ecKey.getW().getAffineX()));
+            jwk.put("y", coordinate(ecKey.getW().getAffineY()));
+            jwkList.add(jwk);
+        });
+        try {
+            return objectMapper.writeValueAsString(Map.of("keys", jwkList));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("JWKS could not be rendered", e);
+        }
+    }
+
+    // Unsigned, left-padded to the curve size, base64url without padding (RFC 7518 section 6.2.1)
+    private static String coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] fixed = new byte[P256_COORDINATE_BYTES];
+        int length = Math.min(bytes.length, P256_COORDINATE_BYTES);
+        System.arraycopy(bytes, bytes.length - length, fixed, P256_COORDINATE_BYTES - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+}
@@ -1,23 +1,31 @@
 package nz.co.tsb.demofortsb.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 /**
  * JWT Utility class for generating and validating JWT tokens.
  *<br>With force to invalidate tokens by adding them to a blacklist.</br>
+ *<br>Tokens are signed ES256 with the active key of the {@link JwtKeyRing} and name it in their {@code kid} header.</br>
  */
 @Component
 public class JwtUtil {
@@ -33,12 +41,36 @@ public class JwtUtil {
     @Value("${JWT_RESET_TOKEN_TTL_MINUTES:15}") // default 15 minutes
     private long RESET_TOKEN_TTL_MINUTES;
 
+    @Value("${app.jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+
+    // HS256 tokens from before signing keys had a kid, verified with SECRET; off once they have all expired
+    @Value("${app.jwt.legacy-hs256.enabled:true}")
+    private boolean legacyHs256Enabled;
+
     private static final long MINUTES_TO_MILLIS = 60 * 1000; // Conversion factor
 
-    private final RedisTemplate<String, String> redisTemplate;
+    // Claim holding the user's token epoch at issue, see TokenEpochStore
+    static final String EPOCH_CLAIM = "gen";
+
+    private final RevokedTokenNearCache revokedTokens;
+    private final TokenEpochStore tokenEpochs;
+    private final JwtKeyRing keyRing;
+    private final MetricService metricService;
+
+    // Built once in init(); the keys do not change while the application runs
+    private Key legacyKey;
+    private JwtParser parser;
 
-    public JwtUtil(RedisTemplate<String, String> redisTemplate) {
-        this.redisTemplate = redisTemplate;
+    // Tokens whose signature has already been checked, by SHA-256 of the token, each kept until its own exp
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtUtil(RevokedTokenNearCache revokedTokens, TokenEpochStore tokenEpochs, JwtKeyRing keyRing,
+                   MetricService metricService) {
+        this.revokedTokens = revokedTokens;
+        this.tokenEpochs = tokenEpochs;
+        this.keyRing = keyRing;
+        this.metricService = metricService;
     }
 
     public long getTokenTtlMinutes() {
@@ -53,15 +85,64 @@ public class JwtUtil {
         if (TOKEN_TTL_MINUTES <= 0 || TOKEN_TTL_MINUTES > 10080) { // Max 7 days
             throw new IllegalStateException("JWT_TTL_MINUTES must be between 1 and 10080 minutes.");
         }
+        legacyKey = legacyHs256Enabled ? buildLegacyKey() : null;
+        parser = Jwts.parserBuilder().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+            @Override
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                return verificationKey(header);
+            }
+        }).build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String tokenHash, VerifiedToken token, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String tokenHash, VerifiedToken token, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String tokenHash, VerifiedToken token, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        metricService.monitorCache("verified_token", verifiedTokens);
     }
 
-    private Key getSigningKey() {
+    private Key buildLegacyKey() {
         if (SECRET.getBytes().length < 32) {
             throw new IllegalArgumentException("JWT secret must be at least 256 bits long");
         }
         return Keys.hmacShaKeyFor(SECRET.getBytes());
     }
 
+    /**
+     * The key named by the token's kid header, looked up in memory. The parser then checks that the key
+     * suits the header's alg, so an HS256 token cannot be verified with a public key.
+     */
+    private Key verificationKey(JwsHeader<?> header) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            if (legacyKey != null && SignatureAlgorithm.HS256.getValue().equals(header.getAlgorithm())) {
+                return legacyKey;
+            }
+            throw new UnsupportedJwtException("JWT has no kid header");
+        }
+        Key key = keyRing.verificationKey(kid);
+        if (key == null) {
+            throw new UnsupportedJwtException("JWT signed with unknown kid " + kid);
+        }
+        return key;
+    }
+
     public String generateToken(String email, String role) {
         String jti = UUID.randomUUID().toString(); // Unique token ID
         long expirationMillis = TOKEN_TTL_MINUTES * MINUTES_TO_MILLIS;
@@ -70,10 +151,12 @@ public class JwtUtil {
                 .claim("role", role)
                 .claim("iss", "demofortsb-jwt-key")// for kong jwt plugin
                 .claim("jti", jti)
+                .claim(EPOCH_CLAIM, tokenEpochs.issue(email))
                 .setId(jti)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expirationMillis))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.activeKid())
+                .signWith(keyRing.signingKey(), SignatureAlgorithm.ES256)
                 .compact();
     }
 
@@ -89,27 +172,36 @@ public class JwtUtil {
                 .setSubject(email)
                 .claim("type", "PASSWORD_RESET")
                 .claim("id", id)
+                .claim(EPOCH_CLAIM, tokenEpochs.issue(email))
                 .setId(jti)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + resetTokenExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.activeKid())
+                .signWith(keyRing.signingKey(), SignatureAlgorithm.ES256)
                 .compact();
     }
 
     public void invalidateToken(String token) {
         try {
-            String jti = getClaims(token).getId();
-            redisTemplate.opsForValue().set("jwt:blacklist:" + jti, "true");
-            redisTemplate.expire("jwt:blacklist:" + jti, TOKEN_TTL_MINUTES, TimeUnit.MINUTES);
-            logger.info("Token invalidated with jti: {}", jti);
+            Claims claims = getClaims(token);
+            // Blacklisted only for as long as the token could still be presented
+            revokedTokens.revoke(claims.getId(),
+                    Duration.between(Instant.now(), claims.getExpiration().toInstant()));
+            logger.info("Token invalidated with jti: {}", claims.getId());
         } catch (Exception e) {
             logger.error("Failed to invalidate token: {}", e.getMessage());
         }
     }
 
-//    public void invalidateAllTokens() {
-//        redisTemplate.delete("jwt:blacklist");
-//    }
+    /**
+     * Invalidate every token issued to this user so far, on all instances, by moving their token epoch on.
+     * Tokens issued afterwards carry the new epoch and are not affected.
+     * @param email User's email
+     */
+    public void invalidateAllTokens(String email) {
+        long epoch = tokenEpochs.increment(email);
+        logger.info("All tokens invalidated for {}, token epoch now {}", email, epoch);
+    }
 
     public String extractEmail(String token) {
         return getClaims(token).getSubject();
@@ -174,32 +266,62 @@ public class JwtUtil {
     }
 
     public boolean validateToken(String token) {
+        return verify(token) != null;
+    }
+
+    /**
+     * Check a token once and return its claims: signature (skipped for a token already verified),
+     * expiry, blacklist and token epoch.
+     * @param token JWT token
+     * @return the verified claims, or null if the token is invalid, expired, blacklisted or from an earlier epoch
+     */
+    public VerifiedToken verify(String token) {
         try {
-            Claims claims = getClaims(token);
-            String jti = claims.getId();
+            String tokenHash = hash(token);
+            VerifiedToken verified = verifiedTokens.getIfPresent(tokenHash);
+            if (verified == null) {
+                Claims claims = getClaims(token);
+                Number epoch = claims.get(EPOCH_CLAIM, Number.class);
+                verified = new VerifiedToken(claims.getId(), claims.getSubject(), claims.get("role", String.class),
+                        claims.get("type", String.class), claims.getExpiration().toInstant(),
+                        epoch != null ? epoch.longValue() : 0);
+                verifiedTokens.put(tokenHash, verified);
+            }
 
-            // Check if token is blacklisted
-            String blacklistKey = "jwt:blacklist:" + jti;
-            Boolean isBlacklisted = redisTemplate.hasKey(blacklistKey);
+            // Check if token is expired; cache expiry is not exact
+            if (verified.isExpired()) {
+                logger.debug("Token is expired");
+                return null;
+            }
 
-            if (Boolean.TRUE.equals(isBlacklisted)) {
-                logger.debug("Token is blacklisted with jti: {}", jti);
-                return false;
+            // Check if token is blacklisted; answered from memory unless the local copy is stale
+            if (revokedTokens.isRevoked(verified.tokenId())) {
+                logger.debug("Token is blacklisted with jti: {}", verified.tokenId());
+                return null;
             }
 
-            // Check if token is expired
-            if (claims.getExpiration().before(new Date())) {
-                logger.debug("Token is expired");
-                return false;
+            // Check if all of the user's tokens were invalidated after this one was issued
+            if (verified.epoch() < tokenEpochs.current(verified.email())) {
+                logger.debug("Token is from an earlier token epoch with jti: {}", verified.tokenId());
+                return null;
             }
 
-            return true;
+            return verified;
         } catch (ExpiredJwtException e) {
             logger.debug("Token validation failed: expired");
-            return false;
+            return null;
         } catch (Exception e) {
             logger.debug("Token validation failed: {}", e.getMessage());
-            return false;
+            return null;
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
@@ -212,11 +334,7 @@ public class JwtUtil {
      */
     private Claims getClaims(String token) throws JwtException {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (JwtException | IllegalArgumentException e) {
             logger.error("Error parsing JWT token: {}", e.getMessage());
             throw e;
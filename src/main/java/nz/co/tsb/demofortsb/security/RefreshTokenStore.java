@@ -0,0 +1,159 @@
+package nz.co.tsb.demofortsb.security;
+
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Rotating refresh tokens, so a session can be renewed without checking the password again.
+ * <p>
+ * A refresh token is {@code <familyId>.<secret>}, both random. Logging in starts a family, a Redis hash at
+ * {@code jwt:refresh:<familyId>} holding the user, their role, their token epoch and the SHA-256 of the family's
+ * current token; the token itself is never stored. Each refresh swaps the current token for a new one. Presenting
+ * a token of the family that is no longer current means it was used twice, most likely by someone who copied it, so
+ * the whole family is deleted and both holders have to log in again.
+ * </p>
+ * A family lives {@code app.jwt.refresh.ttl-hours} from login, however often it is refreshed, so Redis holds at most
+ * one small hash per login in that window. Logging out everywhere ({@link TokenEpochStore}) also ends every family
+ * started before it.
+ */
+@Component
+public class RefreshTokenStore {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenStore.class);
+
+    static final String FAMILY_PREFIX = "jwt:refresh:";
+    private static final int FAMILY_ID_BYTES = 16;
+    private static final int SECRET_BYTES = 32;
+
+    // KEYS[1] family; ARGV current hash, email, role, epoch, ttl ms
+    private static final RedisScript<Long> START_FAMILY = new DefaultRedisScript<>("""
+            redis.call('HSET', KEYS[1], 'current', ARGV[1], 'email', ARGV[2], 'role', ARGV[3], 'epoch', ARGV[4])
+            redis.call('PEXPIRE', KEYS[1], ARGV[5])
+            return 1
+            """, Long.class);
+
+    // KEYS[1] family; ARGV presented hash, next hash. Compare-and-set, so two refreshes with one token cannot both win
+    private static final RedisScript<List> ROTATE = new DefaultRedisScript<>("""
+            local family = redis.call('HMGET', KEYS[1], 'current', 'email', 'role', 'epoch')
+            if not family[1] then
+                return {'missing'}
+            end
+            if family[1] ~= ARGV[1] then
+                redis.call('DEL', KEYS[1])
+                return {'reused', family[2]}
+            end
+            redis.call('HSET', KEYS[1], 'current', ARGV[2])
+            return {'rotated', family[2], family[3], family[4]}
+            """, List.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final TokenEpochStore tokenEpochs;
+    private final MetricService metricService;
+    private final Duration familyTtl;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenStore(RedisTemplate<String, String> redisTemplate,
+                             TokenEpochStore tokenEpochs,
+                             MetricService metricService,
+                             @Value("${app.jwt.refresh.ttl-hours:336}") long ttlHours) {
+        this.redisTemplate = redisTemplate;
+        this.tokenEpochs = tokenEpochs;
+        this.metricService = metricService;
+        this.familyTtl = Duration.ofHours(ttlHours);
+    }
+
+    /**
+     * A refreshed session: who it belongs to and the refresh token to use next time.
+     */
+    public record Rotation(String email, String role, String refreshToken) {}
+
+    public long getTtlSeconds() {
+        return familyTtl.toSeconds();
+    }
+
+    /**
+     * Start a family for a user who has just logged in.
+     *
+     * @return the family's first refresh token
+     * @throws DataAccessException if Redis cannot be reached
+     */
+    public String issue(String email, String role) {
+        String familyId = randomBase64(FAMILY_ID_BYTES);
+        String token = familyId + "." + randomBase64(SECRET_BYTES);
+        redisTemplate.execute(START_FAMILY, List.of(FAMILY_PREFIX + familyId), hash(token), email, role,
+                Long.toString(tokenEpochs.current(email)), Long.toString(familyTtl.toMillis()));
+        metricService.recordRefreshToken("issued");
+        return token;
+    }
+
+    /**
+     * Exchange a refresh token for the next one of its family.
+     *
+     * @return the rotation, or null if the token is unknown, expired, revoked or was already used
+     * @throws DataAccessException if Redis cannot be reached
+     */
+    public Rotation rotate(String refreshToken) {
+        int separator = refreshToken.indexOf('.');
+        if (separator <= 0) {
+            metricService.recordRefreshToken("invalid");
+            return null;
+        }
+        String familyId = refreshToken.substring(0, separator);
+        String next = familyId + "." + randomBase64(SECRET_BYTES);
+        List<?> result = redisTemplate.execute(ROTATE, List.of(FAMILY_PREFIX + familyId), hash(refreshToken), hash(next));
+
+        String outcome = result == null || result.isEmpty() ? "missing" : String.valueOf(result.get(0));
+        switch (outcome) {
+            case "rotated" -> {
+                String email = String.valueOf(result.get(1));
+                if (Long.parseLong(String.valueOf(result.get(3))) < tokenEpochs.current(email)) {
+                    // Started before the user logged out everywhere
+                    redisTemplate.delete(FAMILY_PREFIX + familyId);
+                    metricService.recordRefreshToken("revoked");
+                    return null;
+                }
+                metricService.recordRefreshToken("rotated");
+                return new Rotation(email, String.valueOf(result.get(2)), next);
+            }
+            case "reused" -> {
+                logger.warn("Refresh token reused for {}, family {} revoked", result.get(1), familyId);
+                metricService.recordRefreshToken("reused");
+                return null;
+            }
+            default -> {
+                metricService.recordRefreshToken("invalid");
+                return null;
+            }
+        }
+    }
+
+    private String randomBase64(int bytes) {
+        byte[] value = new byte[bytes];
+        random.nextBytes(value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value);
+    }
+
+    // Tokens are 256-bit random, so a fast hash is enough; no salt or work factor needed
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package nz.co.tsb.demofortsb.security;
+
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.service.CacheInvalidationBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the Redis JWT blacklist ({@code jwt:blacklist:<jti>}), so checking a token for revocation
+ * does not cost a Redis round trip on every request.
+ * <p>
+ * The copy is an exact set of revoked jti values, rebuilt from Redis with SCAN every
+ * {@code app.jwt.blacklist.resync-interval-ms}; keys that expired in Redis drop out at the next rebuild. In between,
+ * revocations on this instance are added directly and those on other instances arrive over the
+ * {@link CacheInvalidationBus}. The set is trusted only while the last rebuild is younger than
+ * {@code app.jwt.blacklist.max-staleness-ms}; before the first rebuild, or while Redis cannot be scanned, each check
+ * goes to Redis as before. A revocation message lost in transit is therefore honoured here at the next rebuild.
+ * </p>
+ */
+@Component
+public class RevokedTokenNearCache {
+    private static final Logger logger = LoggerFactory.getLogger(RevokedTokenNearCache.class);
+
+    static final String BLACKLIST_PREFIX = "jwt:blacklist:";
+    static final String CACHE_NAME = "jwt_blacklist";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final MetricService metricService;
+    private final long maxStalenessMs;
+
+    private volatile Set<String> revoked = ConcurrentHashMap.newKeySet();
+    // Set being rebuilt by resync(); revocations made meanwhile go into both. Guarded by this.
+    private Set<String> rebuilding;
+    private volatile long lastSyncMillis;
+
+    public RevokedTokenNearCache(RedisTemplate<String, String> redisTemplate,
+                                 CacheInvalidationBus invalidationBus,
+                                 MetricService metricService,
+                                 @Value("${app.jwt.blacklist.max-staleness-ms:90000}") long maxStalenessMs) {
+        this.redisTemplate = redisTemplate;
+        this.invalidationBus = invalidationBus;
+        this.metricService = metricService;
+        this.maxStalenessMs = maxStalenessMs;
+        invalidationBus.subscribe(CACHE_NAME, this::add);
+        metricService.registerRevokedTokens(this, cache -> cache.revoked.size());
+    }
+
+    /**
+     * @return true if the token with this jti has been revoked
+     * @throws DataAccessException if the copy is out of date and Redis cannot be reached
+     */
+    public boolean isRevoked(String jti) {
+        if (System.currentTimeMillis() - lastSyncMillis > maxStalenessMs) {
+            metricService.recordRevocationCheck("redis");
+            return Boolean.TRUE.equals(redisTemplate.hasKey(BLACKLIST_PREFIX + jti));
+        }
+        if (revoked.contains(jti)) {
+            metricService.recordRevocationCheck("near_cache_hit");
+            return true;
+        }
+        metricService.recordRevocationCheck("redis_avoided");
+        return false;
+    }
+
+    /**
+     * Blacklist a token in Redis for what is left of its lifetime, then here and on the other instances.
+     * The key is written with its expiry in one {@code SET EX}, so it can never be left without one; a token
+     * that has already expired is rejected anyway and is not written at all.
+     *
+     * @throws DataAccessException if Redis cannot be reached; the token is then not revoked anywhere
+     */
+    public void revoke(String jti, Duration remaining) {
+        if (remaining.isNegative() || remaining.isZero()) {
+            return;
+        }
+        // Rounded up to whole seconds so the key never expires before the token does
+        long seconds = (remaining.toMillis() + 999) / 1000;
+        redisTemplate.opsForValue().set(BLACKLIST_PREFIX + jti, "true", seconds, TimeUnit.SECONDS);
+        add(jti);
+        invalidationBus.publish(CACHE_NAME, jti);
+    }
+
+    /**
+     * Rebuild the set from the keys in Redis. Runs at startup and then periodically.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.blacklist.resync-interval-ms:30000}")
+    public void resync() {
+        Set<String> fresh = ConcurrentHashMap.newKeySet();
+        synchronized (this) {
+            rebuilding = fresh;
+        }
+        ScanOptions options = ScanOptions.scanOptions().match(BLACKLIST_PREFIX + "*").count(1000).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                fresh.add(keys.next().substring(BLACKLIST_PREFIX.length()));
+            }
+            synchronized (this) {
+                revoked = fresh;
+                rebuilding = null;
+            }
+            lastSyncMillis = System.currentTimeMillis();
+            metricService.recordRevocationResync(true);
+        } catch (DataAccessException e) {
+            synchronized (this) {
+                rebuilding = null;
+            }
+            logger.warn("JWT blacklist resync failed, checks go to Redis once the copy is stale: {}", e.getMessage());
+            metricService.recordRevocationResync(false);
+        }
+    }
+
+    private synchronized void add(String jti) {
+        revoked.add(jti);
+        if (rebuilding != null) {
+            rebuilding.add(jti);
+        }
+    }
+}
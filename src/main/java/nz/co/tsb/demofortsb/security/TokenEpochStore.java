@@ -0,0 +1,120 @@
+package nz.co.tsb.demofortsb.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.service.CacheInvalidationBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Per-user token generation ("epoch") behind "log out everywhere".
+ * <p>
+ * Every token carries the user's epoch at the time it was issued; a token whose epoch is below the current one is
+ * revoked, so revoking all of a user's tokens is one {@code INCR} of {@code jwt:epoch:<email>}, run in a script
+ * together with its {@code PEXPIRE}. The key only exists
+ * for users who have done that, and lives one access token or refresh token family lifetime, whichever is longer,
+ * past the last increment or issue, by which time everything it could apply to has expired; when it goes, the epoch
+ * is back to 0 and so are new tokens.
+ * </p>
+ * Epochs are cached in memory for {@code app.jwt.epoch.cache-ttl-ms}. Values only ever go up, so a cached value is
+ * merged with {@code max}, and increments reach other instances over the {@link CacheInvalidationBus}.
+ */
+@Component
+public class TokenEpochStore {
+    private static final Logger logger = LoggerFactory.getLogger(TokenEpochStore.class);
+
+    static final String EPOCH_PREFIX = "jwt:epoch:";
+    static final String CACHE_NAME = "jwt_epoch";
+
+    // KEYS[1] epoch; ARGV ttl ms. One round trip, so the key can never be left incremented without a TTL
+    private static final RedisScript<Long> INCREMENT = new DefaultRedisScript<>("""
+            local epoch = redis.call('INCR', KEYS[1])
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            return epoch
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final Duration keyTtl;
+    private final Cache<String, Long> epochs;
+
+    public TokenEpochStore(RedisTemplate<String, String> redisTemplate,
+                           CacheInvalidationBus invalidationBus,
+                           MetricService metricService,
+                           @Value("${JWT_TTL_MINUTES:60}") long tokenTtlMinutes,
+                           @Value("${app.jwt.refresh.ttl-hours:336}") long refreshTtlHours,
+                           @Value("${app.jwt.epoch.cache-ttl-ms:30000}") long cacheTtlMs,
+                           @Value("${app.jwt.epoch.max-users:100000}") long maxUsers) {
+        this.redisTemplate = redisTemplate;
+        this.invalidationBus = invalidationBus;
+        this.keyTtl = Duration.ofMinutes(Math.max(tokenTtlMinutes, Duration.ofHours(refreshTtlHours).toMinutes()));
+        this.epochs = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .recordStats()
+                .build();
+        metricService.monitorCache(CACHE_NAME, epochs);
+        invalidationBus.subscribe(CACHE_NAME, message -> {
+            int separator = message.lastIndexOf(':');
+            remember(message.substring(0, separator), Long.parseLong(message.substring(separator + 1)));
+        });
+    }
+
+    /**
+     * @return the user's current epoch
+     * @throws DataAccessException if it is not cached and Redis cannot be reached
+     */
+    public long current(String email) {
+        Long cached = epochs.getIfPresent(email);
+        if (cached != null) {
+            return cached;
+        }
+        return remember(email, parse(redisTemplate.opsForValue().get(EPOCH_PREFIX + email)));
+    }
+
+    /**
+     * The epoch to put in a token being issued now. Also keeps the user's epoch key alive for the token's lifetime,
+     * and for that of a refresh token family started with it.
+     */
+    public long issue(String email) {
+        try {
+            return remember(email, parse(redisTemplate.opsForValue().getAndExpire(EPOCH_PREFIX + email, keyTtl)));
+        } catch (DataAccessException e) {
+            // A token stamped too low is only rejected early; the user logs in again
+            logger.warn("Token epoch of {} not read, issuing with the cached one: {}", email, e.getMessage());
+            Long cached = epochs.getIfPresent(email);
+            return cached != null ? cached : 0;
+        }
+    }
+
+    /**
+     * Revoke every token issued to the user so far.
+     *
+     * @return the new epoch
+     * @throws DataAccessException if Redis cannot be reached; nothing is revoked then
+     */
+    public long increment(String email) {
+        Long next = redisTemplate.execute(INCREMENT, List.of(EPOCH_PREFIX + email), Long.toString(keyTtl.toMillis()));
+        long epoch = remember(email, next != null ? next : 0);
+        invalidationBus.publish(CACHE_NAME, email + ":" + epoch);
+        return epoch;
+    }
+
+    private long remember(String email, long epoch) {
+        return epochs.asMap().merge(email, epoch, Math::max);
+    }
+
+    private static long parse(String value) {
+        return value != null ? Long.parseLong(value) : 0;
+    }
+}
@@ -0,0 +1,24 @@
+package nz.co.tsb.demofortsb.security;
+
+import java.time.Instant;
+
+/**
+ * The claims of a token whose signature has been checked, read once so a request never parses its token twice.
+ *
+ * @param tokenId   jti
+ * @param email     subject
+ * @param role      role claim; null for password reset tokens
+ * @param type      type claim, e.g. PASSWORD_RESET; null for access tokens
+ * @param expiresAt exp
+ * @param epoch     the user's token epoch when it was issued; 0 for tokens issued without one
+ */
+public record VerifiedToken(String tokenId, String email, String role, String type, Instant expiresAt, long epoch) {
+
+    public boolean isPasswordResetToken() {
+        return "PASSWORD_RESET".equals(type);
+    }
+
+    public boolean isExpired() {
+        return !expiresAt.isAfter(Instant.now());
+    }
+}
@@ -0,0 +1,103 @@
+package nz.co.tsb.demofortsb.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import nz.co.tsb.demofortsb.dto.response.AccountResponse;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * A customer's account summaries, as returned by {@code GET /api/accounts/me}, keyed by customer id.
+ * <p>
+ * Summaries include balances, so every commit that moves money or opens an account evicts the customers
+ * involved, here and, through the {@link CacheInvalidationBus}, on the other instances. Entries also expire
+ * {@code ttl-seconds} after they were loaded, which bounds staleness from a lost invalidation message or a
+ * load served by a lagging read replica. Hits, misses and evictions are exported as Micrometer cache meters
+ * under {@code cache="account_list"}; evictions caused by writes are counted in {@code cache_invalidation_total}.
+ * </p>
+ */
+@Component
+public class AccountListCache {
+
+    static final String CACHE_NAME = "account_list";
+    private static final int STAMP_STRIPES = 1024;
+
+    private final Cache<Long, List<AccountResponse>> local;
+    // Bumped on every eviction of a customer; a load that raced one is not kept
+    private final AtomicLongArray evictionStamps = new AtomicLongArray(STAMP_STRIPES);
+    private final CacheInvalidationBus invalidationBus;
+    private final MetricService metricService;
+
+    public AccountListCache(CacheInvalidationBus invalidationBus,
+                            MetricService metricService,
+                            @Value("${app.cache.account-list.max-customers:10000}") long maxCustomers,
+                            @Value("${app.cache.account-list.ttl-seconds:60}") long ttlSeconds) {
+        this.invalidationBus = invalidationBus;
+        this.metricService = metricService;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maxCustomers)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        metricService.monitorCache(CACHE_NAME, local);
+        invalidationBus.subscribe(CACHE_NAME, customerId -> evictLocal(Long.valueOf(customerId)));
+    }
+
+    /**
+     * The customer's account summaries, loaded with {@code loader} on a miss. Nothing is cached if the loader throws.
+     */
+    public List<AccountResponse> get(Long customerId, Supplier<List<AccountResponse>> loader) {
+        List<AccountResponse> cached = local.getIfPresent(customerId);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = evictionStamps.get(stripe(customerId));
+        List<AccountResponse> loaded = List.copyOf(loader.get());
+        local.asMap().compute(customerId, (id, current) ->
+                current == null && evictionStamps.get(stripe(id)) == stamp ? loaded : current);
+        return loaded;
+    }
+
+    /**
+     * Evict these customers once the current transaction commits, or at once if there is none.
+     */
+    public void evictAfterCommit(Collection<Long> customerIds) {
+        Set<Long> evicted = Set.copyOf(customerIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evicted.forEach(this::evict);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evicted.forEach(AccountListCache.this::evict);
+            }
+        });
+    }
+
+    void evict(Long customerId) {
+        evictLocal(customerId);
+        invalidationBus.publish(CACHE_NAME, customerId.toString());
+    }
+
+    private void evictLocal(Long customerId) {
+        evictionStamps.incrementAndGet(stripe(customerId));
+        local.invalidate(customerId);
+        // cache_evictions only counts size and expiry evictions
+        metricService.recordCacheInvalidation(CACHE_NAME, "evicted");
+    }
+
+    private static int stripe(Long customerId) {
+        return Math.floorMod(Long.hashCode(customerId), STAMP_STRIPES);
+    }
+}
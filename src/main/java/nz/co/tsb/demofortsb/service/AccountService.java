@@ -1,27 +1,46 @@
 package nz.co.tsb.demofortsb.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import nz.co.tsb.demofortsb.dto.request.TransferRequest;
 import nz.co.tsb.demofortsb.dto.response.AccountResponse;
+import nz.co.tsb.demofortsb.dto.response.BatchTransferItemResult;
+import nz.co.tsb.demofortsb.dto.response.BatchTransferResponse;
+import nz.co.tsb.demofortsb.dto.response.TransactionPageResponse;
 import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
 import nz.co.tsb.demofortsb.entity.Account;
 import nz.co.tsb.demofortsb.entity.Customer;
+import nz.co.tsb.demofortsb.entity.IdempotencyRecord;
+import nz.co.tsb.demofortsb.entity.JournalEntry;
+import nz.co.tsb.demofortsb.entity.Money;
 import nz.co.tsb.demofortsb.entity.Transaction;
 import nz.co.tsb.demofortsb.entity.TransactionBuilder;
+import nz.co.tsb.demofortsb.exception.Account.LedgerRejectedException;
 import nz.co.tsb.demofortsb.exception.Customer.CustomerNotFoundException;
 import nz.co.tsb.demofortsb.exception.ResourceNotFoundException;
 import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.AccountKey;
 import nz.co.tsb.demofortsb.repository.AccountRepository;
 import nz.co.tsb.demofortsb.repository.TransactionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,6 +48,10 @@ import java.util.stream.Collectors;
 public class  AccountService {
     private static final Logger log = LoggerFactory.getLogger(AccountService.class);
 
+    // Open ends of the history date range, kept inside what every supported database can store
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     @Autowired
     private AccountRepository accountRepository;
 
@@ -38,26 +61,102 @@ public class  AccountService {
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TransferSettlementService transferSettlementService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private JournalService journalService;
+
+    @Autowired
+    private DailyBalanceService dailyBalanceService;
+
+    @Autowired
+    private RecentActivityCache recentActivityCache;
+
+    @Autowired
+    private AccountListCache accountListCache;
+
+    // Only present when app.transfer.posting-mode=ledger
+    @Autowired(required = false)
+    private LedgerEngine ledgerEngine;
+
+    @Value("${app.transfer.posting-mode:entity}")
+    private PostingMode postingMode;
+
+    @Value("${app.transfer.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${app.transfer.group-commit.window-us:2000}")
+    private long groupCommitWindowMicros;
+
+    @Value("${app.transfer.group-commit.max-items:100}")
+    private int groupCommitMaxItems;
+
+    @Value("${app.transfer.group-commit.queue-capacity:10000}")
+    private int groupCommitQueueCapacity;
+
+    @Value("${app.transfer.group-commit.committers:2}")
+    private int groupCommitCommitters;
+
+    @Value("${app.transactions.page.default-size:50}")
+    private int defaultHistoryPageSize;
+
+    @Value("${app.transactions.page.max-size:200}")
+    private int maxHistoryPageSize;
+
+    @Autowired
+    private MetricService metricService;
+
+    private GroupCommitCoordinator groupCommit;
+
+    @PostConstruct
+    void startGroupCommit() {
+        if (postingMode == PostingMode.GROUP) {
+            groupCommit = new GroupCommitCoordinator(
+                    items -> transferEngine.execute("transfer-group", () -> postMany(items)), metricService,
+                    groupCommitWindowMicros, groupCommitMaxItems, groupCommitQueueCapacity, groupCommitCommitters);
+            log.info("Group commit enabled: window {} us, up to {} transfers per commit",
+                    groupCommitWindowMicros, groupCommitMaxItems);
+        }
+    }
+
+    @PreDestroy
+    void stopGroupCommit() throws InterruptedException {
+        if (groupCommit != null) {
+            groupCommit.stop();
+        }
+    }
+
     /**
-     * Get all accounts for a customer
+     * Get all accounts for a customer, selected straight into response DTOs and cached until the customer's
+     * next transfer or new account
      */
+    @Transactional(readOnly = true)
     public List<AccountResponse> getAccountsByCustomerId(Long customerId) {
         log.info("Fetching accounts for customer ID: {}", customerId);
 
-        // Verify customer exists
-        if (!customerService.isCustomerExisted(customerId)) {
-            throw new CustomerNotFoundException(customerId.toString());
-        }
-
-        List<Account> accounts = accountRepository.findByCustomerId(customerId);
-        return accounts.stream()
-                .map(AccountResponse::new)
-                .collect(Collectors.toList());
+        return accountListCache.get(customerId, () -> {
+            // Verify customer exists
+            if (!customerService.isCustomerExisted(customerId)) {
+                throw new CustomerNotFoundException(customerId.toString());
+            }
+            return accountRepository.findResponsesByCustomerId(customerId);
+        });
     }
 
     /**
      * Get all accounts for a customer by national ID
      */
+    @Transactional(readOnly = true)
     public List<AccountResponse> getAccountsByNationalId(String nationalId) {
         log.info("Fetching accounts for customer with national ID: {}", nationalId);
 
@@ -66,8 +165,9 @@ public class  AccountService {
     }
 
     /**
-     * Get all transactions for an account
+     * Get all transactions for an account, selected straight into response DTOs
      */
+    @Transactional(readOnly = true)
     public List<TransactionResponse> getTransactionsByAccountId(Long accountId) {
         log.info("Fetching transactions for account ID: {}", accountId);
 
@@ -76,33 +176,144 @@ public class  AccountService {
             throw new ResourceNotFoundException("Account", accountId.toString());
         }
 
-        List<Transaction> transactions = transactionRepository.findAllTransactionsForAccount(accountId);
-        return transactions.stream()
-                .map(TransactionResponse::new)
-                .collect(Collectors.toList());
+        return transactionRepository.findResponsesForAccount(accountId);
     }
 
     /**
      * Get all transactions for an account by account number
      */
+    @Transactional(readOnly = true)
     public List<TransactionResponse> getTransactionsByAccountNumber(String accountNumber) {
         log.info("Fetching transactions for account number: {}", accountNumber);
 
-        // Verify account exists
-        if (!accountRepository.existsByAccountNumber(accountNumber)) {
-            throw new ResourceNotFoundException("Account", accountNumber);
-        } else {
-            Optional<Account> account = accountRepository.findByAccountNumber(accountNumber);
-            return getTransactionsByAccountId(account.get().getAccountId());
+        // Resolve the id through the key projection rather than loading the account entity
+        AccountKey account = accountRepository.findKeysByAccountNumberIn(List.of(accountNumber)).stream()
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Account", accountNumber));
+        return transactionRepository.findResponsesForAccount(account.getAccountId());
+    }
+
+    /**
+     * One page of an account's transactions, newest first, using keyset pagination.
+     *
+     * @param cursor   token from the previous page's nextCursor, or null for the first page
+     * @param pageSize requested page size, capped at app.transactions.page.max-size; null for the default
+     * @param fromDate first day to include, or null
+     * @param toDate   last day to include, or null
+     * @param type     only this transaction type, or null for all
+     */
+    @Transactional(readOnly = true)
+    public TransactionPageResponse getTransactionPage(Long accountId, String cursor, Integer pageSize,
+                                                      LocalDate fromDate, LocalDate toDate,
+                                                      Transaction.TransactionType type) {
+        int size = pageSize == null ? defaultHistoryPageSize : pageSize;
+        if (size < 1) {
+            throw new ValidationException("Page size must be at least 1");
         }
+        size = Math.min(size, maxHistoryPageSize);
 
+        boolean firstPage = (cursor == null || cursor.isBlank()) && fromDate == null && toDate == null && type == null;
+        if (firstPage && recentActivityCache.serves(size)) {
+            return recentActivityPage(accountId, size);
+        }
+        if (!accountRepository.existsByAccountId(accountId)) {
+            throw new ResourceNotFoundException("Account", accountId.toString());
+        }
+
+        LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : HISTORY_START;
+        LocalDateTime to = toDate != null ? toDate.plusDays(1).atStartOfDay() : HISTORY_END;
+        LocalDateTime beforeDate = to;
+        Long beforeId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            TransactionCursor position = TransactionCursor.decode(cursor, accountId);
+            beforeDate = position.transactionDate();
+            beforeId = position.transactionId();
+        }
+
+        // Fetch one extra row to learn whether there is a next page without a COUNT
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Transaction> rows = type == null
+                ? transactionRepository.findHistoryPage(accountId, from, to, beforeDate, beforeId, limit)
+                : transactionRepository.findHistoryPageByType(accountId, type, from, to, beforeDate, beforeId, limit);
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Transaction last = rows.get(size - 1);
+            nextCursor = new TransactionCursor(accountId, last.getTransactionDate(), last.getTransactionId()).encode();
+        }
+        return new TransactionPageResponse(rows.stream().map(TransactionResponse::new).toList(), nextCursor);
     }
 
     /**
-     * Transfer money between two accounts belonging to the same customer
+     * Unfiltered first page from the recent-activity cache, which holds one row more than the largest page it serves.
      */
-    @Transactional
+    private TransactionPageResponse recentActivityPage(Long accountId, int size) {
+        List<TransactionResponse> recent = recentActivityCache.recent(accountId, limit -> {
+            if (!accountRepository.existsByAccountId(accountId)) {
+                throw new ResourceNotFoundException("Account", accountId.toString());
+            }
+            return transactionRepository.findHistoryPage(accountId, HISTORY_START, HISTORY_END, HISTORY_END,
+                    Long.MAX_VALUE, PageRequest.of(0, limit)).stream().map(TransactionResponse::new).toList();
+        });
+        if (recent.size() <= size) {
+            return new TransactionPageResponse(recent, null);
+        }
+        List<TransactionResponse> rows = recent.subList(0, size);
+        TransactionResponse last = rows.get(size - 1);
+        return new TransactionPageResponse(rows,
+                new TransactionCursor(accountId, last.getTransactionDate(), last.getTransactionId()).encode());
+    }
+
+    /**
+     * {@link #getTransactionPage} by account number
+     */
+    @Transactional(readOnly = true)
+    public TransactionPageResponse getTransactionPageByAccountNumber(String accountNumber, String cursor,
+                                                                     Integer pageSize, LocalDate fromDate,
+                                                                     LocalDate toDate,
+                                                                     Transaction.TransactionType type) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new ResourceNotFoundException("Account", accountNumber));
+        return getTransactionPage(account.getAccountId(), cursor, pageSize, fromDate, toDate, type);
+    }
+
+    /**
+     * Reject a customer reading an account they do not own. It answers as not found, so other customers'
+     * account IDs cannot be probed.
+     */
+    @Transactional(readOnly = true)
+    public void checkAccountOwner(Long customerId, Long accountId) {
+        if (accountRepository.findByCustomerIdAndAccountId(customerId, accountId).isEmpty()) {
+            throw new ResourceNotFoundException("Account", accountId.toString());
+        }
+    }
+
+    /**
+     * {@link #checkAccountOwner} by account number
+     */
+    @Transactional(readOnly = true)
+    public void checkAccountNumberOwner(Long customerId, String accountNumber) {
+        if (accountRepository.findByCustomerIdAndAccountNumber(customerId, accountNumber).isEmpty()) {
+            throw new ResourceNotFoundException("Account", accountNumber);
+        }
+    }
+
+    /**
+     * Transfer money between two accounts belonging to the same customer.
+     * Runs outside the class-level transaction so the engine can retry it in a fresh one.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TransactionResponse transferBetweenAccounts(Long customerId, TransferRequest request) {
+        return transferBetweenAccounts(customerId, request, null);
+    }
+
+    /**
+     * Transfer with an optional client-supplied idempotency key.
+     * A repeated key returns the stored response of the first transfer instead of moving money again.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TransactionResponse transferBetweenAccounts(Long customerId, TransferRequest request, String idempotencyKey) {
         log.debug("Processing transfer for customer ID: {} from {} to {} amount: {}",
                 customerId, request.getFromAccountNumber(), request.getToAccountNumber(), request.getAmount());
 
@@ -111,11 +322,141 @@ public class  AccountService {
             throw new ValidationException("Cannot transfer to the same account");
         }
 
+        if (idempotencyKey == null) {
+            if (postingMode == PostingMode.GROUP) {
+                return groupCommit.submit(customerId, request);
+            }
+            if (postingMode == PostingMode.LEDGER) {
+                // No database work until write-behind, so no connection is held while the shard forces its journal
+                return ledger().transfer(customerId, request);
+            }
+            return executeTransfer(customerId, request, null, null);
+        }
+        String fingerprint = IdempotencyService.fingerprint(request);
+        if (postingMode == PostingMode.LEDGER) {
+            return idempotencyService.execute(customerId, idempotencyKey, fingerprint,
+                    () -> executeLedgerTransfer(customerId, request, idempotencyKey, fingerprint));
+        }
+        return idempotencyService.execute(customerId, idempotencyKey, fingerprint,
+                () -> executeTransfer(customerId, request, idempotencyKey, fingerprint));
+    }
+
+    /**
+     * Accept a transfer for asynchronous settlement.
+     * <p>
+     * Accounts and ownership are checked now, so a request that can never succeed is rejected up front.
+     * Balance and account status are checked when a worker settles the transfer. The PENDING row is
+     * committed before it is queued, so a crash after this returns only delays settlement.
+     * </p>
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TransactionResponse submitTransfer(Long customerId, TransferRequest request) {
+        log.info("Accepting async transfer for customer ID: {} from {} to {} amount: {}",
+                customerId, request.getFromAccountNumber(), request.getToAccountNumber(), request.getAmount());
+
+        if (postingMode == PostingMode.LEDGER) {
+            throw new ValidationException("Asynchronous transfers are not available in ledger posting mode");
+        }
+        if (request.getFromAccountNumber().equals(request.getToAccountNumber())) {
+            throw new ValidationException("Cannot transfer to the same account");
+        }
+
+        Map<String, AccountKey> byNumber = accountRepository.findKeysByAccountNumberIn(
+                        List.of(request.getFromAccountNumber(), request.getToAccountNumber())).stream()
+                .collect(Collectors.toMap(AccountKey::getAccountNumber, Function.identity()));
+
+        AccountKey fromAccount = Optional.ofNullable(byNumber.get(request.getFromAccountNumber()))
+                .orElseThrow(() -> new ResourceNotFoundException("Source account", request.getFromAccountNumber()));
+
+        AccountKey toAccount = Optional.ofNullable(byNumber.get(request.getToAccountNumber()))
+                .orElseThrow(() -> new ResourceNotFoundException("Destination account", request.getToAccountNumber()));
+
+        if (!fromAccount.getCustomerId().equals(customerId) || !toAccount.getCustomerId().equals(customerId)) {
+            throw new ValidationException("Both accounts must belong to the same customer");
+        }
+
+        Transaction pending = buildTransferRow(Transaction.TransactionType.TRANSFER_OUT,
+                fromAccount.getAccountId(), toAccount.getAccountId(), request.getAmount());
+        pending.setTransactionStatus(Transaction.TransactionStatus.PENDING);
+        Transaction saved = transactionRepository.save(pending);
+        recentActivityCache.addAfterCommit(List.of(saved));
+
+        transferSettlementService.enqueue(saved.getTransactionId());
+        return new TransactionResponse(saved);
+    }
+
+    /**
+     * Status of a transfer accepted by {@link #submitTransfer}, visible only to the customer who owns it.
+     */
+    @Transactional(readOnly = true)
+    public TransactionResponse getTransferStatus(Long customerId, Long transactionId) {
+        return transactionRepository.findById(transactionId)
+                .filter(transaction -> accountRepository
+                        .findByCustomerIdAndAccountId(customerId, transaction.getAccountId()).isPresent())
+                .map(TransactionResponse::new)
+                .orElseThrow(() -> new ResourceNotFoundException("Transaction", transactionId.toString()));
+    }
+
+    /**
+     * Run the transfer through the engine; when keyed, the idempotency record commits with it.
+     */
+    private TransactionResponse executeTransfer(Long customerId, TransferRequest request,
+                                                String idempotencyKey, String fingerprint) {
+        String operationName = "transfer-" + postingMode.name().toLowerCase();
+        return transferEngine.execute(operationName, () -> {
+            accountListCache.evictAfterCommit(List.of(customerId));
+            IdempotencyRecord claim = idempotencyKey != null
+                    ? idempotencyService.claim(customerId, idempotencyKey, fingerprint)
+                    : null;
+
+            TransactionResponse response = switch (postingMode) {
+                case LEDGER -> throw new IllegalStateException("Ledger transfers do not run in a database transaction");
+                case CONDITIONAL -> postTransferConditionally(customerId, request);
+                // Keyed transfers need their own transaction for the idempotency record, so group mode posts them singly
+                case ENTITY, GROUP -> postTransfer(customerId, request);
+            };
+
+            if (claim != null) {
+                idempotencyService.complete(claim, response);
+            }
+            return response;
+        });
+    }
+
+    /**
+     * A keyed ledger transfer. The ledger acknowledges a posting before anything reaches the database, so the claim
+     * cannot share a transaction with it: it commits first, which makes any retry find the key instead of posting
+     * again, and the ledger's write-behind completes it. The key is only given back when the shard rejected the
+     * transfer before journaling it, whether on a business rule or because it was stopped or stalled; after any
+     * other failure the posting may be in the journal, so the claim stays until it expires.
+     */
+    private TransactionResponse executeLedgerTransfer(Long customerId, TransferRequest request,
+                                                      String idempotencyKey, String fingerprint) {
+        IdempotencyRecord claim = transferEngine.execute("transfer-ledger-claim",
+                () -> idempotencyService.claim(customerId, idempotencyKey, fingerprint));
+        try {
+            return ledger().transfer(customerId, request, claim.getRecordKey());
+        } catch (ValidationException | ResourceNotFoundException | LedgerRejectedException e) {
+            idempotencyService.release(claim);
+            throw e;
+        }
+    }
+
+    /**
+     * One attempt at a transfer, run inside the engine's transaction.
+     */
+    private TransactionResponse postTransfer(Long customerId, TransferRequest request) {
+        // Lock both accounts in account_id order so opposing transfers cannot deadlock
+        List<Account> locked = transferEngine.lock(() -> accountRepository.findAllByAccountNumberInForUpdate(
+                List.of(request.getFromAccountNumber(), request.getToAccountNumber())));
+        Map<String, Account> byNumber = locked.stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+
         // Get and validate accounts
-        Account fromAccount = accountRepository.findByAccountNumber(request.getFromAccountNumber())
+        Account fromAccount = Optional.ofNullable(byNumber.get(request.getFromAccountNumber()))
                 .orElseThrow(() -> new ResourceNotFoundException("Source account", request.getFromAccountNumber()));
 
-        Account toAccount = accountRepository.findByAccountNumber(request.getToAccountNumber())
+        Account toAccount = Optional.ofNullable(byNumber.get(request.getToAccountNumber()))
                 .orElseThrow(() -> new ResourceNotFoundException("Destination account", request.getToAccountNumber()));
 
         // Verify both accounts belong to the same customer
@@ -123,57 +464,307 @@ public class  AccountService {
             throw new ValidationException("Both accounts must belong to the same customer");
         }
 
+        if (!fromAccount.isAccountActive()) {
+            throw new ValidationException("Source account is not active");
+        }
+        if (!toAccount.isAccountActive()) {
+            throw new ValidationException("Destination account is not active");
+        }
+
         // Check sufficient balance
-        if (fromAccount.getBalance().compareTo(request.getAmount()) < 0) {
+        if (fromAccount.getBalance().isLessThan(request.getAmount())) {
             throw new ValidationException("Insufficient balance in source account");
         }
 
 
-        // Perform the transfer
-        fromAccount.setBalance(fromAccount.getBalance().subtract(request.getAmount()));
-        toAccount.setBalance(toAccount.getBalance().add(request.getAmount()));
+        // Perform the transfer; @Version turns any update that slipped past the lock into a retry
+        fromAccount.setBalance(fromAccount.getBalance().minus(request.getAmount()));
+        toAccount.setBalance(toAccount.getBalance().plus(request.getAmount()));
 
         // Save updated accounts
         accountRepository.save(fromAccount);
         accountRepository.save(toAccount);
 
-        // Create transaction records for debit
-        Transaction debitTransaction =  new TransactionBuilder()
-                .accountId(fromAccount.getAccountId())
-                .transactionType(Transaction.TransactionType.TRANSFER_OUT)
-                .amount(request.getAmount())
-                .fromAccountId(fromAccount.getAccountId())
-                .toAccountId(toAccount.getAccountId())
-                .status(Transaction.TransactionStatus.COMPLETED)
-                .currencyCode("NZD")
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .build();
-        transactionRepository.save(debitTransaction);
-
-        // Create transaction records for credit
-        Transaction creditTransaction =  new TransactionBuilder()
-                .accountId(toAccount.getAccountId())
-                .transactionType(Transaction.TransactionType.TRANSFER_IN)
-                .amount(request.getAmount())
-                .toAccountId(toAccount.getAccountId())
+        return recordTransfer(fromAccount.getAccountId(), toAccount.getAccountId(), request.getAmount(),
+                fromAccount.getBalance(), toAccount.getBalance());
+    }
+
+    /**
+     * One attempt at a transfer using conditional single-statement updates.
+     * <p>
+     * Account ids are resolved with an unlocked key lookup (ids, numbers and owners never change),
+     * then the debit and credit are each one UPDATE applied in account_id order, the same order
+     * the entity path locks in. Insufficient funds is detected from the debit's affected-row count,
+     * so row locks are only held from the first UPDATE to commit and no entity is hydrated.
+     * </p>
+     */
+    private TransactionResponse postTransferConditionally(Long customerId, TransferRequest request) {
+        Map<String, AccountKey> byNumber = accountRepository.findKeysByAccountNumberIn(
+                        List.of(request.getFromAccountNumber(), request.getToAccountNumber())).stream()
+                .collect(Collectors.toMap(AccountKey::getAccountNumber, Function.identity()));
+
+        AccountKey fromAccount = Optional.ofNullable(byNumber.get(request.getFromAccountNumber()))
+                .orElseThrow(() -> new ResourceNotFoundException("Source account", request.getFromAccountNumber()));
+
+        AccountKey toAccount = Optional.ofNullable(byNumber.get(request.getToAccountNumber()))
+                .orElseThrow(() -> new ResourceNotFoundException("Destination account", request.getToAccountNumber()));
+
+        if (!fromAccount.getCustomerId().equals(customerId) || !toAccount.getCustomerId().equals(customerId)) {
+            throw new ValidationException("Both accounts must belong to the same customer");
+        }
+
+        Money amount = request.getAmount();
+        transferEngine.lock(() -> {
+            if (fromAccount.getAccountId() < toAccount.getAccountId()) {
+                debitOrThrow(fromAccount, amount);
+                creditOrThrow(toAccount, amount);
+            } else {
+                creditOrThrow(toAccount, amount);
+                debitOrThrow(fromAccount, amount);
+            }
+            return null;
+        });
+
+        // Both rows stay locked until commit, so these are exactly the balances the two UPDATEs left
+        return recordTransfer(fromAccount.getAccountId(), toAccount.getAccountId(), amount,
+                accountRepository.findBalanceByAccountId(fromAccount.getAccountId()),
+                accountRepository.findBalanceByAccountId(toAccount.getAccountId()));
+    }
+
+    private void debitOrThrow(AccountKey account, Money amount) {
+        if (accountRepository.debitIfSufficient(account.getAccountId(), amount) == 1) {
+            return;
+        }
+        // Failure path only: read the row to tell the caller why the debit did not apply
+        boolean active = accountRepository.findById(account.getAccountId())
+                .map(Account::isAccountActive)
+                .orElse(false);
+        throw new ValidationException(active ? "Insufficient balance in source account" : "Source account is not active");
+    }
+
+    private void creditOrThrow(AccountKey account, Money amount) {
+        if (accountRepository.creditIfActive(account.getAccountId(), amount) != 1) {
+            throw new ValidationException("Destination account is not active");
+        }
+    }
+
+    /**
+     * Write the debit and credit postings of a completed transfer under one journal entry, and its outbox event.
+     *
+     * @param fromBalanceAfter source account balance after the debit, read under its lock
+     * @param toBalanceAfter   destination account balance after the credit, read under its lock
+     * @return the credit transaction, which is what the transfer endpoints return
+     */
+    private TransactionResponse recordTransfer(Long fromAccountId, Long toAccountId, Money amount,
+                                               Money fromBalanceAfter, Money toBalanceAfter) {
+        Transaction debit = buildTransferRow(Transaction.TransactionType.TRANSFER_OUT, fromAccountId, toAccountId, amount);
+        Transaction credit = buildTransferRow(Transaction.TransactionType.TRANSFER_IN, fromAccountId, toAccountId, amount);
+        debit.setBalanceAfter(fromBalanceAfter);
+        credit.setBalanceAfter(toBalanceAfter);
+        journalService.post(JournalEntry.EntryType.TRANSFER, debit, credit);
+
+        Transaction savedDebitTransaction = transactionRepository.save(debit);
+        Transaction savedCreditTransaction = transactionRepository.save(credit);
+        dailyBalanceService.apply(List.of(savedDebitTransaction, savedCreditTransaction));
+        outboxService.transferCompleted(savedDebitTransaction, savedCreditTransaction);
+        recentActivityCache.addAfterCommit(List.of(savedDebitTransaction, savedCreditTransaction));
+
+        log.info("Transfer completed successfully. Transaction ID: {}", savedCreditTransaction.getTransactionId());
+
+        return new TransactionResponse(savedCreditTransaction);
+    }
+
+    /**
+     * Build one leg of a transfer: TRANSFER_OUT belongs to the source account, TRANSFER_IN to the destination.
+     */
+    static Transaction buildTransferRow(Transaction.TransactionType type, Long fromAccountId, Long toAccountId,
+                                        Money amount) {
+        return new TransactionBuilder()
+                .accountId(type == Transaction.TransactionType.TRANSFER_OUT ? fromAccountId : toAccountId)
+                .transactionType(type)
+                .amount(amount)
+                .fromAccountId(fromAccountId)
+                .toAccountId(toAccountId)
                 .status(Transaction.TransactionStatus.COMPLETED)
                 .currencyCode("NZD")
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
+    }
 
-        Transaction savedCreditTransaction = transactionRepository.save(creditTransaction);
+    /**
+     * Apply a batch of transfers for one customer in a single transaction.
+     * <p>
+     * Every referenced account is locked once, in account_id order, and items are applied in
+     * request order against the locked balances. An item that cannot be applied (unknown or
+     * foreign account, inactive account, insufficient funds) is reported as FAILED without
+     * affecting the others. Transaction rows for the rest are written as JDBC batches.
+     * </p>
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchTransferResponse transferBatch(Long customerId, List<TransferRequest> transfers) {
+        log.info("Processing batch of {} transfers for customer ID: {}", transfers.size(), customerId);
 
-        log.info("Transfer completed successfully. Transaction ID: {}", savedCreditTransaction.getTransactionId());
+        if (transfers.size() > maxBatchSize) {
+            throw new ValidationException("A batch cannot contain more than " + maxBatchSize + " transfers");
+        }
 
-        return new TransactionResponse(savedCreditTransaction);
+        List<BatchTransferItemResult> results = postingMode == PostingMode.LEDGER
+                ? postBatchToLedger(customerId, transfers)
+                : transferEngine.execute("transfer-batch", () -> postBatch(customerId, transfers));
+
+        BatchTransferResponse response = BatchTransferResponse.of(results);
+        log.info("Batch completed for customer ID: {}: {} succeeded, {} failed",
+                customerId, response.succeeded(), response.failed());
+        return response;
+    }
+
+    private List<BatchTransferItemResult> postBatch(Long customerId, List<TransferRequest> transfers) {
+        List<PostingItem> items = transfers.stream()
+                .map(transfer -> new PostingItem(customerId, transfer))
+                .toList();
+        List<PostingOutcome> outcomes = postMany(items);
+
+        List<BatchTransferItemResult> results = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            PostingOutcome outcome = outcomes.get(i);
+            results.add(outcome.failure() != null
+                    ? BatchTransferItemResult.failed(i, transfers.get(i), outcome.failure().getMessage())
+                    : BatchTransferItemResult.completed(i, transfers.get(i), outcome.transaction()));
+        }
+        return results;
+    }
+
+    /**
+     * Apply many transfers, possibly for different customers, inside the caller's transaction.
+     * <p>
+     * Every referenced account is locked once, in account_id order, and items are applied in order
+     * against the locked balances. An item that cannot be applied gets its own failure without
+     * affecting the others. Transaction rows for the rest are written as JDBC batches.
+     * </p>
+     *
+     * @return one outcome per item, in item order
+     */
+    List<PostingOutcome> postMany(List<PostingItem> items) {
+        Set<String> accountNumbers = new HashSet<>();
+        for (PostingItem item : items) {
+            accountNumbers.add(item.request().getFromAccountNumber());
+            accountNumbers.add(item.request().getToAccountNumber());
+        }
+
+        // One locking query for the whole batch, rows locked in account_id order
+        Map<String, Account> byNumber = transferEngine.lock(
+                        () -> accountRepository.findAllByAccountNumberInForUpdate(accountNumbers)).stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+
+        List<Transaction> rows = new ArrayList<>(items.size() * 2);
+        Transaction[] debits = new Transaction[items.size()];
+        Transaction[] credits = new Transaction[items.size()];
+        RuntimeException[] failures = new RuntimeException[items.size()];
+
+        for (int i = 0; i < items.size(); i++) {
+            TransferRequest transfer = items.get(i).request();
+            Account fromAccount = byNumber.get(transfer.getFromAccountNumber());
+            Account toAccount = byNumber.get(transfer.getToAccountNumber());
+
+            failures[i] = checkBatchItem(items.get(i).customerId(), transfer, fromAccount, toAccount);
+            if (failures[i] != null) {
+                continue;
+            }
+
+            fromAccount.setBalance(fromAccount.getBalance().minus(transfer.getAmount()));
+            toAccount.setBalance(toAccount.getBalance().plus(transfer.getAmount()));
+
+            // Items are applied in order, so each posting records the balance as of its own item
+            debits[i] = buildTransferRow(Transaction.TransactionType.TRANSFER_OUT,
+                    fromAccount.getAccountId(), toAccount.getAccountId(), transfer.getAmount());
+            debits[i].setBalanceAfter(fromAccount.getBalance());
+            rows.add(debits[i]);
+            credits[i] = buildTransferRow(Transaction.TransactionType.TRANSFER_IN,
+                    fromAccount.getAccountId(), toAccount.getAccountId(), transfer.getAmount());
+            credits[i].setBalanceAfter(toAccount.getBalance());
+            rows.add(credits[i]);
+            journalService.post(JournalEntry.EntryType.TRANSFER, debits[i], credits[i]);
+        }
+
+        // Sequence ids are assigned on persist; the INSERTs themselves are batched at flush
+        transactionRepository.saveAll(rows);
+        dailyBalanceService.apply(rows);
+        recentActivityCache.addAfterCommit(rows);
+        accountListCache.evictAfterCommit(items.stream().map(PostingItem::customerId).toList());
+
+        List<PostingOutcome> outcomes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            if (failures[i] == null) {
+                outboxService.transferCompleted(debits[i], credits[i]);
+            }
+            outcomes.add(failures[i] != null
+                    ? new PostingOutcome(null, failures[i])
+                    : new PostingOutcome(new TransactionResponse(credits[i]), null));
+        }
+        return outcomes;
+    }
+
+    /**
+     * The ledger owns balances in ledger mode, so batch items are posted through it one by one.
+     */
+    private List<BatchTransferItemResult> postBatchToLedger(Long customerId, List<TransferRequest> transfers) {
+        List<BatchTransferItemResult> results = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest transfer = transfers.get(i);
+            if (transfer.getFromAccountNumber().equals(transfer.getToAccountNumber())) {
+                results.add(BatchTransferItemResult.failed(i, transfer, "Cannot transfer to the same account"));
+                continue;
+            }
+            try {
+                results.add(BatchTransferItemResult.completed(i, transfer, ledger().transfer(customerId, transfer)));
+            } catch (ValidationException | ResourceNotFoundException e) {
+                results.add(BatchTransferItemResult.failed(i, transfer, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private LedgerEngine ledger() {
+        if (ledgerEngine == null) {
+            throw new IllegalStateException("Ledger posting mode selected but no LedgerEngine is running");
+        }
+        return ledgerEngine;
+    }
+
+    /**
+     * @return why the item cannot be applied against the current locked balances, or null if it can
+     */
+    private RuntimeException checkBatchItem(Long customerId, TransferRequest transfer,
+                                            Account fromAccount, Account toAccount) {
+        if (transfer.getFromAccountNumber().equals(transfer.getToAccountNumber())) {
+            return new ValidationException("Cannot transfer to the same account");
+        }
+        if (fromAccount == null) {
+            return new ResourceNotFoundException("Source account", transfer.getFromAccountNumber());
+        }
+        if (toAccount == null) {
+            return new ResourceNotFoundException("Destination account", transfer.getToAccountNumber());
+        }
+        if (!fromAccount.getCustomerId().equals(customerId) || !toAccount.getCustomerId().equals(customerId)) {
+            return new ValidationException("Both accounts must belong to the same customer");
+        }
+        if (!fromAccount.isAccountActive()) {
+            return new ValidationException("Source account is not active");
+        }
+        if (!toAccount.isAccountActive()) {
+            return new ValidationException("Destination account is not active");
+        }
+        if (fromAccount.getBalance().isLessThan(transfer.getAmount())) {
+            return new ValidationException("Insufficient balance in source account");
+        }
+        return null;
     }
 
     /**
      * Transfer by national ID
      */
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TransactionResponse transferByNationalId(String nationalId, TransferRequest request) {
         log.info("Processing transfer for customer with national ID: {}", nationalId);
 
@@ -185,7 +776,7 @@ public class  AccountService {
      * Create an account for a customer (helper method for testing)
      */
     @Transactional
-    public AccountResponse createAccount(Long customerId, String accountNumber, BigDecimal initialBalance) {
+    public AccountResponse createAccount(Long customerId, String accountNumber, Money initialBalance) {
         log.info("Creating account for customer ID: {} with account number: {}", customerId, accountNumber);
 
         // Verify customer exists
@@ -197,9 +788,11 @@ public class  AccountService {
         }
 
         Account account = new Account(customerId);
-        account.setBalance(initialBalance != null ? initialBalance : BigDecimal.ZERO);
+        account.setBalance(initialBalance != null ? initialBalance : Money.ZERO);
 
         Account savedAccount = accountRepository.save(account);
+        dailyBalanceService.openAccount(savedAccount.getAccountId(), savedAccount.getBalance());
+        accountListCache.evictAfterCommit(List.of(customerId));
         log.info("Account created successfully with ID: {}", savedAccount.getAccountId());
 
         return new AccountResponse(savedAccount);
@@ -223,4 +816,24 @@ public class  AccountService {
 //        transaction.setCurrencyCode("NZD");
 //        return transaction;
 //    }
-}
\ No newline at end of file
+
+    /**
+     * One transfer in a multi-transfer transaction; under group commit the customers differ per item.
+     */
+    record PostingItem(Long customerId, TransferRequest request) {}
+
+    /**
+     * Result of one {@link PostingItem}: the credit transaction, or the exception the item was rejected with.
+     */
+    record PostingOutcome(TransactionResponse transaction, RuntimeException failure) {}
+
+    /**
+     * How a single transfer is posted, selected by {@code app.transfer.posting-mode}.
+     */
+    public enum PostingMode {
+        ENTITY,         // lock both rows, update through Hibernate dirty checking
+        CONDITIONAL,    // conditional UPDATE ... WHERE balance >= :amount, no entity reads
+        LEDGER,         // in-memory single-writer shards with a journal, written behind to the tables
+        GROUP           // concurrent transfers collected for a short window and committed together
+    }
+}
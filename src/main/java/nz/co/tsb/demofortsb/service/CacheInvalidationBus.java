@@ -0,0 +1,116 @@
+package nz.co.tsb.demofortsb.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Tells the other instances to drop an entry from one of their local caches.
+ * <p>
+ * Messages go over a single Redis pub/sub channel as {@code origin|cache|key}; an instance ignores its own.
+ * Pub/sub is fire-and-forget, so a message sent while Redis or a subscriber is down is lost: every cache
+ * using the bus must also bound how stale an entry can get on its own (a TTL or a periodic resync).
+ * With {@code app.cache.invalidation.enabled=false} (a single instance) publishing does nothing.
+ * </p>
+ */
+@Component
+public class CacheInvalidationBus {
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    static final String CHANNEL = "cache:invalidate";
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<String, Consumer<String>> handlers = new ConcurrentHashMap<>();
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectProvider<RedisConnectionFactory> connectionFactory;
+    private final MetricService metricService;
+    private final boolean enabled;
+
+    private RedisMessageListenerContainer container;
+
+    public CacheInvalidationBus(RedisTemplate<String, String> redisTemplate,
+                                ObjectProvider<RedisConnectionFactory> connectionFactory,
+                                MetricService metricService,
+                                @Value("${app.cache.invalidation.enabled:false}") boolean enabled) {
+        this.redisTemplate = redisTemplate;
+        this.connectionFactory = connectionFactory;
+        this.metricService = metricService;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory.getObject());
+        container.addMessageListener(this::onMessage, new ChannelTopic(CHANNEL));
+        container.afterPropertiesSet();
+        try {
+            container.start();
+        } catch (RuntimeException e) {
+            // The container keeps retrying the subscription; local caches rely on their TTLs until then
+            log.warn("Could not subscribe to {} yet: {}", CHANNEL, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void stop() throws Exception {
+        if (container != null) {
+            container.destroy();
+        }
+    }
+
+    /**
+     * Run {@code handler} with the key of every invalidation another instance publishes for this cache.
+     */
+    public void subscribe(String cacheName, Consumer<String> handler) {
+        handlers.put(cacheName, handler);
+    }
+
+    /**
+     * Ask the other instances to drop {@code key} from their copy of the cache. Never throws.
+     */
+    public void publish(String cacheName, String key) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, instanceId + "|" + cacheName + "|" + key);
+            metricService.recordCacheInvalidation(cacheName, "published");
+        } catch (DataAccessException e) {
+            log.debug("Could not publish invalidation of {} {}: {}", cacheName, key, e.getMessage());
+            metricService.recordCacheInvalidation(cacheName, "failed");
+        }
+    }
+
+    void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length != 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+        Consumer<String> handler = handlers.get(parts[1]);
+        if (handler != null) {
+            handler.accept(parts[2]);
+            metricService.recordCacheInvalidation(parts[1], "received");
+        }
+    }
+}
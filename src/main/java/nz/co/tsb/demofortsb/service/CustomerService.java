@@ -123,6 +123,7 @@ public class CustomerService {
 
     // ========== CUSTOMER LOOKUP ==========
 
+    @Transactional(readOnly = true)
     public List<Customer> getAllCustomers() {
         log.debug("Fetching all customers");
         try {
@@ -132,6 +133,7 @@ public class CustomerService {
             throw new CustomerNotFoundException("Failed to retrieve customers");
         }
     }
+    @Transactional(readOnly = true)
     public List<CustomerReponse> getAllCustomersResponse() {
         log.debug("Fetching all customers");
         try {
@@ -144,6 +146,7 @@ public class CustomerService {
         }
     }
 
+    @Transactional(readOnly = true)
     public List<Customer> getAllCustomersForDebugging() {
         log.debug("Fetching all customers info for debugging");
         try {
@@ -165,16 +168,19 @@ public class CustomerService {
                 .orElseThrow(() -> new ResourceNotFoundException("Customer", nationalId));//
     }
 
+    @Transactional(readOnly = true)
     public CustomerReponse getCustomerResponseById(Long customerId) {
         Customer customer = getCustomerById(customerId);
         return new CustomerReponse(customer);
     }
 
+    @Transactional(readOnly = true)
     public CustomerReponse getCustomerResponseByNationalId(String nationalId) {
         Customer customer = getCustomerByNationalId(nationalId);
         return new CustomerReponse(customer);
     }
 
+    @Transactional(readOnly = true)
     public Page<CustomerReponse> searchCustomers(String name, Pageable pageable) {
         log.debug("Searching customers by name: {}", name);
 
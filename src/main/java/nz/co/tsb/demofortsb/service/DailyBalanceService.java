@@ -0,0 +1,283 @@
+package nz.co.tsb.demofortsb.service;
+
+import jakarta.persistence.EntityManager;
+import nz.co.tsb.demofortsb.dto.response.BalanceAsOfResponse;
+import nz.co.tsb.demofortsb.dto.response.DailyBalanceResponse;
+import nz.co.tsb.demofortsb.entity.Account;
+import nz.co.tsb.demofortsb.entity.AccountDailyBalance;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.exception.ResourceNotFoundException;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.repository.AccountDailyBalanceRepository;
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Maintains and reads {@link AccountDailyBalance} snapshots.
+ * <p>
+ * Every completed posting moves its account's row for the posting's day, in the posting's own transaction,
+ * so a balance as of the end of any day is one row lookup and a balance at an instant is the previous day's
+ * row plus that day's postings. Callers hold the account row locks when they post, which also serialises
+ * writers of the same account's snapshot rows.
+ * </p>
+ */
+@Service
+public class DailyBalanceService {
+    private static final Logger log = LoggerFactory.getLogger(DailyBalanceService.class);
+
+    // Open ends of the history date range, kept inside what every supported database can store
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private static final Comparator<DayKey> DAY_ORDER =
+            Comparator.comparing(DayKey::accountId).thenComparing(DayKey::day);
+
+    @Autowired
+    private AccountDailyBalanceRepository dailyBalanceRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Value("${app.balance.daily.max-days:366}")
+    private int maxSeriesDays;
+
+    /**
+     * Fold completed postings into their accounts' daily rows; anything not COMPLETED is ignored.
+     * Called with the accounts already locked, after their balances have been changed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Collection<Transaction> postings) {
+        Map<DayKey, DayTotals> byDay = new TreeMap<>(DAY_ORDER);
+        for (Transaction posting : postings) {
+            if (posting.getTransactionStatus() == Transaction.TransactionStatus.COMPLETED) {
+                byDay.computeIfAbsent(new DayKey(posting.getAccountId(), posting.getTransactionDate().toLocalDate()),
+                        key -> new DayTotals()).add(posting);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        byDay.forEach((key, totals) -> applyDay(key.accountId(), key.day(), totals, now));
+    }
+
+    private void applyDay(Long accountId, LocalDate day, DayTotals totals, LocalDateTime now) {
+        Money net = totals.net();
+        if (net.signum() != 0) {
+            // Only does anything when a posting lands on a day before the newest row, e.g. a late settlement
+            dailyBalanceRepository.shiftClosingAfter(accountId, day, net, now);
+        }
+        if (dailyBalanceRepository.addToDay(accountId, day, net, totals.credits(), totals.debits(), totals.count, now) == 1) {
+            return;
+        }
+
+        // First posting of the day: start from the previous day's close, or back out the next day's movements
+        Optional<Money> closing = dailyBalanceRepository
+                .findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(accountId, day)
+                .map(previous -> previous.getClosingBalance().plus(net))
+                .or(() -> dailyBalanceRepository
+                        .findFirstByAccountIdAndBalanceDateGreaterThanEqualOrderByBalanceDateAsc(accountId, day)
+                        .map(AccountDailyBalance::getOpeningBalance));
+        if (closing.isEmpty()) {
+            // Not seeded yet; DailyBalanceSnapshotJob will build the account's rows from its history
+            return;
+        }
+        entityManager.persist(new AccountDailyBalance(accountId, day, closing.get(),
+                totals.credits(), totals.debits(), totals.count));
+    }
+
+    /**
+     * First row of a newly opened account, so its snapshots are maintained from the first posting.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void openAccount(Long accountId, Money openingBalance) {
+        entityManager.persist(new AccountDailyBalance(accountId, LocalDate.now(), openingBalance,
+                Money.ZERO, Money.ZERO, 0));
+    }
+
+    /**
+     * Build an account's rows from its current balance and its completed postings, newest day first.
+     * The account row is locked for the duration, so no posting can slip in between the two reads.
+     *
+     * @return false if the account already had rows
+     */
+    @Transactional
+    public boolean seedAccount(Long accountId) {
+        Account account = accountRepository.findAllByAccountIdInForUpdate(List.of(accountId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Account", accountId.toString()));
+        if (dailyBalanceRepository.existsByAccountId(accountId)) {
+            return false;
+        }
+
+        TreeMap<LocalDate, DayTotals> days = new TreeMap<>();
+        try (Stream<Transaction> postings = transactionRepository.streamStatement(accountId, HISTORY_START, HISTORY_END)) {
+            postings.forEach(posting -> {
+                if (posting.getTransactionStatus() == Transaction.TransactionStatus.COMPLETED) {
+                    days.computeIfAbsent(posting.getTransactionDate().toLocalDate(), day -> new DayTotals()).add(posting);
+                }
+                entityManager.detach(posting);
+            });
+        }
+        if (days.isEmpty()) {
+            days.put(LocalDate.now(), new DayTotals());
+        }
+
+        Money closing = account.getBalance();
+        for (Map.Entry<LocalDate, DayTotals> day : days.descendingMap().entrySet()) {
+            DayTotals totals = day.getValue();
+            entityManager.persist(new AccountDailyBalance(accountId, day.getKey(), closing,
+                    totals.credits(), totals.debits(), totals.count));
+            closing = closing.minus(totals.net());
+        }
+        log.debug("Seeded {} daily balance rows for account {}", days.size(), accountId);
+        return true;
+    }
+
+    /**
+     * Balance at the end of the given day: one snapshot row.
+     */
+    @Transactional
+    public BalanceAsOfResponse getBalanceAtEndOf(Long accountId, LocalDate date) {
+        ensureSeeded(accountId);
+        Money balance = dailyBalanceRepository
+                .findFirstByAccountIdAndBalanceDateLessThanEqualOrderByBalanceDateDesc(accountId, date)
+                .map(AccountDailyBalance::getClosingBalance)
+                .orElseGet(() -> openingOfFirstDay(accountId));
+        return new BalanceAsOfResponse(accountId, date.atTime(LocalTime.MAX).truncatedTo(ChronoUnit.SECONDS),
+                balance, balance.currencyCode());
+    }
+
+    /**
+     * Balance just after the given instant: the previous day's closing row plus the day's postings up to it.
+     */
+    @Transactional
+    public BalanceAsOfResponse getBalanceAt(Long accountId, LocalDateTime at) {
+        ensureSeeded(accountId);
+        LocalDate day = at.toLocalDate();
+        Money balance = dailyBalanceRepository
+                .findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(accountId, day)
+                .map(AccountDailyBalance::getClosingBalance)
+                .orElseGet(() -> openingOfFirstDay(accountId));
+
+        for (Transaction posting : transactionRepository.findByAccountIdAndDateRange(accountId, day.atStartOfDay(), at)) {
+            if (posting.getTransactionStatus() == Transaction.TransactionStatus.COMPLETED) {
+                balance = balance.plus(posting.getSignedAmount());
+            }
+        }
+        return new BalanceAsOfResponse(accountId, at, balance, balance.currencyCode());
+    }
+
+    /**
+     * One entry per calendar day from {@code from} to {@code to} inclusive; days without postings carry the
+     * previous closing balance forward.
+     */
+    @Transactional
+    public List<DailyBalanceResponse> getDailyBalances(Long accountId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ValidationException("'from' date must not be after 'to' date");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxSeriesDays) {
+            throw new ValidationException("A daily balance series cannot span more than " + maxSeriesDays + " days");
+        }
+        ensureSeeded(accountId);
+
+        Money closing = dailyBalanceRepository
+                .findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(accountId, from)
+                .map(AccountDailyBalance::getClosingBalance)
+                .orElseGet(() -> openingOfFirstDay(accountId));
+        Iterator<AccountDailyBalance> rows = dailyBalanceRepository
+                .findByAccountIdAndBalanceDateBetweenOrderByBalanceDate(accountId, from, to).iterator();
+        AccountDailyBalance row = rows.hasNext() ? rows.next() : null;
+
+        List<DailyBalanceResponse> series = new ArrayList<>((int) ChronoUnit.DAYS.between(from, to) + 1);
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (row != null && row.getBalanceDate().equals(day)) {
+                closing = row.getClosingBalance();
+                series.add(new DailyBalanceResponse(day, closing, row.getCreditTotal(), row.getDebitTotal(),
+                        row.getPostingCount()));
+                row = rows.hasNext() ? rows.next() : null;
+            } else {
+                series.add(new DailyBalanceResponse(day, closing, Money.ZERO, Money.ZERO, 0));
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Balance before the account's first snapshot day. Seeding gives every posting day a row, so nothing
+     * was posted before it.
+     */
+    private Money openingOfFirstDay(Long accountId) {
+        return dailyBalanceRepository
+                .findFirstByAccountIdOrderByBalanceDateAsc(accountId)
+                .map(AccountDailyBalance::getOpeningBalance)
+                .orElse(Money.ZERO);
+    }
+
+    private void ensureSeeded(Long accountId) {
+        if (!dailyBalanceRepository.existsByAccountId(accountId)) {
+            // Only until the snapshot job has caught up with accounts that predate the table
+            seedAccount(accountId);
+        }
+    }
+
+    private record DayKey(Long accountId, LocalDate day) {
+    }
+
+    /**
+     * Running credit and debit totals of one account-day, in minor units.
+     */
+    private static final class DayTotals {
+        private long credits;
+        private long debits;
+        private int count;
+
+        void add(Transaction posting) {
+            long signed = posting.getSignedAmount().minorUnits();
+            if (signed >= 0) {
+                credits = Math.addExact(credits, signed);
+            } else {
+                debits = Math.subtractExact(debits, signed);
+            }
+            count++;
+        }
+
+        Money credits() {
+            return Money.ofMinor(credits);
+        }
+
+        Money debits() {
+            return Money.ofMinor(debits);
+        }
+
+        Money net() {
+            return Money.ofMinor(Math.subtractExact(credits, debits));
+        }
+    }
+}
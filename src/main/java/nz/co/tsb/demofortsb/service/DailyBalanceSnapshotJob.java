@@ -0,0 +1,57 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.repository.AccountDailyBalanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Seeds daily balance snapshots for accounts that have none, i.e. accounts that predate the table.
+ * <p>
+ * New accounts get their first row when they are opened and every posting keeps the rows current, so after
+ * the first run this normally finds nothing to do. Each account is seeded in its own transaction.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "app.balance.snapshot-job.enabled", havingValue = "true", matchIfMissing = true)
+public class DailyBalanceSnapshotJob {
+    private static final Logger log = LoggerFactory.getLogger(DailyBalanceSnapshotJob.class);
+
+    private final AccountDailyBalanceRepository dailyBalanceRepository;
+    private final DailyBalanceService dailyBalanceService;
+
+    public DailyBalanceSnapshotJob(AccountDailyBalanceRepository dailyBalanceRepository,
+                                   DailyBalanceService dailyBalanceService) {
+        this.dailyBalanceRepository = dailyBalanceRepository;
+        this.dailyBalanceService = dailyBalanceService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        seedMissing();
+    }
+
+    @Scheduled(cron = "${app.balance.snapshot-job.cron:0 30 1 * * *}")
+    public void seedMissing() {
+        List<Long> accountIds = dailyBalanceRepository.findAccountIdsWithoutSnapshot();
+        int seeded = 0;
+        for (Long accountId : accountIds) {
+            try {
+                if (dailyBalanceService.seedAccount(accountId)) {
+                    seeded++;
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not seed daily balances for account {}", accountId, e);
+            }
+        }
+        if (seeded > 0) {
+            log.info("Seeded daily balance snapshots for {} accounts", seeded);
+        }
+    }
+}
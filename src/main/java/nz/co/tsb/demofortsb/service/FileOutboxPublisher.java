@@ -0,0 +1,52 @@
+package nz.co.tsb.demofortsb.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import nz.co.tsb.demofortsb.dto.event.OutboxMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends outbox events to a local JSON-lines file, one message per line.
+ * Useful for local runs and tests that want to inspect exactly what would have been sent.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.publisher", havingValue = "file")
+public class FileOutboxPublisher implements OutboxPublisher {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileOutboxPublisher(@Value("${app.outbox.file.path:data/outbox/events.jsonl}") String file,
+                               ObjectMapper objectMapper) {
+        this.file = Path.of(file);
+        this.objectMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxMessage> messages) {
+        StringBuilder lines = new StringBuilder();
+        try {
+            for (OutboxMessage message : messages) {
+                lines.append(objectMapper.writeValueAsString(message)).append('\n');
+            }
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Files.writeString(file, lines, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise outbox message", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to outbox file " + file, e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.dto.request.TransferRequest;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.service.AccountService.PostingItem;
+import nz.co.tsb.demofortsb.service.AccountService.PostingOutcome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Group commit for single transfers ({@code app.transfer.posting-mode=group}).
+ * <p>
+ * Request threads enqueue their transfer and wait. Committer threads take the first waiting transfer,
+ * keep collecting until the window closes or the group is full, then apply the whole group in one
+ * database transaction, so concurrent requests share one commit (and one fsync) instead of paying
+ * for their own. Each request completes with its own credit transaction or its own exception.
+ * </p>
+ * If a group fails as a whole (e.g. retries exhausted), its transfers are committed one by one so a
+ * single problem transfer cannot fail the others.
+ */
+final class GroupCommitCoordinator {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitCoordinator.class);
+
+    private final Function<List<PostingItem>, List<PostingOutcome>> committer;
+    private final MetricService metricService;
+    private final long windowNanos;
+    private final int maxItems;
+    private final BlockingQueue<Pending> queue;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * @param committer applies a group in one transaction and returns one outcome per item
+     */
+    GroupCommitCoordinator(Function<List<PostingItem>, List<PostingOutcome>> committer, MetricService metricService,
+                           long windowMicros, int maxItems, int queueCapacity, int committers) {
+        this.committer = committer;
+        this.metricService = metricService;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxItems = Math.max(1, maxItems);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        for (int i = 0; i < Math.max(1, committers); i++) {
+            threads.add(Thread.ofVirtual().name("group-commit-" + i).start(this::run));
+        }
+    }
+
+    /**
+     * Queue a transfer for the next group and wait for its own result.
+     */
+    TransactionResponse submit(Long customerId, TransferRequest request) {
+        Pending pending = new Pending(new PostingItem(customerId, request), new CompletableFuture<>());
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing transfer", e);
+        }
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stop the committers once the queue is empty.
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void run() {
+        List<Pending> group = new ArrayList<>(maxItems);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+
+                // The window opens when the first transfer is taken, so a lone request waits at most one window
+                long deadline = System.nanoTime() + windowNanos;
+                while (group.size() < maxItems) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                group.forEach(pending -> pending.result().completeExceptionally(e));
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> group) {
+        metricService.recordGroupCommit(group.size());
+        try {
+            List<PostingOutcome> outcomes = committer.apply(group.stream().map(Pending::item).toList());
+            for (int i = 0; i < group.size(); i++) {
+                PostingOutcome outcome = outcomes.get(i);
+                if (outcome.failure() != null) {
+                    group.get(i).result().completeExceptionally(outcome.failure());
+                } else {
+                    group.get(i).result().complete(outcome.transaction());
+                }
+            }
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                group.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.warn("Group of {} transfers failed, committing individually: {}", group.size(), e.getMessage());
+            for (Pending pending : group) {
+                commit(List.of(pending));
+            }
+        }
+    }
+
+    private record Pending(PostingItem item, CompletableFuture<TransactionResponse> result) {}
+}
@@ -0,0 +1,301 @@
+package nz.co.tsb.demofortsb.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.co.tsb.demofortsb.dto.request.TransferRequest;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.entity.IdempotencyRecord;
+import nz.co.tsb.demofortsb.exception.Account.IdempotencyKeyInProgressException;
+import nz.co.tsb.demofortsb.exception.Account.IdempotencyKeyReuseException;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Makes transfers sent with an {@code Idempotency-Key} header safe to retry.
+ * <p>
+ * The durable store is the {@code idempotency_record} table, written in the transfer's own
+ * transaction via {@link #claim} and {@link #complete}. Redis fronts it so a replay costs one
+ * cache lookup, and requests for a key already running on this instance wait for that attempt
+ * instead of starting their own. Duplicates racing on other instances block on the record's
+ * primary key and replay the winner's response once it commits.
+ * </p>
+ * In ledger mode the claim commits on its own before the transfer is posted and the write-behind
+ * completes it ({@link #completeClaimed}); until then the key answers as in progress.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final String CACHE_PREFIX = "idempotency:";
+    private static final int MAX_KEY_LENGTH = 100;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MetricService metricService;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${app.idempotency.wait-timeout-ms:5000}")
+    private long waitTimeoutMs;
+
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Return the stored response for this key, or run the transfer if the key is new.
+     *
+     * @param work runs the transfer in its own transaction, calling {@link #claim} and {@link #complete} inside it
+     * @throws IdempotencyKeyReuseException      if the key was used for a different request
+     * @throws IdempotencyKeyInProgressException if an attempt with the same key is still running after the wait timeout
+     */
+    public TransactionResponse execute(Long customerId, String idempotencyKey, String fingerprint,
+                                       Supplier<TransactionResponse> work) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ValidationException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String recordKey = customerId + ":" + idempotencyKey;
+
+        while (true) {
+            TransactionResponse stored = findStored(recordKey, idempotencyKey, fingerprint);
+            if (stored != null) {
+                return stored;
+            }
+
+            InFlight mine = new InFlight(fingerprint, new CompletableFuture<>());
+            InFlight running = inFlight.putIfAbsent(recordKey, mine);
+            if (running == null) {
+                return runAsOwner(recordKey, idempotencyKey, fingerprint, mine, work);
+            }
+
+            if (!running.fingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyReuseException(idempotencyKey);
+            }
+            TransactionResponse joined = await(running, idempotencyKey);
+            if (joined != null) {
+                metricService.recordIdempotency("joined");
+                return joined;
+            }
+            // The attempt we waited on failed without storing anything; look again and run it ourselves
+        }
+    }
+
+    /**
+     * Insert the record for a new key. Must run inside the transfer's transaction, before any account is touched,
+     * so a duplicate on another instance blocks here rather than on the account rows.
+     */
+    public IdempotencyRecord claim(Long customerId, String idempotencyKey, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord record = new IdempotencyRecord(customerId + ":" + idempotencyKey, customerId, fingerprint);
+        record.setCreatedAt(now);
+        record.setExpiresAt(now.plusHours(ttlHours));
+        return idempotencyRecordRepository.saveAndFlush(record);
+    }
+
+    /**
+     * Attach the transfer's response to a claimed record; it commits together with the transfer.
+     */
+    public void complete(IdempotencyRecord record, TransactionResponse response) {
+        record.setTransactionId(response.getTransactionId());
+        record.setResponseBody(toJson(response));
+        idempotencyRecordRepository.save(record);
+    }
+
+    /**
+     * Attach the response to a record claimed in an earlier, already committed transaction. The ledger's
+     * write-behind calls this in the transaction that inserts the transfer's rows, so the stored response
+     * carries the real transaction ID.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void completeClaimed(String recordKey, TransactionResponse response) {
+        idempotencyRecordRepository.findById(recordKey).ifPresentOrElse(
+                record -> complete(record, response),
+                () -> log.warn("Idempotency record {} expired before its transfer was written", recordKey));
+    }
+
+    /**
+     * Drop a committed claim whose transfer was rejected without being posted, so the key can be used again.
+     */
+    public void release(IdempotencyRecord record) {
+        idempotencyRecordRepository.deleteById(record.getRecordKey());
+    }
+
+    /**
+     * Hash of the fields that define a transfer, so a key reused for a different transfer is rejected.
+     */
+    public static String fingerprint(TransferRequest request) {
+        String canonical = request.getFromAccountNumber() + "|" + request.getToAccountNumber() + "|"
+                + request.getAmount().toBigDecimal().stripTrailingZeros().toPlainString();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Remove records past their retention window; clients must not reuse keys older than this.
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency records", deleted);
+        }
+    }
+
+    private TransactionResponse runAsOwner(String recordKey, String idempotencyKey, String fingerprint,
+                                           InFlight mine, Supplier<TransactionResponse> work) {
+        try {
+            TransactionResponse response;
+            try {
+                response = work.get();
+                metricService.recordIdempotency("executed");
+                // Ledger transfers have no transaction ID until written behind; cache them from the record after that
+                if (response.getTransactionId() != null) {
+                    writeCache(recordKey, new StoredResponse(fingerprint, response), Duration.ofHours(ttlHours));
+                }
+            } catch (DataIntegrityViolationException e) {
+                // Another instance committed this key first: our insert waited on its row, then hit the primary key
+                response = findStored(recordKey, idempotencyKey, fingerprint);
+                if (response == null) {
+                    throw e;
+                }
+            }
+            mine.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(recordKey, mine);
+        }
+    }
+
+    private TransactionResponse await(InFlight running, String idempotencyKey) {
+        try {
+            return running.result().get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException(idempotencyKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException(idempotencyKey);
+        }
+    }
+
+    /**
+     * @return the stored response, or null if the key has not been used or its record has expired
+     */
+    private TransactionResponse findStored(String recordKey, String idempotencyKey, String fingerprint) {
+        String outcome = "cache_hit";
+        StoredResponse stored = readCache(recordKey);
+        if (stored == null) {
+            IdempotencyRecord record = idempotencyRecordRepository.findById(recordKey).orElse(null);
+            if (record == null) {
+                return null;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (record.getExpiresAt().isBefore(now)) {
+                // Past retention the key is free again, whether or not the purge has run; removing the row
+                // lets the new claim insert, and only if no other instance has already replaced it
+                idempotencyRecordRepository.deleteIfExpired(recordKey, now);
+                metricService.recordIdempotency("expired");
+                return null;
+            }
+            if (record.getResponseBody() == null) {
+                // Claimed and posted to the ledger, not yet written behind
+                if (!record.getRequestFingerprint().equals(fingerprint)) {
+                    throw new IdempotencyKeyReuseException(idempotencyKey);
+                }
+                throw new IdempotencyKeyInProgressException(idempotencyKey);
+            }
+            stored = new StoredResponse(record.getRequestFingerprint(), fromJson(record.getResponseBody()));
+            outcome = "db_hit";
+            // Cached only for what is left of the record's retention, so Redis cannot outlive it
+            writeCache(recordKey, stored, Duration.between(now, record.getExpiresAt()));
+        }
+
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReuseException(idempotencyKey);
+        }
+        log.info("Replaying stored response for Idempotency-Key {} ({})", idempotencyKey, outcome);
+        metricService.recordIdempotency(outcome);
+        return stored.response();
+    }
+
+    // Redis is only an accelerator: any failure falls back to the table
+    private StoredResponse readCache(String recordKey) {
+        try {
+            String json = redisTemplate.opsForValue().get(CACHE_PREFIX + recordKey);
+            return json == null ? null : objectMapper.readValue(json, StoredResponse.class);
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.debug("Idempotency cache read failed for {}: {}", recordKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCache(String recordKey, StoredResponse stored, Duration ttl) {
+        try {
+            redisTemplate.opsForValue().set(CACHE_PREFIX + recordKey, objectMapper.writeValueAsString(stored), ttl);
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.debug("Idempotency cache write failed for {}: {}", recordKey, e.getMessage());
+        }
+    }
+
+    private String toJson(TransactionResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise transfer response", e);
+        }
+    }
+
+    private TransactionResponse fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, TransactionResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored transfer response", e);
+        }
+    }
+
+    record StoredResponse(String fingerprint, TransactionResponse response) {}
+
+    private record InFlight(String fingerprint, CompletableFuture<TransactionResponse> result) {}
+}
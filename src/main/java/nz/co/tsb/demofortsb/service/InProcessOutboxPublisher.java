@@ -0,0 +1,28 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.dto.event.OutboxMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Publishes outbox events as Spring application events, for in-process consumers
+ * ({@code @EventListener OutboxMessage}) and tests.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.publisher", havingValue = "in-process", matchIfMissing = true)
+public class InProcessOutboxPublisher implements OutboxPublisher {
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    public InProcessOutboxPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        messages.forEach(applicationEventPublisher::publishEvent);
+    }
+}
@@ -0,0 +1,65 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.entity.JournalEntry;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.repository.JournalEntryRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Groups transaction rows into balanced double-entry journal entries.
+ * Each transaction row is a posting against exactly one account ({@code account_id}); the journal entry
+ * ties the postings of one business event together.
+ */
+@Service
+public class JournalService {
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    /**
+     * Create a journal entry for the given postings and link them to it. The postings are saved by the
+     * caller, in the same transaction.
+     *
+     * @throws IllegalStateException if the postings do not sum to zero or mix currencies
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public JournalEntry post(JournalEntry.EntryType entryType, Transaction... postings) {
+        String currencyCode = postings[0].getCurrencyCode();
+        long total = 0;
+        for (Transaction posting : postings) {
+            if (!currencyCode.equals(posting.getCurrencyCode())) {
+                throw new IllegalStateException("Journal entry postings mix currencies " + currencyCode
+                        + " and " + posting.getCurrencyCode());
+            }
+            total = Math.addExact(total, posting.getSignedAmount().minorUnits());
+        }
+        if (total != 0) {
+            throw new IllegalStateException("Journal entry postings do not balance: net " + Money.ofMinor(total, currencyCode));
+        }
+
+        // Sequence id is assigned on persist, so the postings can reference it before the flush
+        JournalEntry entry = journalEntryRepository.save(new JournalEntry(entryType, currencyCode));
+        for (Transaction posting : postings) {
+            posting.setJournalEntryId(entry.getId());
+        }
+        return entry;
+    }
+
+    /**
+     * Reconciliation check: ids of journal entries whose postings do not sum to zero. Empty when the books balance.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findUnbalancedEntries() {
+        return transactionRepository.findUnbalancedJournalEntryIds();
+    }
+}
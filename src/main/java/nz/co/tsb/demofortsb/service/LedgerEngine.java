@@ -0,0 +1,364 @@
+package nz.co.tsb.demofortsb.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nz.co.tsb.demofortsb.dto.request.TransferRequest;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.entity.Account;
+import nz.co.tsb.demofortsb.entity.JournalEntry;
+import nz.co.tsb.demofortsb.entity.LedgerCheckpoint;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.LedgerCheckpointRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory ledger for {@code app.transfer.posting-mode=ledger}.
+ * <p>
+ * Customers are partitioned across single-threaded {@link LedgerShard}s by customer ID. Transfers only
+ * move money between one customer's own accounts, so both legs always live on the same shard and no
+ * cross-shard coordination is needed. Each shard holds authoritative balances in cents and acknowledges
+ * a transfer once it is durable in the shard's memory-mapped {@link LedgerJournal}.
+ * </p>
+ * <p>
+ * A background flusher writes accepted postings behind to the {@code transaction} and {@code account}
+ * tables in JDBC batches, advancing {@code ledger_checkpoint} in the same transaction. On startup every
+ * journal record above the checkpoint is written to the database before the shards start, so the tables
+ * are complete again and accounts can be loaded from them on first use.
+ * </p>
+ * The ledger owns balances while it runs, so only one application instance may use this mode.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transfer.posting-mode", havingValue = "ledger")
+public class LedgerEngine {
+    private static final Logger log = LoggerFactory.getLogger(LedgerEngine.class);
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricService metricService;
+    private final OutboxService outboxService;
+    private final JournalService journalService;
+    private final DailyBalanceService dailyBalanceService;
+    private final RecentActivityCache recentActivityCache;
+    private final AccountListCache accountListCache;
+    private final IdempotencyService idempotencyService;
+
+    private final int shardCount;
+    private final Path journalDir;
+    private final int journalCapacity;
+    private final int queueCapacity;
+    private final int maxBatch;
+    private final long accountRefreshMs;
+    private final long journalFullTimeoutMs;
+    private final long flushIntervalMs;
+    private final int flushBatchSize;
+
+    private final LedgerShard[] shards;
+    private final LedgerJournal[] journals;
+    private final AtomicLongArray flushedSequence;
+    private final ConcurrentLinkedQueue<LedgerPosting> unflushed = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ledger-flusher").factory());
+
+    // Flusher-thread state: postings from a failed flush, retried first
+    private List<LedgerPosting> retry = List.of();
+
+    public LedgerEngine(AccountRepository accountRepository,
+                        TransactionRepository transactionRepository,
+                        LedgerCheckpointRepository checkpointRepository,
+                        PlatformTransactionManager transactionManager,
+                        MetricService metricService,
+                        OutboxService outboxService,
+                        JournalService journalService,
+                        DailyBalanceService dailyBalanceService,
+                        RecentActivityCache recentActivityCache,
+                        AccountListCache accountListCache,
+                        IdempotencyService idempotencyService,
+                        @Value("${app.ledger.shards:4}") int shardCount,
+                        @Value("${app.ledger.journal-dir:data/ledger}") String journalDir,
+                        @Value("${app.ledger.journal-capacity:1048576}") int journalCapacity,
+                        @Value("${app.ledger.queue-capacity:10000}") int queueCapacity,
+                        @Value("${app.ledger.max-batch:256}") int maxBatch,
+                        @Value("${app.ledger.account-refresh-ms:5000}") long accountRefreshMs,
+                        @Value("${app.ledger.journal-full-timeout-ms:30000}") long journalFullTimeoutMs,
+                        @Value("${app.ledger.flush-interval-ms:50}") long flushIntervalMs,
+                        @Value("${app.ledger.flush-batch-size:5000}") int flushBatchSize) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metricService = metricService;
+        this.outboxService = outboxService;
+        this.journalService = journalService;
+        this.dailyBalanceService = dailyBalanceService;
+        this.recentActivityCache = recentActivityCache;
+        this.accountListCache = accountListCache;
+        this.idempotencyService = idempotencyService;
+        this.shardCount = Math.max(1, shardCount);
+        this.journalDir = Path.of(journalDir);
+        this.journalCapacity = journalCapacity;
+        this.queueCapacity = queueCapacity;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.accountRefreshMs = accountRefreshMs;
+        this.journalFullTimeoutMs = journalFullTimeoutMs;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushBatchSize = flushBatchSize;
+        this.shards = new LedgerShard[this.shardCount];
+        this.journals = new LedgerJournal[this.shardCount];
+        this.flushedSequence = new AtomicLongArray(this.shardCount);
+    }
+
+    /**
+     * Recover every shard from its journal and the checkpoint table, then start accepting transfers.
+     */
+    @PostConstruct
+    public void start() {
+        for (int shardId = 0; shardId < shardCount; shardId++) {
+            journals[shardId] = new LedgerJournal(shardId, journalDir.resolve("shard-" + shardId + ".journal"),
+                    journalCapacity);
+
+            long checkpoint = checkpointRepository.findById(shardId)
+                    .map(LedgerCheckpoint::getLastSequence)
+                    .orElse(0L);
+            List<LedgerPosting> replay = journals[shardId].readAfter(checkpoint);
+            long lastSequence = checkpoint;
+            if (!replay.isEmpty()) {
+                log.warn("Ledger shard {} replaying {} journal records after sequence {}",
+                        shardId, replay.size(), checkpoint);
+                writeBehind(replay);
+                lastSequence = replay.get(replay.size() - 1).sequence();
+            }
+            // Everything up to lastSequence is in the database now, so the journal can start over
+            journals[shardId].rewind();
+            flushedSequence.set(shardId, lastSequence);
+
+            final int id = shardId;
+            shards[shardId] = new LedgerShard(shardId, journals[shardId], lastSequence + 1, queueCapacity, maxBatch,
+                    accountRefreshMs, journalFullTimeoutMs, accountRepository::findByAccountNumber, unflushed::addAll,
+                    () -> flushedSequence.get(id));
+            metricService.registerLedgerJournalStalled(shardId, shards[shardId]::isStalled);
+            shards[shardId].start();
+        }
+
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Ledger started with {} shards, journals in {}", shardCount, journalDir.toAbsolutePath());
+    }
+
+    /**
+     * Post a transfer on the owning customer's shard and wait until it is journaled.
+     * <p>
+     * The response mirrors the credit leg. Its transaction ID is not known yet because the
+     * transaction rows are written behind, so it is returned as null.
+     * </p>
+     */
+    public TransactionResponse transfer(Long customerId, TransferRequest request) {
+        return transfer(customerId, request, null);
+    }
+
+    /**
+     * {@link #transfer(Long, TransferRequest)} for a keyed request whose idempotency claim has already committed.
+     * The write-behind completes the claim in the transaction that inserts the transfer's rows, so replays get the
+     * credit leg's real transaction ID. The key is journaled with the posting, so a posting only recovered from the
+     * journal after a crash completes its claim the same way.
+     *
+     * @param idempotencyKey record key of the committed claim, or null
+     */
+    public TransactionResponse transfer(Long customerId, TransferRequest request, String idempotencyKey) {
+        if (idempotencyKey != null
+                && idempotencyKey.getBytes(StandardCharsets.UTF_8).length > LedgerJournal.MAX_KEY_BYTES) {
+            throw new ValidationException("Idempotency-Key is too long for the ledger journal");
+        }
+        long amountMinor = request.getAmount().minorUnits();
+
+        LedgerPosting posting;
+        try {
+            posting = shards[Math.floorMod(customerId, shardCount)]
+                    .submit(customerId, request.getFromAccountNumber(), request.getToAccountNumber(), amountMinor,
+                            idempotencyKey)
+                    .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        TransactionResponse response = new TransactionResponse();
+        response.setAccountId(posting.toAccountId());
+        response.setTransactionType(Transaction.TransactionType.TRANSFER_IN);
+        response.setAmount(Money.ofMinor(posting.amountMinor()));
+        response.setTransactionDate(toDateTime(posting.timestampMillis()));
+        response.setFromAccountId(posting.fromAccountId());
+        response.setToAccountId(posting.toAccountId());
+        response.setTransactionStatus(Transaction.TransactionStatus.COMPLETED);
+        response.setCurrencyCode("NZD");
+        return response;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        for (LedgerShard shard : shards) {
+            if (shard != null) {
+                shard.stop();
+            }
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        // Drain what the shards accepted last; anything that still fails is replayed from the journal
+        while (!unflushed.isEmpty() || !retry.isEmpty()) {
+            if (!flush()) {
+                break;
+            }
+        }
+        for (LedgerJournal journal : journals) {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * Write one batch of accepted postings behind to the database.
+     *
+     * @return false if the batch failed and will be retried
+     */
+    boolean flush() {
+        List<LedgerPosting> batch = new ArrayList<>(retry);
+        LedgerPosting posting;
+        while (batch.size() < flushBatchSize && (posting = unflushed.poll()) != null) {
+            batch.add(posting);
+        }
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        long start = System.nanoTime();
+        try {
+            writeBehind(batch);
+            retry = List.of();
+        } catch (RuntimeException e) {
+            log.error("Ledger write-behind of {} postings failed, will retry", batch.size(), e);
+            retry = batch;
+            return false;
+        }
+
+        for (LedgerPosting written : batch) {
+            flushedSequence.accumulateAndGet(written.shardId(), written.sequence(), Math::max);
+        }
+        metricService.recordLedgerFlush(batch.size(), System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * Insert both postings of each transfer under a journal entry, with their outbox events, apply the net balance change per account
+     * (and to its daily balance snapshots), complete any idempotency claims and advance each shard's checkpoint, all in one transaction.
+     * <p>
+     * An account is only ever posted by its owner's shard, so its postings arrive here in sequence order and
+     * each row's running balance follows from the locked database balance, which already holds every earlier flush.
+     * </p>
+     */
+    private void writeBehind(List<LedgerPosting> postings) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> rows = new ArrayList<>(postings.size() * 2);
+            Map<Long, Long> deltas = new HashMap<>();
+            Map<Integer, Long> checkpoints = new HashMap<>();
+
+            Set<Long> accountIds = new HashSet<>();
+            for (LedgerPosting posting : postings) {
+                accountIds.add(posting.fromAccountId());
+                accountIds.add(posting.toAccountId());
+            }
+            Map<Long, Long> balances = new HashMap<>();
+            Set<Long> customerIds = new HashSet<>();
+            for (Account account : accountRepository.findAllByAccountIdInForUpdate(accountIds)) {
+                balances.put(account.getAccountId(), account.getBalance().minorUnits());
+                customerIds.add(account.getCustomerId());
+            }
+
+            for (LedgerPosting posting : postings) {
+                Money amount = Money.ofMinor(posting.amountMinor());
+                LocalDateTime date = toDateTime(posting.timestampMillis());
+                Transaction debit = AccountService.buildTransferRow(Transaction.TransactionType.TRANSFER_OUT,
+                        posting.fromAccountId(), posting.toAccountId(), amount);
+                Transaction credit = AccountService.buildTransferRow(Transaction.TransactionType.TRANSFER_IN,
+                        posting.fromAccountId(), posting.toAccountId(), amount);
+                debit.setTransactionDate(date);
+                credit.setTransactionDate(date);
+                debit.setBalanceAfter(runningBalance(balances, posting.fromAccountId(), -posting.amountMinor()));
+                credit.setBalanceAfter(runningBalance(balances, posting.toAccountId(), posting.amountMinor()));
+                journalService.post(JournalEntry.EntryType.TRANSFER, debit, credit);
+                rows.add(debit);
+                rows.add(credit);
+                deltas.merge(posting.fromAccountId(), -posting.amountMinor(), Long::sum);
+                deltas.merge(posting.toAccountId(), posting.amountMinor(), Long::sum);
+                checkpoints.merge(posting.shardId(), posting.sequence(), Math::max);
+            }
+
+            transactionRepository.saveAll(rows);
+            for (int i = 0; i < rows.size(); i += 2) {
+                outboxService.transferCompleted(rows.get(i), rows.get(i + 1));
+                String idempotencyKey = postings.get(i / 2).idempotencyKey();
+                if (idempotencyKey != null) {
+                    idempotencyService.completeClaimed(idempotencyKey, new TransactionResponse(rows.get(i + 1)));
+                }
+            }
+            deltas.forEach((accountId, delta) -> {
+                if (delta != 0) {
+                    accountRepository.applyBalanceDelta(accountId, Money.ofMinor(delta));
+                }
+            });
+            dailyBalanceService.apply(rows);
+            recentActivityCache.addAfterCommit(rows);
+            accountListCache.evictAfterCommit(customerIds);
+            checkpoints.forEach((shardId, sequence) -> {
+                LedgerCheckpoint checkpoint = checkpointRepository.findById(shardId)
+                        .orElseGet(() -> new LedgerCheckpoint(shardId));
+                checkpoint.setLastSequence(sequence);
+                checkpointRepository.save(checkpoint);
+            });
+        });
+    }
+
+    /**
+     * Move an account's running balance by the posting and return the result; null for an unknown account.
+     */
+    private static Money runningBalance(Map<Long, Long> balances, Long accountId, long changeMinor) {
+        Long balance = balances.computeIfPresent(accountId, (id, current) -> Math.addExact(current, changeMinor));
+        return balance != null ? Money.ofMinor(balance) : null;
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,140 @@
+package nz.co.tsb.demofortsb.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped append-only journal for one ledger shard.
+ * <p>
+ * Fixed-size records: sequence, from, to, amount, timestamp (5 longs), the idempotency record key as a
+ * length-prefixed UTF-8 field of up to {@link #MAX_KEY_BYTES} bytes (length 0 when unkeyed), and a CRC32 of
+ * everything before it. A torn or never-written slot fails the CRC (or has sequence 0) and is ignored on recovery.
+ * Once every record has been written behind to the database the shard rewinds to slot 0;
+ * stale slots left behind carry sequences at or below the checkpoint, so recovery skips them.
+ * </p>
+ * Not thread-safe: only the owning shard thread appends.
+ */
+final class LedgerJournal implements Closeable {
+
+    static final int RECORD_SIZE = 192;
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - 4;
+    private static final int KEY_OFFSET = 42;
+    static final int MAX_KEY_BYTES = PAYLOAD_SIZE - KEY_OFFSET;
+
+    private final int shardId;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int position;
+    private int unforcedFrom;
+
+    LedgerJournal(int shardId, Path file, int capacity) {
+        this.shardId = shardId;
+        this.capacity = capacity;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open ledger journal " + file, e);
+        }
+    }
+
+    /**
+     * @return false if the journal is full and must be rewound before anything else is appended
+     * @throws IllegalArgumentException if the idempotency key is longer than {@link #MAX_KEY_BYTES} in UTF-8
+     */
+    boolean append(LedgerPosting posting) {
+        byte[] key = posting.idempotencyKey() != null
+                ? posting.idempotencyKey().getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+        if (key.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Idempotency record key longer than " + MAX_KEY_BYTES + " bytes");
+        }
+        if (position >= capacity) {
+            return false;
+        }
+        int offset = position * RECORD_SIZE;
+        buffer.putLong(offset, posting.sequence());
+        buffer.putLong(offset + 8, posting.fromAccountId());
+        buffer.putLong(offset + 16, posting.toAccountId());
+        buffer.putLong(offset + 24, posting.amountMinor());
+        buffer.putLong(offset + 32, posting.timestampMillis());
+        buffer.putShort(offset + 40, (short) key.length);
+        buffer.put(offset + KEY_OFFSET, key);
+        buffer.putInt(offset + PAYLOAD_SIZE, checksum(offset));
+        position++;
+        return true;
+    }
+
+    /**
+     * Make everything appended since the last call durable.
+     */
+    void force() {
+        if (position > unforcedFrom) {
+            buffer.force(unforcedFrom * RECORD_SIZE, (position - unforcedFrom) * RECORD_SIZE);
+            unforcedFrom = position;
+        }
+    }
+
+    /**
+     * Start overwriting from the first slot. Only safe once every appended record is checkpointed.
+     */
+    void rewind() {
+        force();
+        position = 0;
+        unforcedFrom = 0;
+    }
+
+    /**
+     * @return valid records with a sequence above the checkpoint, in sequence order
+     */
+    List<LedgerPosting> readAfter(long checkpoint) {
+        List<LedgerPosting> postings = new ArrayList<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = slot * RECORD_SIZE;
+            long sequence = buffer.getLong(offset);
+            if (sequence <= checkpoint || buffer.getInt(offset + PAYLOAD_SIZE) != checksum(offset)) {
+                continue;
+            }
+            postings.add(new LedgerPosting(shardId, sequence, buffer.getLong(offset + 8),
+                    buffer.getLong(offset + 16), buffer.getLong(offset + 24), buffer.getLong(offset + 32), key(offset)));
+        }
+        postings.sort(Comparator.comparingLong(LedgerPosting::sequence));
+        return postings;
+    }
+
+    private String key(int offset) {
+        int length = buffer.getShort(offset + 40);
+        if (length == 0) {
+            return null;
+        }
+        byte[] key = new byte[length];
+        buffer.get(offset + KEY_OFFSET, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private int checksum(int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,17 @@
+package nz.co.tsb.demofortsb.service;
+
+/**
+ * One transfer accepted by a ledger shard. Amounts are in cents.
+ *
+ * @param shardId         shard that accepted the transfer
+ * @param sequence        per-shard journal sequence, starting at 1
+ * @param fromAccountId   debited account
+ * @param toAccountId     credited account
+ * @param amountMinor     amount in minor units (cents)
+ * @param timestampMillis when the shard accepted it, epoch millis
+ * @param idempotencyKey  record key of the idempotency claim the write-behind completes, or null; journaled, so a
+ *                        replay after a crash completes the claim too
+ */
+record LedgerPosting(int shardId, long sequence, long fromAccountId, long toAccountId,
+                     long amountMinor, long timestampMillis, String idempotencyKey) {
+}
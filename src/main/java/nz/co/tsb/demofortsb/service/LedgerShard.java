@@ -0,0 +1,291 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.entity.Account;
+import nz.co.tsb.demofortsb.exception.Account.LedgerRejectedException;
+import nz.co.tsb.demofortsb.exception.ResourceNotFoundException;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A single-writer ledger partition.
+ * <p>
+ * One thread owns the balances of every account resident on the shard, so transfers need no locks:
+ * commands are drained from a bounded queue in batches, applied in order, appended to the journal,
+ * and acknowledged only after one {@code force()} for the whole batch. Accepted postings are then
+ * handed to the write-behind flusher.
+ * </p>
+ * Accounts are loaded from the database on first use and stay resident; an account is only kept on
+ * the shard of the customer that owns it, so no other shard ever holds a copy of its balance. Status can
+ * still be changed outside the ledger, so a resident account's status is re-read once it is older than
+ * the refresh interval.
+ */
+final class LedgerShard {
+    private static final Logger log = LoggerFactory.getLogger(LedgerShard.class);
+
+    private final int shardId;
+    private final LedgerJournal journal;
+    private final BlockingQueue<Command> queue;
+    private final int maxBatch;
+    private final long accountRefreshNanos;
+    private final long journalFullTimeoutNanos;
+    private final Function<String, Optional<Account>> accountLoader;
+    private final Consumer<List<LedgerPosting>> flushQueue;
+    private final LongSupplier flushedSequence;
+    private final Thread thread;
+
+    // Shard-thread state
+    private final Map<String, AccountState> accounts = new HashMap<>();
+    private long nextSequence;
+
+    private volatile boolean running = true;
+    private volatile boolean failed;
+    // Journal full and write-behind did not catch up in time; postings fail until it does
+    private volatile boolean stalled;
+
+    LedgerShard(int shardId, LedgerJournal journal, long nextSequence, int queueCapacity, int maxBatch,
+                long accountRefreshMs, long journalFullTimeoutMs,
+                Function<String, Optional<Account>> accountLoader,
+                Consumer<List<LedgerPosting>> flushQueue,
+                LongSupplier flushedSequence) {
+        this.shardId = shardId;
+        this.journal = journal;
+        this.nextSequence = nextSequence;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        this.accountRefreshNanos = TimeUnit.MILLISECONDS.toNanos(accountRefreshMs);
+        this.journalFullTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(journalFullTimeoutMs);
+        this.accountLoader = accountLoader;
+        this.flushQueue = flushQueue;
+        this.flushedSequence = flushedSequence;
+        this.thread = Thread.ofPlatform().name("ledger-shard-" + shardId).unstarted(this::run);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queue a transfer for this shard; blocks while the queue is full.
+     * <p>
+     * The result fails with {@link LedgerRejectedException} when the shard turned the transfer away before
+     * journaling it: stopped, failed or stalled on a full journal.
+     * </p>
+     *
+     * @param idempotencyKey record key of a committed idempotency claim to complete with the posting, or null
+     */
+    CompletableFuture<LedgerPosting> submit(Long customerId, String fromAccountNumber, String toAccountNumber,
+                                            long amountMinor, String idempotencyKey) {
+        if (!running || failed) {
+            throw new LedgerRejectedException("Ledger shard " + shardId + " is not accepting transfers");
+        }
+        Command command = new Command(customerId, fromAccountNumber, toAccountNumber, amountMinor, idempotencyKey,
+                new CompletableFuture<>());
+        try {
+            queue.put(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerRejectedException("Interrupted while queueing transfer", e);
+        }
+        return command.result();
+    }
+
+    /**
+     * @return true while the journal is full and postings are failed until write-behind catches up
+     */
+    boolean isStalled() {
+        return stalled;
+    }
+
+    /**
+     * Stop taking new work, finish what is queued, and wait for the thread to exit.
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        thread.join();
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>(maxBatch);
+        List<LedgerPosting> posted = new ArrayList<>(maxBatch);
+        Object[] outcomes = new Object[maxBatch];
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Command first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    outcomes[i] = apply(batch.get(i), posted);
+                } catch (RuntimeException e) {
+                    outcomes[i] = e;
+                }
+            }
+
+            try {
+                // One fsync acknowledges the whole batch
+                journal.force();
+            } catch (RuntimeException e) {
+                // Balances in memory are now ahead of the journal: refuse further work rather than diverge
+                log.error("Ledger shard {} could not force its journal; shard stopped", shardId, e);
+                failed = true;
+                running = false;
+                batch.forEach(command -> command.result().completeExceptionally(e));
+                break;
+            }
+
+            flushQueue.accept(List.copyOf(posted));
+            posted.clear();
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (outcomes[i] instanceof LedgerPosting posting) {
+                    batch.get(i).result().complete(posting);
+                } else {
+                    batch.get(i).result().completeExceptionally((Throwable) outcomes[i]);
+                }
+                outcomes[i] = null;
+            }
+            batch.clear();
+        }
+
+        // Anything still queued after a failure is rejected
+        Command leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.result().completeExceptionally(
+                    new LedgerRejectedException("Ledger shard " + shardId + " is not accepting transfers"));
+        }
+    }
+
+    private LedgerPosting apply(Command command, List<LedgerPosting> posted) {
+        AccountState from = resolve(command.fromAccountNumber(), command.customerId(), "Source account");
+        AccountState to = resolve(command.toAccountNumber(), command.customerId(), "Destination account");
+
+        if (!from.active) {
+            throw new ValidationException("Source account is not active");
+        }
+        if (!to.active) {
+            throw new ValidationException("Destination account is not active");
+        }
+        if (from.balanceMinor < command.amountMinor()) {
+            throw new ValidationException("Insufficient balance in source account");
+        }
+
+        LedgerPosting posting = new LedgerPosting(shardId, nextSequence, from.accountId, to.accountId,
+                command.amountMinor(), System.currentTimeMillis(), command.idempotencyKey());
+        if (!journal.append(posting)) {
+            makeRoom(posted);
+            journal.append(posting);
+        }
+
+        nextSequence++;
+        from.balanceMinor -= command.amountMinor();
+        to.balanceMinor += command.amountMinor();
+        posted.add(posting);
+        return posting;
+    }
+
+    private AccountState resolve(String accountNumber, Long customerId, String label) {
+        AccountState state = accounts.get(accountNumber);
+        long now = System.nanoTime();
+        if (state != null && now - state.statusReadAt >= accountRefreshNanos) {
+            // Only the status is taken from the database: the ledger's balance is ahead of the table's
+            state.active = accountLoader.apply(accountNumber).map(Account::isAccountActive).orElse(false);
+            state.statusReadAt = now;
+        }
+        if (state == null) {
+            Account account = accountLoader.apply(accountNumber)
+                    .orElseThrow(() -> new ResourceNotFoundException(label, accountNumber));
+            if (!account.getCustomerId().equals(customerId)) {
+                // Not ours to cache: only the owner's shard may hold this balance
+                throw new ValidationException("Both accounts must belong to the same customer");
+            }
+            state = new AccountState(account.getAccountId(), account.getCustomerId(),
+                    account.getBalance().minorUnits(), account.isAccountActive(), now);
+            accounts.put(accountNumber, state);
+        }
+        if (!state.customerId.equals(customerId)) {
+            throw new ValidationException("Both accounts must belong to the same customer");
+        }
+        return state;
+    }
+
+    /**
+     * The journal is full: publish what this batch has posted so far, wait until the flusher has
+     * checkpointed every sequence, then start the journal again from the first slot.
+     * <p>
+     * The wait is bounded. If write-behind has not caught up in time the shard is stalled: this and every
+     * following posting fails straight away, without waiting again, until the checkpoint reaches the target.
+     * </p>
+     *
+     * @throws LedgerRejectedException if write-behind has not caught up
+     */
+    private void makeRoom(List<LedgerPosting> posted) {
+        journal.force();
+        flushQueue.accept(List.copyOf(posted));
+        posted.clear();
+
+        long target = nextSequence - 1;
+        if (!stalled) {
+            log.info("Ledger shard {} journal full, waiting for write-behind to reach sequence {}", shardId, target);
+            long deadline = System.nanoTime() + journalFullTimeoutNanos;
+            while (flushedSequence.getAsLong() < target && System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        if (flushedSequence.getAsLong() < target) {
+            if (!stalled) {
+                log.error("Ledger shard {} stalled: write-behind has not reached sequence {}, failing postings",
+                        shardId, target);
+                stalled = true;
+            }
+            throw new LedgerRejectedException("Ledger shard " + shardId + " journal is full; try again later");
+        }
+        if (stalled) {
+            log.info("Ledger shard {} write-behind caught up, posting again", shardId);
+            stalled = false;
+        }
+        journal.rewind();
+    }
+
+    private record Command(Long customerId, String fromAccountNumber, String toAccountNumber, long amountMinor,
+                           String idempotencyKey, CompletableFuture<LedgerPosting> result) {}
+
+    private static final class AccountState {
+        final Long accountId;
+        final Long customerId;
+        long balanceMinor;
+        boolean active;
+        long statusReadAt;
+
+        AccountState(Long accountId, Long customerId, long balanceMinor, boolean active, long statusReadAt) {
+            this.accountId = accountId;
+            this.customerId = customerId;
+            this.balanceMinor = balanceMinor;
+            this.active = active;
+            this.statusReadAt = statusReadAt;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.dto.event.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * Delivers outbox events to downstream systems, selected by {@code app.outbox.publisher}.
+ * <p>
+ * Called by {@link OutboxRelay} inside the transaction that claimed the batch: return normally only once
+ * every message is delivered; throw to leave the whole batch unpublished for the next run. Delivery is
+ * therefore at-least-once, and consumers de-duplicate on {@link OutboxMessage#id()}.
+ * </p>
+ */
+public interface OutboxPublisher {
+
+    void publish(List<OutboxMessage> messages);
+}
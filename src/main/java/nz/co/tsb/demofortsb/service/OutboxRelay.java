@@ -0,0 +1,114 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.dto.event.OutboxMessage;
+import nz.co.tsb.demofortsb.entity.OutboxEvent;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Drains the outbox table to the configured {@link OutboxPublisher}.
+ * <p>
+ * Each batch is claimed with {@code FOR UPDATE SKIP LOCKED}, published, and marked published in one
+ * transaction. Relays on other instances skip rows this one holds, so any number of instances can run
+ * the relay without publishing the same batch concurrently. A failed publish rolls the batch back and
+ * it is retried on the next run (at-least-once delivery).
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricService metricService;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long retentionHours;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxPublisher publisher,
+                       PlatformTransactionManager transactionManager,
+                       MetricService metricService,
+                       @Value("${app.outbox.batch-size:200}") int batchSize,
+                       @Value("${app.outbox.max-batches-per-run:10}") int maxBatchesPerRun,
+                       @Value("${app.outbox.retention-hours:72}") long retentionHours) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metricService = metricService;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.retentionHours = retentionHours;
+    }
+
+    /**
+     * Publish batches until the backlog is drained or the per-run limit is reached.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void relay() {
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            if (relayBatch() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return number of events published, 0 if there was nothing to publish or the batch failed
+     */
+    int relayBatch() {
+        List<OutboxMessage> published;
+        try {
+            published = transactionTemplate.execute(status -> {
+                List<OutboxEvent> events = outboxEventRepository.claimUnpublished(PageRequest.of(0, batchSize));
+                if (events.isEmpty()) {
+                    return List.<OutboxMessage>of();
+                }
+                List<OutboxMessage> messages = events.stream().map(OutboxMessage::of).toList();
+                publisher.publish(messages);
+
+                LocalDateTime now = LocalDateTime.now();
+                events.forEach(event -> event.setPublishedAt(now));
+                return messages;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Outbox batch could not be published, will retry: {}", e.getMessage());
+            metricService.recordOutboxFailure();
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboxMessage message : published) {
+            metricService.recordOutboxPublished(message.eventType(),
+                    Duration.between(message.createdAt(), now).toMillis());
+        }
+        return published.size();
+    }
+
+    /**
+     * Delete events that were published longer ago than the retention window.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.purge-interval-ms:3600000}")
+    public void purgePublished() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours)));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} published outbox events", deleted);
+        }
+    }
+}
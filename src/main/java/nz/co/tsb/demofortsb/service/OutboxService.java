@@ -0,0 +1,51 @@
+package nz.co.tsb.demofortsb.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.co.tsb.demofortsb.dto.event.TransferEvent;
+import nz.co.tsb.demofortsb.entity.OutboxEvent;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes transfer events to the outbox table.
+ * Every method requires the caller's transaction, so an event commits if and only if its transfer does.
+ */
+@Service
+public class OutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Record a completed transfer from its debit and credit rows (both already persisted).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void transferCompleted(Transaction debit, Transaction credit) {
+        append(TransferEvent.completed(debit, credit), debit.getFromAccountId());
+    }
+
+    /**
+     * Record an asynchronous transfer that settled as FAILED.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void transferFailed(Transaction transfer) {
+        append(TransferEvent.failed(transfer), transfer.getFromAccountId());
+    }
+
+    private void append(TransferEvent event, Long aggregateId) {
+        try {
+            outboxEventRepository.save(new OutboxEvent(event.eventType(), aggregateId,
+                    objectMapper.writeValueAsString(event)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise " + event.eventType() + " event", e);
+        }
+    }
+}
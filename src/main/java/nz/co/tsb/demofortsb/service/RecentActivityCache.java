@@ -0,0 +1,334 @@
+package nz.co.tsb.demofortsb.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * The newest postings of recently read accounts, which is all the first page of the history endpoint needs.
+ * <p>
+ * Two tiers: a bounded Caffeine map per instance and, with {@code app.cache.recent-activity.redis-enabled},
+ * a Redis list per account shared by all instances. Each holds at most {@code page-size + 1} rows, newest
+ * first, so a page of up to {@code page-size} rows can tell whether there is a next page. New postings from
+ * {@link AccountService} and the ledger's write-behind are written through once their transaction commits;
+ * settlement rewrites an existing PENDING row, so it evicts the accounts instead. Either way the other
+ * instances are told to drop their local copy through the {@link CacheInvalidationBus}.
+ * </p>
+ * A local entry is reloaded at the latest {@code ttl-seconds} after it was read from the database or Redis,
+ * however many postings were written through in between; that also bounds staleness from a lost invalidation.
+ */
+@Component
+public class RecentActivityCache {
+    private static final Logger log = LoggerFactory.getLogger(RecentActivityCache.class);
+
+    static final String CACHE_NAME = "recent_activity";
+    private static final String REDIS_PREFIX = "recent-activity:";
+    private static final int STAMP_STRIPES = 1024;
+
+    // Same order as the history queries: transaction_date DESC, transaction_id DESC
+    private static final Comparator<TransactionResponse> NEWEST_FIRST = Comparator
+            .comparing(TransactionResponse::getTransactionDate)
+            .thenComparing(TransactionResponse::getTransactionId)
+            .reversed();
+
+    private final Cache<Long, Entry> local;
+    // Bumped on every write or eviction of an account; a load that raced one is not kept
+    private final AtomicLongArray writeStamps = new AtomicLongArray(STAMP_STRIPES);
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final CacheInvalidationBus invalidationBus;
+    private final MetricService metricService;
+    private final int pageSize;
+    private final Duration ttl;
+    private final boolean redisEnabled;
+
+    public RecentActivityCache(RedisTemplate<String, String> redisTemplate,
+                               ObjectMapper objectMapper,
+                               CacheInvalidationBus invalidationBus,
+                               MetricService metricService,
+                               @Value("${app.cache.recent-activity.page-size:50}") int pageSize,
+                               @Value("${app.cache.recent-activity.max-accounts:10000}") long maxAccounts,
+                               @Value("${app.cache.recent-activity.ttl-seconds:300}") long ttlSeconds,
+                               @Value("${app.cache.recent-activity.redis-enabled:false}") boolean redisEnabled) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.invalidationBus = invalidationBus;
+        this.metricService = metricService;
+        this.pageSize = pageSize;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.redisEnabled = redisEnabled;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maxAccounts)
+                // Expiry counts from the load; writing through does not extend it
+                .expireAfter(new Expiry<Long, Entry>() {
+                    @Override
+                    public long expireAfterCreate(Long accountId, Entry entry, long currentTime) {
+                        return ttl.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long accountId, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long accountId, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        metricService.monitorCache(CACHE_NAME, local);
+        invalidationBus.subscribe(CACHE_NAME, accountId -> evictLocal(Long.valueOf(accountId)));
+    }
+
+    /**
+     * @return true if a first page of this many rows can be served from the cache
+     */
+    public boolean serves(int size) {
+        return size <= pageSize;
+    }
+
+    /**
+     * The newest postings of an account, newest first: up to {@code page-size + 1} rows.
+     *
+     * @param loader reads the newest {@code n} rows from the database; only runs when neither tier has the
+     *               account, and may throw (e.g. for an unknown account), in which case nothing is cached
+     */
+    public List<TransactionResponse> recent(Long accountId, IntFunction<List<TransactionResponse>> loader) {
+        Entry cached = local.getIfPresent(accountId);
+        if (cached != null) {
+            metricService.recordCacheRead(CACHE_NAME, "local");
+            metricService.recordCacheEntryAge(CACHE_NAME, System.currentTimeMillis() - cached.loadedAt());
+            return cached.rows();
+        }
+
+        long stamp = writeStamps.get(stripe(accountId));
+        List<TransactionResponse> rows = readRedis(accountId);
+        if (rows != null) {
+            metricService.recordCacheRead(CACHE_NAME, "redis");
+        } else {
+            rows = List.copyOf(loader.apply(pageSize + 1));
+            writeRedis(accountId, rows);
+            metricService.recordCacheRead(CACHE_NAME, "database");
+        }
+
+        Entry loaded = new Entry(rows, System.currentTimeMillis());
+        local.asMap().compute(accountId, (id, current) ->
+                current == null && writeStamps.get(stripe(id)) == stamp ? loaded : current);
+        return rows;
+    }
+
+    /**
+     * Add new postings to the cached history of their accounts once the current transaction commits,
+     * or at once if there is none. Postings must already have their id and transaction date.
+     */
+    public void addAfterCommit(Collection<Transaction> postings) {
+        List<TransactionResponse> rows = postings.stream().map(TransactionResponse::new).toList();
+        afterCommit(() -> add(rows));
+    }
+
+    /**
+     * Drop the cached history of these accounts once the current transaction commits, or at once if there is none.
+     * For changes that are not simply new postings, such as a settled PENDING row.
+     */
+    public void evictAfterCommit(Collection<Long> accountIds) {
+        Set<Long> evicted = Set.copyOf(accountIds);
+        afterCommit(() -> evicted.forEach(this::evict));
+    }
+
+    void add(List<TransactionResponse> rows) {
+        Map<Long, List<TransactionResponse>> byAccount = rows.stream()
+                .collect(Collectors.groupingBy(TransactionResponse::getAccountId));
+        byAccount.forEach((accountId, added) -> {
+            writeStamps.incrementAndGet(stripe(accountId));
+            local.asMap().computeIfPresent(accountId, (id, entry) ->
+                    new Entry(newest(added, entry.rows()), entry.loadedAt()));
+            pushRedis(accountId, added);
+            invalidationBus.publish(CACHE_NAME, accountId.toString());
+        });
+    }
+
+    void evict(Long accountId) {
+        evictLocal(accountId);
+        if (redisEnabled) {
+            try {
+                redisTemplate.delete(REDIS_PREFIX + accountId);
+            } catch (DataAccessException e) {
+                log.debug("Recent activity of account {} not evicted from Redis: {}", accountId, e.getMessage());
+            }
+        }
+        invalidationBus.publish(CACHE_NAME, accountId.toString());
+    }
+
+    private void evictLocal(Long accountId) {
+        writeStamps.incrementAndGet(stripe(accountId));
+        local.invalidate(accountId);
+    }
+
+    private List<TransactionResponse> newest(List<TransactionResponse> added, List<TransactionResponse> cached) {
+        List<TransactionResponse> rows = new ArrayList<>(added.size() + cached.size());
+        rows.addAll(added);
+        rows.addAll(cached);
+        rows.sort(NEWEST_FIRST);
+        return List.copyOf(rows.subList(0, Math.min(rows.size(), pageSize + 1)));
+    }
+
+    /**
+     * @return the account's rows in Redis, or null on a miss or if Redis is unavailable
+     */
+    private List<TransactionResponse> readRedis(Long accountId) {
+        if (!redisEnabled) {
+            return null;
+        }
+        try {
+            List<String> values = redisTemplate.opsForList().range(REDIS_PREFIX + accountId, 0, -1);
+            if (values == null || values.isEmpty()) {
+                return null;
+            }
+            List<TransactionResponse> rows = new ArrayList<>(values.size());
+            for (String value : values) {
+                rows.add(objectMapper.readValue(value, CachedRow.class).toResponse());
+            }
+            // Concurrent pushes from different instances can land out of order
+            return newest(rows, List.of());
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.debug("Recent activity of account {} not read from Redis: {}", accountId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(Long accountId, List<TransactionResponse> rows) {
+        // Redis cannot hold an empty list; an account without postings is cached locally only
+        if (!redisEnabled || rows.isEmpty()) {
+            return;
+        }
+        String key = REDIS_PREFIX + accountId;
+        try {
+            List<String> values = serialize(rows);
+            redisTemplate.execute(new SessionCallback<List<Object>>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> List<Object> execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, String> redis = (RedisOperations<String, String>) operations;
+                    redis.multi();
+                    redis.delete(key);
+                    redis.opsForList().rightPushAll(key, values);
+                    redis.expire(key, ttl);
+                    return redis.exec();
+                }
+            });
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.debug("Recent activity of account {} not written to Redis: {}", accountId, e.getMessage());
+        }
+    }
+
+    /**
+     * Prepend to the account's list if Redis has one, keeping it at page-size + 1 rows. A list that is not there
+     * stays absent: the next reader loads it whole from the database.
+     */
+    private void pushRedis(Long accountId, List<TransactionResponse> added) {
+        if (!redisEnabled) {
+            return;
+        }
+        String key = REDIS_PREFIX + accountId;
+        try {
+            List<String> values = serialize(added);
+            redisTemplate.execute(new SessionCallback<List<Object>>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> List<Object> execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, String> redis = (RedisOperations<String, String>) operations;
+                    redis.multi();
+                    values.forEach(value -> redis.opsForList().leftPushIfPresent(key, value));
+                    redis.opsForList().trim(key, 0, pageSize);
+                    return redis.exec();
+                }
+            });
+        } catch (DataAccessException | JsonProcessingException e) {
+            // A list we could not update must not be served
+            log.debug("Recent activity of account {} not pushed to Redis: {}", accountId, e.getMessage());
+            try {
+                redisTemplate.delete(key);
+            } catch (DataAccessException ignored) {
+                // Redis is down; the list expires on its own
+            }
+        }
+    }
+
+    private List<String> serialize(List<TransactionResponse> rows) throws JsonProcessingException {
+        List<String> values = new ArrayList<>(rows.size());
+        for (TransactionResponse row : rows) {
+            values.add(objectMapper.writeValueAsString(CachedRow.of(row)));
+        }
+        return values;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static int stripe(Long accountId) {
+        return Math.floorMod(Long.hashCode(accountId), STAMP_STRIPES);
+    }
+
+    private record Entry(List<TransactionResponse> rows, long loadedAt) {}
+
+    /**
+     * Redis form of a row. Unlike the API's JSON it keeps the full transaction date, which the next-page
+     * cursor is built from.
+     */
+    record CachedRow(Long transactionId, Long accountId, Transaction.TransactionType transactionType, Money amount,
+                     LocalDateTime transactionDate, Long fromAccountId, Long toAccountId,
+                     Transaction.TransactionStatus transactionStatus, String currencyCode, Money balanceAfter,
+                     String failureReason) {
+
+        static CachedRow of(TransactionResponse row) {
+            return new CachedRow(row.getTransactionId(), row.getAccountId(), row.getTransactionType(), row.getAmount(),
+                    row.getTransactionDate(), row.getFromAccountId(), row.getToAccountId(),
+                    row.getTransactionStatus(), row.getCurrencyCode(), row.getBalanceAfter(), row.getFailureReason());
+        }
+
+        TransactionResponse toResponse() {
+            return new TransactionResponse(transactionId, accountId, transactionType, amount, transactionDate,
+                    fromAccountId, toAccountId, transactionStatus, currencyCode, balanceAfter, failureReason);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package nz.co.tsb.demofortsb.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.exception.ResourceNotFoundException;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Streams account statements straight from a database cursor to the response.
+ * <p>
+ * Rows are read through a forward-only result stream (a server-side cursor on PostgreSQL, see
+ * {@link TransactionRepository#streamStatement}), written as they arrive and detached from the persistence
+ * context, so memory stays flat whatever the row count. The output is flushed after the first row, so the
+ * client starts receiving data before the query has finished.
+ * </p>
+ */
+@Service
+public class StatementService {
+    private static final Logger log = LoggerFactory.getLogger(StatementService.class);
+
+    // Open ends of the statement period, kept inside what every supported database can store
+    private static final LocalDateTime STATEMENT_START = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime STATEMENT_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    // Flush roughly every this many rows so the client sees steady progress
+    private static final int FLUSH_EVERY = 1000;
+
+    private static final String CSV_HEADER =
+            "transaction_id,transaction_date,transaction_type,amount,currency_code,from_account_id,to_account_id,transaction_status,balance_after";
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MetricService metricService;
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format of(String format) {
+            try {
+                return valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Unsupported statement format: " + format + " (use csv or ndjson)");
+            }
+        }
+    }
+
+    /**
+     * Fail fast, before any bytes are committed to the response, if the statement cannot be produced.
+     */
+    @Transactional(readOnly = true)
+    public void checkStatement(Long accountId, LocalDate fromDate, LocalDate toDate) {
+        if (!accountRepository.existsByAccountId(accountId)) {
+            throw new ResourceNotFoundException("Account", accountId.toString());
+        }
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new ValidationException("Statement 'from' date must not be after 'to' date");
+        }
+    }
+
+    /**
+     * Write the account's transactions from {@code fromDate} to {@code toDate} (inclusive, either may be null)
+     * in chronological order.
+     *
+     * @return number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long writeStatement(Long accountId, LocalDate fromDate, LocalDate toDate, Format format,
+                               OutputStream out) throws IOException {
+        LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : STATEMENT_START;
+        LocalDateTime to = toDate != null ? toDate.plusDays(1).atStartOfDay() : STATEMENT_END;
+
+        long started = System.currentTimeMillis();
+        long rows = 0;
+        boolean success = false;
+        try (Stream<Transaction> transactions = transactionRepository.streamStatement(accountId, from, to)) {
+            rows = format == Format.CSV
+                    ? writeCsv(transactions.iterator(), out)
+                    : writeNdjson(transactions.iterator(), out);
+            success = true;
+        } finally {
+            long durationMs = System.currentTimeMillis() - started;
+            metricService.recordStatementExport(format.extension(), rows, durationMs, success);
+            log.info("Statement for account {} ({}): {} rows in {} ms", accountId, format.extension(), rows, durationMs);
+        }
+        return rows;
+    }
+
+    private long writeCsv(Iterator<Transaction> transactions, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        long rows = 0;
+        StringBuilder line = new StringBuilder(128);
+        while (transactions.hasNext()) {
+            Transaction t = transactions.next();
+            line.setLength(0);
+            // Every column is a number, date, enum or currency code, so none needs quoting
+            line.append(t.getTransactionId()).append(',')
+                    .append(t.getTransactionDate()).append(',')
+                    .append(t.getTransactionType()).append(',')
+                    .append(t.getAmount()).append(',')
+                    .append(t.getCurrencyCode()).append(',')
+                    .append(t.getFromAccountId() != null ? t.getFromAccountId() : "").append(',')
+                    .append(t.getToAccountId() != null ? t.getToAccountId() : "").append(',')
+                    .append(t.getTransactionStatus()).append(',')
+                    .append(t.getBalanceAfter() != null ? t.getBalanceAfter() : "").append('\n');
+            writer.append(line);
+            entityManager.detach(t);
+            if (++rows == 1 || rows % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private long writeNdjson(Iterator<Transaction> transactions, OutputStream out) throws IOException {
+        ObjectWriter rowWriter = objectMapper.writerFor(TransactionResponse.class)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null);
+
+        long rows = 0;
+        while (transactions.hasNext()) {
+            Transaction t = transactions.next();
+            rowWriter.writeValue(generator, new TransactionResponse(t));
+            generator.writeRaw('\n');
+            entityManager.detach(t);
+            if (++rows == 1 || rows % FLUSH_EVERY == 0) {
+                generator.flush();
+            }
+        }
+        generator.close();
+        return rows;
+    }
+}
@@ -0,0 +1,167 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * One-off fill of {@code balance_after} on postings written before the column existed.
+ * <p>
+ * Accounts are walked in id order in chunks; a pool of workers each takes the next chunk, locks its accounts and
+ * fills every missing running balance with one set-based statement, so each chunk is its own short transaction
+ * and live transfers only wait on the chunk that holds their accounts. Postings written since the upgrade
+ * already carry a value and are left alone, which also makes the job safe to run again.
+ * It is off by default; enable it for the one run after upgrading with {@code app.balance-after.backfill.enabled=true}
+ * (environment {@code APP_BALANCE_AFTER_BACKFILL_ENABLED=true}) and drop the override once it has completed.
+ * The statement is a MERGE, so on PostgreSQL it needs 15 or later; the job refuses to start against anything older.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "app.balance-after.backfill.enabled", havingValue = "true")
+public class TransactionBalanceBackfillJob {
+    private static final Logger log = LoggerFactory.getLogger(TransactionBalanceBackfillJob.class);
+
+    static final int MIN_POSTGRES_MAJOR_VERSION = 15;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource dataSource;
+    private final int threads;
+    private final int chunkSize;
+
+    // Last account id handed out to a worker; guarded by this
+    private long lastAccountId;
+
+    public TransactionBalanceBackfillJob(AccountRepository accountRepository,
+                                         TransactionRepository transactionRepository,
+                                         PlatformTransactionManager transactionManager,
+                                         DataSource dataSource,
+                                         @Value("${app.balance-after.backfill.threads:4}") int threads,
+                                         @Value("${app.balance-after.backfill.chunk-size:100}") int chunkSize) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dataSource = dataSource;
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Runs in the background so startup does not wait for a large history; an unsupported database fails
+     * startup instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        checkDatabaseSupportsMerge();
+        Thread.ofPlatform().name("balance-backfill").start(this::backfill);
+    }
+
+    /**
+     * PostgreSQL only has MERGE from 15; older servers would reject every chunk with a syntax error.
+     */
+    void checkDatabaseSupportsMerge() {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if ("PostgreSQL".equals(metaData.getDatabaseProductName())
+                    && metaData.getDatabaseMajorVersion() < MIN_POSTGRES_MAJOR_VERSION) {
+                throw new IllegalStateException("Running balance backfill needs PostgreSQL "
+                        + MIN_POSTGRES_MAJOR_VERSION + " or later for MERGE, but the database is "
+                        + metaData.getDatabaseProductVersion());
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read the database version", e);
+        }
+    }
+
+    /**
+     * Fill every account's missing running balances and wait for all workers to finish.
+     *
+     * @return number of postings filled in
+     */
+    public long backfill() {
+        synchronized (this) {
+            lastAccountId = 0;
+        }
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("balance-backfill-", 0).factory());
+        try {
+            List<Callable<Long>> tasks = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                tasks.add(this::work);
+            }
+            long filled = 0;
+            for (Future<Long> result : workers.invokeAll(tasks)) {
+                filled += result.get();
+            }
+            log.info("Backfilled running balances on {} postings in {} ms",
+                    filled, (System.nanoTime() - start) / 1_000_000);
+            return filled;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Running balance backfill interrupted");
+            return 0;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Running balance backfill failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * One worker: take chunks until there are none left. A failed chunk is logged and skipped; running the
+     * job again picks it up.
+     */
+    private long work() {
+        long filled = 0;
+        List<Long> accountIds;
+        while (!(accountIds = nextChunk()).isEmpty()) {
+            try {
+                filled += backfillChunk(accountIds);
+            } catch (RuntimeException e) {
+                log.error("Could not backfill running balances for accounts {} to {}",
+                        accountIds.get(0), accountIds.get(accountIds.size() - 1), e);
+            }
+        }
+        return filled;
+    }
+
+    private synchronized List<Long> nextChunk() {
+        List<Long> accountIds = accountRepository.findAccountIdsAfter(lastAccountId, PageRequest.of(0, chunkSize));
+        if (!accountIds.isEmpty()) {
+            lastAccountId = accountIds.get(accountIds.size() - 1);
+        }
+        return accountIds;
+    }
+
+    private int backfillChunk(List<Long> accountIds) {
+        Integer filled = transactionTemplate.execute(status -> {
+            // Hold the account rows so no posting lands between reading the balance and walking the history
+            accountRepository.findAllByAccountIdInForUpdate(accountIds);
+            return transactionRepository.backfillBalanceAfter(accountIds);
+        });
+        return filled != null ? filled : 0;
+    }
+}
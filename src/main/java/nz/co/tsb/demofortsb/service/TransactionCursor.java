@@ -0,0 +1,37 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in an account's transaction history: the (transaction_date, transaction_id) of the last row
+ * returned. Clients only ever see it as an opaque token; it is bound to the account it was issued for.
+ */
+record TransactionCursor(Long accountId, LocalDateTime transactionDate, Long transactionId) {
+
+    private static final String VERSION = "v1";
+
+    String encode() {
+        String raw = VERSION + "|" + accountId + "|" + transactionDate + "|" + transactionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws ValidationException if the token is malformed or was issued for another account
+     */
+    static TransactionCursor decode(String token, Long accountId) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length == 4 && VERSION.equals(parts[0]) && Long.parseLong(parts[1]) == accountId) {
+                return new TransactionCursor(accountId, LocalDateTime.parse(parts[2]), Long.parseLong(parts[3]));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // fall through to the same error as a well-formed token for the wrong account
+        }
+        throw new ValidationException("Invalid transaction history cursor");
+    }
+}
@@ -0,0 +1,176 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Keeps the monthly partitions of the PostgreSQL {@code transaction} table (Liquibase changeset 16) ahead of the
+ * clock and, when a retention period is configured, moves expired months out of it.
+ * <p>
+ * The table has no DEFAULT partition, so a posting dated in a month without a partition cannot be inserted;
+ * months are therefore created a few ahead of time, while they are still empty. How far ahead they reach is
+ * exported as {@code transaction_partition_months_ahead}; alert when it drops below 1, which leaves at least a
+ * month to fix the creation before postings fail.
+ * An expired month is detached, which is a catalog change instead of a DELETE, and then moved into the archive
+ * schema where it can be dumped or dropped at leisure. Runs at startup and daily; every step is idempotent, so
+ * several instances running it at once is harmless.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "app.partitioning.enabled", havingValue = "true")
+public class TransactionPartitionMaintenance {
+    private static final Logger log = LoggerFactory.getLogger(TransactionPartitionMaintenance.class);
+
+    static final String PARENT_TABLE = "transaction";
+    static final String PARTITION_PREFIX = "transaction_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricService metricService;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final String archiveSchema;
+    private volatile int monthsAhead = -1;
+
+    public TransactionPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager,
+                                           MetricService metricService,
+                                           @Value("${app.partitioning.premake-months:3}") int premakeMonths,
+                                           @Value("${app.partitioning.retention-months:0}") int retentionMonths,
+                                           @Value("${app.partitioning.archive-schema:archive}") String archiveSchema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metricService = metricService;
+        this.premakeMonths = Math.max(1, premakeMonths);
+        this.retentionMonths = Math.max(0, retentionMonths);
+        this.archiveSchema = archiveSchema;
+        metricService.registerPartitionMonthsAhead(() -> monthsAhead);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${app.partitioning.cron:0 15 2 * * *}")
+    public void maintain() {
+        maintain(YearMonth.now());
+    }
+
+    void maintain(YearMonth currentMonth) {
+        TreeSet<YearMonth> attached = attachedMonths();
+
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = currentMonth.plusMonths(i);
+            if (!attached.contains(month) && createPartition(month)) {
+                attached.add(month);
+            }
+        }
+        monthsAhead = monthsAhead(attached, currentMonth);
+
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = currentMonth.minusMonths(retentionMonths);
+            for (YearMonth month : attached.headSet(oldestKept)) {
+                archivePartition(month);
+            }
+        }
+    }
+
+    int monthsAhead() {
+        return monthsAhead;
+    }
+
+    /**
+     * Months after the current one covered without a gap, or -1 if the current month itself has no partition.
+     */
+    static int monthsAhead(TreeSet<YearMonth> attached, YearMonth currentMonth) {
+        int ahead = -1;
+        while (attached.contains(currentMonth.plusMonths(ahead + 1))) {
+            ahead++;
+        }
+        return ahead;
+    }
+
+    /**
+     * Months that currently have a partition attached to the transaction table.
+     */
+    TreeSet<YearMonth> attachedMonths() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = CAST(? AS regclass)", String.class, PARENT_TABLE);
+        TreeSet<YearMonth> months = new TreeSet<>();
+        for (String name : names) {
+            monthOf(name).ifPresent(months::add);
+        }
+        return months;
+    }
+
+    private boolean createPartition(YearMonth month) {
+        String sql = String.format("CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                partitionName(month), PARENT_TABLE, month.atDay(1), month.plusMonths(1).atDay(1));
+        try {
+            jdbcTemplate.execute(sql);
+            log.info("Created transaction partition {}", partitionName(month));
+            metricService.recordPartitionMaintenance("create", true);
+            return true;
+        } catch (DataAccessException e) {
+            log.error("Could not create transaction partition {}: {}", partitionName(month), e.getMessage());
+            metricService.recordPartitionMaintenance("create", false);
+            return false;
+        }
+    }
+
+    private void archivePartition(YearMonth month) {
+        String partition = partitionName(month);
+        try {
+            // One transaction, so a partition is never left detached but outside the archive schema
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+                jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition);
+                jdbcTemplate.execute("ALTER TABLE " + partition + " SET SCHEMA " + archiveSchema);
+            });
+            log.info("Detached transaction partition {} into schema {}", partition, archiveSchema);
+            metricService.recordPartitionMaintenance("archive", true);
+        } catch (RuntimeException e) {
+            log.error("Could not archive transaction partition {}: {}", partition, e.getMessage());
+            metricService.recordPartitionMaintenance("archive", false);
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * The month a partition holds, or empty for a table not named transaction_pYYYYMM.
+     */
+    static Optional<YearMonth> monthOf(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(YearMonth.parse(partitionName.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
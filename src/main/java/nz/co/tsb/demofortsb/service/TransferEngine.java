@@ -0,0 +1,118 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.exception.Account.ConcurrentTransferException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs money-moving work in its own transaction and retries it when it loses a
+ * concurrency race: optimistic version conflicts, deadlocks, serialization failures
+ * and lock timeouts all surface as {@link ConcurrencyFailureException}.
+ * <p>
+ * Retries back off exponentially with full jitter, capped at {@code max-backoff-ms},
+ * so competing transfers on a hot account spread out instead of colliding again.
+ * </p>
+ */
+@Component
+public class TransferEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferEngine.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final MetricService metricService;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    public TransferEngine(PlatformTransactionManager transactionManager,
+                          MetricService metricService,
+                          @Value("${app.transfer.retry.max-attempts:5}") int maxAttempts,
+                          @Value("${app.transfer.retry.initial-backoff-ms:10}") long initialBackoffMs,
+                          @Value("${app.transfer.retry.max-backoff-ms:200}") long maxBackoffMs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metricService = metricService;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = Math.max(1, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+    }
+
+    /**
+     * Execute the work in a new transaction, retrying on concurrency failures.
+     *
+     * @param operationName metric tag for the kind of transfer being run
+     * @param work          the transactional unit; must be safe to run again from scratch
+     * @return the result of the first attempt that commits
+     * @throws ConcurrentTransferException if every attempt loses a concurrency race
+     */
+    public <T> T execute(String operationName, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Joined a caller's transaction: a retry could not undo what the caller already did
+            return work.get();
+        }
+
+        long startTime = System.currentTimeMillis();
+        int attempt = 1;
+        while (true) {
+            try {
+                T result = transactionTemplate.execute(status -> work.get());
+                metricService.recordTransferAttempts(operationName, attempt, true);
+                metricService.recordOperation(operationName, System.currentTimeMillis() - startTime, true);
+                return result;
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Transfer {} gave up after {} attempts: {}", operationName, attempt, e.getMessage());
+                    metricService.recordTransferAttempts(operationName, attempt, false);
+                    metricService.recordOperation(operationName, System.currentTimeMillis() - startTime, false);
+                    throw new ConcurrentTransferException(attempt, e);
+                }
+
+                long backoffMs = backoffMs(attempt);
+                log.debug("Transfer {} attempt {} hit {}, retrying in {} ms",
+                        operationName, attempt, e.getClass().getSimpleName(), backoffMs);
+                metricService.recordTransferRetry(operationName, e.getClass().getSimpleName());
+                sleep(backoffMs, attempt, e);
+                attempt++;
+            } catch (RuntimeException e) {
+                metricService.recordOperation(operationName, System.currentTimeMillis() - startTime, false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Acquire account row locks, recording how long the caller waited for them.
+     */
+    public <T> T lock(Supplier<T> lockAcquisition) {
+        long start = System.nanoTime();
+        try {
+            return lockAcquisition.get();
+        } finally {
+            metricService.recordTransferLockWait(System.nanoTime() - start);
+        }
+    }
+
+    // Full jitter: uniform in [0, min(max, initial * 2^(attempt-1))]
+    long backoffMs(int attempt) {
+        long ceiling = initialBackoffMs << Math.min(attempt - 1, 20);
+        return ThreadLocalRandom.current().nextLong(Math.min(ceiling, maxBackoffMs) + 1);
+    }
+
+    private void sleep(long backoffMs, int attempt, ConcurrencyFailureException cause) {
+        try {
+            Thread.sleep(backoffMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentTransferException(attempt, cause);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package nz.co.tsb.demofortsb.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nz.co.tsb.demofortsb.entity.Account;
+import nz.co.tsb.demofortsb.entity.JournalEntry;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.exception.Account.ConcurrentTransferException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Settles transfers accepted as PENDING by {@code POST /api/accounts/me/transfers:async}.
+ * <p>
+ * Accepted transfer ids go onto a bounded in-memory queue. A fixed number of virtual-thread workers
+ * drain it in micro-batches; each batch locks its PENDING rows and the accounts involved (both in id
+ * order), then moves every transfer to COMPLETED or FAILED in one transaction.
+ * </p>
+ * The queue is only a fast path: the PENDING row is the source of truth. On startup, and periodically
+ * after that, PENDING rows are re-queued, which covers a crash mid-settlement and a full queue alike.
+ */
+@Service
+public class TransferSettlementService {
+    private static final Logger log = LoggerFactory.getLogger(TransferSettlementService.class);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private MetricService metricService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private JournalService journalService;
+
+    @Autowired
+    private DailyBalanceService dailyBalanceService;
+
+    @Autowired
+    private RecentActivityCache recentActivityCache;
+
+    @Autowired
+    private AccountListCache accountListCache;
+
+    @Value("${app.transfer.async.workers:4}")
+    private int workerCount;
+
+    @Value("${app.transfer.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.transfer.async.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.transfer.async.sweep-min-age-ms:10000}")
+    private long sweepMinAgeMs;
+
+    private BlockingQueue<Long> queue;
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @PostConstruct
+    void init() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        metricService.registerTransferSettleQueue(queue);
+    }
+
+    /**
+     * Resume every PENDING transfer left from a previous run, then start the workers.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<Long> pending = transactionRepository.findPendingIdsCreatedBefore(LocalDateTime.now());
+        if (!pending.isEmpty()) {
+            log.info("Resuming {} PENDING transfers", pending.size());
+            pending.forEach(this::enqueue);
+        }
+
+        running = true;
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            workers.add(Thread.ofVirtual().name("transfer-settle-" + i).start(this::runWorker));
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Queue an accepted transfer for settlement. If the queue is full it stays PENDING for the sweeper.
+     */
+    public void enqueue(Long transactionId) {
+        if (!queued.add(transactionId)) {
+            return;
+        }
+        if (!queue.offer(transactionId)) {
+            queued.remove(transactionId);
+            log.warn("Settlement queue full, transaction {} left for the sweeper", transactionId);
+        }
+    }
+
+    /**
+     * Re-queue PENDING transfers the workers have not picked up, e.g. after a full queue or a failed batch.
+     */
+    @Scheduled(fixedDelayString = "${app.transfer.async.sweep-interval-ms:30000}")
+    public void sweep() {
+        if (!running) {
+            return;
+        }
+        transactionRepository.findPendingIdsCreatedBefore(LocalDateTime.now().minus(Duration.ofMillis(sweepMinAgeMs)))
+                .forEach(this::enqueue);
+    }
+
+    private void runWorker() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Long first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                queued.removeAll(batch);
+                settle(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Settlement worker error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Settle a batch; if it fails for a reason other than contention or a transient database error, settle its
+     * transfers one by one so a single bad transfer cannot hold up the others. Only a transfer that fails on its
+     * own for such a reason is marked FAILED.
+     */
+    void settle(List<Long> transactionIds) {
+        try {
+            List<Transaction> settled = transferEngine.execute("transfer-settle", () -> settleBatch(transactionIds));
+            LocalDateTime now = LocalDateTime.now();
+            for (Transaction transaction : settled) {
+                metricService.recordTransferSettle(transaction.getTransactionStatus().name().toLowerCase(),
+                        Duration.between(transaction.getCreatedAt(), now).toMillis());
+            }
+        } catch (ConcurrentTransferException e) {
+            log.warn("Settlement of {} transfers lost to contention, left PENDING for the sweeper", transactionIds.size());
+        } catch (TransientDataAccessException | DataAccessResourceFailureException | CannotCreateTransactionException e) {
+            // The database is unreachable or timed out; settling may succeed later, so nothing is failed
+            log.warn("Settlement of {} transfers hit a transient database error, left PENDING for the sweeper: {}",
+                    transactionIds.size(), e.getMessage());
+        } catch (RuntimeException e) {
+            if (transactionIds.size() > 1) {
+                log.warn("Settlement batch failed, retrying transfers individually: {}", e.getMessage());
+                transactionIds.forEach(id -> settle(List.of(id)));
+            } else {
+                log.error("Settlement of transaction {} failed", transactionIds.get(0), e);
+                markFailed(transactionIds.get(0), "Settlement error");
+            }
+        }
+    }
+
+    private List<Transaction> settleBatch(List<Long> transactionIds) {
+        List<Transaction> pending = transactionRepository.findPendingByIdInForUpdate(transactionIds);
+        if (pending.isEmpty()) {
+            return pending;
+        }
+
+        Set<Long> accountIds = new HashSet<>();
+        for (Transaction transaction : pending) {
+            accountIds.add(transaction.getFromAccountId());
+            accountIds.add(transaction.getToAccountId());
+        }
+        // Settling rewrites the PENDING row, so cached history is dropped rather than added to
+        recentActivityCache.evictAfterCommit(accountIds);
+        Map<Long, Account> accounts = transferEngine.lock(
+                        () -> accountRepository.findAllByAccountIdInForUpdate(accountIds)).stream()
+                .collect(Collectors.toMap(Account::getAccountId, Function.identity()));
+        accountListCache.evictAfterCommit(accounts.values().stream().map(Account::getCustomerId).toList());
+
+        List<Transaction> credits = new ArrayList<>();
+        for (Transaction transaction : pending) {
+            Account fromAccount = accounts.get(transaction.getFromAccountId());
+            Account toAccount = accounts.get(transaction.getToAccountId());
+
+            String failure = checkSettlement(transaction, fromAccount, toAccount);
+            if (failure != null) {
+                transaction.setTransactionStatus(Transaction.TransactionStatus.FAILED);
+                transaction.setFailureReason(failure);
+                outboxService.transferFailed(transaction);
+                continue;
+            }
+
+            fromAccount.setBalance(fromAccount.getBalance().minus(transaction.getAmount()));
+            toAccount.setBalance(toAccount.getBalance().plus(transaction.getAmount()));
+
+            // The PENDING row becomes the debit leg; the credit leg is written now
+            Transaction credit = AccountService.buildTransferRow(Transaction.TransactionType.TRANSFER_IN,
+                    fromAccount.getAccountId(), toAccount.getAccountId(), transaction.getAmount());
+            credit.setBalanceAfter(toAccount.getBalance());
+            // Both legs carry the credit's timestamp, already truncated to what the column stores
+            transaction.setTransactionStatus(Transaction.TransactionStatus.COMPLETED);
+            transaction.setTransactionDate(credit.getTransactionDate());
+            transaction.setBalanceAfter(fromAccount.getBalance());
+            journalService.post(JournalEntry.EntryType.TRANSFER, transaction, credit);
+            credits.add(credit);
+        }
+        transactionRepository.saveAll(credits);
+        List<Transaction> postings = new ArrayList<>(pending);
+        postings.addAll(credits);
+        dailyBalanceService.apply(postings);
+
+        int credit = 0;
+        for (Transaction transaction : pending) {
+            if (transaction.getTransactionStatus() == Transaction.TransactionStatus.COMPLETED) {
+                outboxService.transferCompleted(transaction, credits.get(credit++));
+            }
+        }
+        return pending;
+    }
+
+    private String checkSettlement(Transaction transaction, Account fromAccount, Account toAccount) {
+        if (fromAccount == null || !fromAccount.isAccountActive()) {
+            return "Source account is not active";
+        }
+        if (toAccount == null || !toAccount.isAccountActive()) {
+            return "Destination account is not active";
+        }
+        if (fromAccount.getBalance().isLessThan(transaction.getAmount())) {
+            return "Insufficient balance in source account";
+        }
+        return null;
+    }
+
+    private void markFailed(Long transactionId, String reason) {
+        try {
+            transferEngine.execute("transfer-settle", () -> {
+                transactionRepository.findPendingByIdInForUpdate(List.of(transactionId)).forEach(transaction -> {
+                    transaction.setTransactionStatus(Transaction.TransactionStatus.FAILED);
+                    transaction.setFailureReason(reason);
+                    outboxService.transferFailed(transaction);
+                    recentActivityCache.evictAfterCommit(List.of(transaction.getFromAccountId()));
+                });
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.error("Could not mark transaction {} FAILED; left PENDING for the sweeper", transactionId, e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package nz.co.tsb.demofortsb.config;
+
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Routing between two H2 databases, each of which knows its own name.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private MetricService metricService;
+
+    private final DataSource primary = database("routing-primary");
+    private final DataSource replica = database("routing-replica");
+    private final ReadYourWritesGuard guard = new ReadYourWritesGuard(60_000);
+
+    private ReplicaRoutingDataSource routing;
+    private LazyConnectionDataSourceProxy proxy;
+
+    @BeforeEach
+    void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new TestingAuthenticationToken("alice@test.nz", null, "ROLE_USER"));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        SecurityContextHolder.clearContext();
+        if (routing != null) {
+            routing.close();
+        }
+    }
+
+    @Test
+    void readOnlyTransactions_ShouldUseReplica_AndReadWriteThePrimary() {
+        // Arrange
+        useReplicas(Map.of("replica-0", replica));
+
+        // Act & Assert
+        assertEquals("routing-replica", serverName(true));
+        assertEquals("routing-primary", serverName(false));
+        verify(metricService).recordDataSourceRoute("replica", "read-only");
+        verify(metricService, atLeastOnce()).recordDataSourceRoute("primary", "read-write");
+    }
+
+    @Test
+    void readAfterCommittedWrite_ShouldStayOnPrimary() {
+        // Arrange
+        useReplicas(Map.of("replica-0", replica));
+
+        // Act: the committed read-write transaction pins the user
+        transactions(false).executeWithoutResult(status -> new JdbcTemplate(proxy).update("UPDATE node SET name = name"));
+
+        // Assert
+        assertEquals("routing-primary", serverName(true));
+        verify(metricService).recordDataSourceRoute("primary", "read-your-writes");
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new TestingAuthenticationToken("bob@test.nz", null, "ROLE_USER"));
+        assertEquals("routing-replica", serverName(true));
+    }
+
+    @Test
+    void replicaFailure_ShouldFailOverToPrimary_AndTakeReplicaOutOfRotation() throws SQLException {
+        // Arrange
+        DataSource broken = mock(DataSource.class);
+        when(broken.getConnection()).thenThrow(new SQLException("connection refused"));
+        useReplicas(Map.of("replica-0", broken));
+
+        // Act & Assert: either the first read or the first health check takes the replica out
+        assertEquals("routing-primary", serverName(true));
+        assertFalse(routing.isHealthy("replica-0"));
+        assertEquals("routing-primary", serverName(true));
+        verify(metricService, atLeastOnce()).recordDataSourceRoute("primary", "no-healthy-replica");
+    }
+
+    private void useReplicas(Map<String, DataSource> replicas) {
+        routing = new ReplicaRoutingDataSource(primary, replicas, guard, metricService, 60_000, 5);
+        routing.afterPropertiesSet();
+        proxy = new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private String serverName(boolean readOnly) {
+        return transactions(readOnly).execute(status ->
+                new JdbcTemplate(proxy).queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private TransactionTemplate transactions(boolean readOnly) {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(proxy);
+        transactionManager.addListener(guard);
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template;
+    }
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(50))");
+        jdbcTemplate.execute("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
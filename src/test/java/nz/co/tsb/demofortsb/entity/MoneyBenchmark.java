@@ -0,0 +1,153 @@
+package nz.co.tsb.demofortsb.entity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link Money} against the {@code BigDecimal} amounts it replaced, on the two loops a transfer runs through:
+ * the balance check and the debit and credit, and the JSON round trip of a request amount in and a posting out.
+ * <p>
+ * Not part of the test suite (no *Test suffix); run with {@code make bench-money}. Operations are timed in
+ * batches of {@code bench.batch}, so the figures are nanoseconds per operation (percentiles across batches)
+ * rather than the cost of {@code System.nanoTime()}. Allocation is per operation, on the calling thread.
+ * </p>
+ */
+class MoneyBenchmark {
+
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 200);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 500);
+    private static final int BATCH = Integer.getInteger("bench.batch", 1_000);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void transferArithmetic() {
+        Money[] moneyAmounts = new Money[BATCH];
+        BigDecimal[] decimalAmounts = new BigDecimal[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            moneyAmounts[i] = Money.ofMinor(1 + i % 5_000);
+            decimalAmounts[i] = BigDecimal.valueOf(1 + i % 5_000, 2);
+        }
+
+        Result decimals = measure(() -> {
+            BigDecimal from = new BigDecimal("1000000.00");
+            BigDecimal to = BigDecimal.ZERO.setScale(2, RoundingMode.UNNECESSARY);
+            int applied = 0;
+            for (BigDecimal amount : decimalAmounts) {
+                if (from.compareTo(amount) >= 0) {
+                    from = from.subtract(amount);
+                    to = to.add(amount);
+                    applied++;
+                }
+            }
+            return applied;
+        });
+        Result money = measure(() -> {
+            Money from = Money.parse("1000000.00");
+            Money to = Money.ZERO;
+            int applied = 0;
+            for (Money amount : moneyAmounts) {
+                if (!from.isLessThan(amount)) {
+                    from = from.minus(amount);
+                    to = to.plus(amount);
+                    applied++;
+                }
+            }
+            return applied;
+        });
+
+        report("balance check, debit and credit", decimals, money);
+    }
+
+    @Test
+    void jsonRoundTrip() throws Exception {
+        String moneyRequest = objectMapper.writeValueAsString(new MoneyPosting(Money.parse("125.50"), Money.ZERO));
+        String decimalRequest = objectMapper.writeValueAsString(
+                new DecimalPosting(new BigDecimal("125.50"), BigDecimal.ZERO.setScale(2, RoundingMode.UNNECESSARY)));
+        assertEquals(decimalRequest, moneyRequest);
+
+        Result decimals = measure(() -> {
+            int bytes = 0;
+            for (int i = 0; i < BATCH; i++) {
+                DecimalPosting in = read(decimalRequest, DecimalPosting.class);
+                bytes += write(new DecimalPosting(in.amount(), in.amount().add(in.balanceAfter()))).length();
+            }
+            return bytes;
+        });
+        Result money = measure(() -> {
+            int bytes = 0;
+            for (int i = 0; i < BATCH; i++) {
+                MoneyPosting in = read(moneyRequest, MoneyPosting.class);
+                bytes += write(new MoneyPosting(in.amount(), in.amount().plus(in.balanceAfter()))).length();
+            }
+            return bytes;
+        });
+
+        report("read a request amount, write a posting", decimals, money);
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param batch runs {@link #BATCH} operations and returns something derived from them, so none is optimised away
+     */
+    private static Result measure(IntSupplier batch) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += batch.getAsInt();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] nanos = new long[ITERATIONS];
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            sink += batch.getAsInt();
+            nanos[i] = System.nanoTime() - start;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        assertTrue(sink > 0);
+        Arrays.sort(nanos);
+        return new Result(nanos[ITERATIONS / 2] / (double) BATCH, nanos[(int) (ITERATIONS * 0.95)] / (double) BATCH,
+                allocated / ((long) ITERATIONS * BATCH));
+    }
+
+    private static void report(String name, Result decimals, Result money) {
+        System.out.printf("%n%s, %d batches of %d after %d warm-up%n", name, ITERATIONS, BATCH, WARMUP);
+        System.out.printf("  %-12s %10s %10s %12s%n", "", "p50 ns/op", "p95 ns/op", "alloc B/op");
+        print("BigDecimal", decimals);
+        print("Money", money);
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("  %-12s %10.1f %10.1f %12d%n", label,
+                result.p50NanosPerOp(), result.p95NanosPerOp(), result.allocatedBytesPerOp());
+    }
+
+    record MoneyPosting(Money amount, Money balanceAfter) {}
+
+    record DecimalPosting(BigDecimal amount, BigDecimal balanceAfter) {}
+
+    private record Result(double p50NanosPerOp, double p95NanosPerOp, long allocatedBytesPerOp) {}
+}
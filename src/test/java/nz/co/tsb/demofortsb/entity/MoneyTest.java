@@ -0,0 +1,65 @@
+package nz.co.tsb.demofortsb.entity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void parse_ShouldReadPlainDecimalsIntoMinorUnits() {
+        assertEquals(10000, Money.parse("100").minorUnits());
+        assertEquals(10050, Money.parse("100.5").minorUnits());
+        assertEquals(1, Money.parse("0.01").minorUnits());
+        assertEquals(-1205, Money.parse("-12.05").minorUnits());
+        assertEquals(2500, Money.parse("25.000").minorUnits());
+        assertEquals(120000, Money.parse("1.2E3").minorUnits());
+    }
+
+    @Test
+    void parse_WhenMoreThanTwoSignificantDecimals_ShouldReject() {
+        assertThrows(ArithmeticException.class, () -> Money.parse("1.005"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("."));
+        assertThrows(NumberFormatException.class, () -> Money.parse("12a"));
+    }
+
+    @Test
+    void arithmetic_ShouldBeExactAndOverflowChecked() {
+        // Arrange
+        Money balance = Money.parse("100.00");
+
+        // Act
+        Money after = balance.minus(Money.parse("60.01")).plus(Money.parse("0.01"));
+
+        // Assert
+        assertEquals(Money.parse("40.00"), after);
+        assertTrue(after.isLessThan(balance));
+        assertEquals(new BigDecimal("40.00"), after.toBigDecimal());
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1)));
+        assertThrows(IllegalArgumentException.class, () -> balance.plus(Money.ofMinor(1, "AUD")));
+    }
+
+    @Test
+    void toString_ShouldFormatTwoPlaces() {
+        assertEquals("0.00", Money.ZERO.toString());
+        assertEquals("-0.05", Money.ofMinor(-5).toString());
+        assertEquals("1234.50", Money.ofMinor(123450).toString());
+        assertEquals("-92233720368547758.08", Money.ofMinor(Long.MIN_VALUE).toString());
+    }
+
+    @Test
+    void json_ShouldRoundTripAsPlainNumber() throws JsonProcessingException {
+        assertEquals("100.10", objectMapper.writeValueAsString(Money.parse("100.1")));
+        assertEquals(Money.parse("100.10"), objectMapper.readValue("100.10", Money.class));
+        assertEquals(Money.parse("7.00"), objectMapper.readValue("7", Money.class));
+        assertEquals(Money.parse("7.25"), objectMapper.readValue("\"7.25\"", Money.class));
+        assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("1.001", Money.class));
+    }
+}
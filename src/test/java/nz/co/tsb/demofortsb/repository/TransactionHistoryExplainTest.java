@@ -0,0 +1,95 @@
+package nz.co.tsb.demofortsb.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the access paths of the account history queries: on a generated dataset the planner must answer
+ * them from an index on account_id, never by scanning the transaction table.
+ * The SQL mirrors the JPQL in {@link TransactionRepository}; keep the two in step.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.xml",
+        "spring.liquibase.contexts=test",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+class TransactionHistoryExplainTest {
+
+    private static final int ACCOUNTS = 20;
+    private static final int TRANSACTIONS = 20_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void generateHistory() {
+        // ANALYZE commits on H2, so the dataset outlives the test transaction; generate it once per context
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM customer WHERE email = 'explain@test.nz'", Integer.class);
+        if (existing != null && existing > 0) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO customer (first_name, last_name, email, phone_number, national_id, status, password_hash) " +
+                "VALUES ('Explain', 'Test', 'explain@test.nz', '0210000000', 'EXPLAIN1', 'ACTIVE', 'x')");
+        jdbcTemplate.update("INSERT INTO account (account_id, customer_id, account_number, balance, currency_code, status, version) " +
+                "SELECT x, (SELECT MIN(id) FROM customer), 'EXPLAIN-' || x, 0, 'NZD', 'ACTIVE', 0 FROM SYSTEM_RANGE(1, ?)", ACCOUNTS);
+        jdbcTemplate.update("INSERT INTO transaction (transaction_id, account_id, transaction_type, amount, transaction_date, " +
+                "transaction_status, currency_code) " +
+                "SELECT x, MOD(x, ?) + 1, CASEWHEN(MOD(x, 3) = 0, 'TRANSFER_OUT', 'TRANSFER_IN'), 1.00, " +
+                "DATEADD('MINUTE', x, TIMESTAMP '2024-01-01 00:00:00'), 'COMPLETED', 'NZD' FROM SYSTEM_RANGE(1, ?)",
+                ACCOUNTS, TRANSACTIONS);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void findAllTransactionsForAccount_ShouldUseAccountIndex() {
+        // Act
+        String plan = explain("SELECT * FROM transaction t WHERE t.account_id = 5 " +
+                "ORDER BY t.transaction_date DESC, t.transaction_id DESC");
+
+        // Assert
+        assertIndexScan(plan, "ACCOUNT_ID = CAST(5 AS BIGINT)");
+    }
+
+    @Test
+    void findHistoryPage_ShouldBeBoundedRangeOnAccountDateIndex() {
+        // Act
+        String plan = explain("SELECT * FROM transaction t WHERE t.account_id = 5 " +
+                "AND t.transaction_date >= TIMESTAMP '1900-01-01 00:00:00' AND t.transaction_date < TIMESTAMP '9999-12-31 00:00:00' " +
+                "AND t.transaction_date <= TIMESTAMP '2024-01-05 00:00:00' " +
+                "AND (t.transaction_date < TIMESTAMP '2024-01-05 00:00:00' OR t.transaction_id < 5700) " +
+                "ORDER BY t.transaction_date DESC, t.transaction_id DESC FETCH FIRST 51 ROWS ONLY");
+
+        // Assert
+        assertIndexScan(plan, "IDX_TRANSACTION_ACCOUNT_DATE_ID");
+        assertTrue(plan.contains("TRANSACTION_DATE <= TIMESTAMP '2024-01-05 00:00:00'"),
+                "keyset position should bound the index range:\n" + plan);
+    }
+
+    @Test
+    void findHistoryPageByType_ShouldFilterOnAccountDateIndexRange() {
+        // Act
+        String plan = explain("SELECT * FROM transaction t WHERE t.account_id = 5 AND t.transaction_type = 'TRANSFER_OUT' " +
+                "AND t.transaction_date >= TIMESTAMP '2024-01-02 00:00:00' AND t.transaction_date < TIMESTAMP '2024-01-03 00:00:00' " +
+                "AND t.transaction_date <= TIMESTAMP '2024-01-03 00:00:00' " +
+                "AND (t.transaction_date < TIMESTAMP '2024-01-03 00:00:00' OR t.transaction_id < 9223372036854775807) " +
+                "ORDER BY t.transaction_date DESC, t.transaction_id DESC FETCH FIRST 51 ROWS ONLY");
+
+        // Assert
+        assertIndexScan(plan, "IDX_TRANSACTION_ACCOUNT_DATE_ID");
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+
+    private static void assertIndexScan(String plan, String expected) {
+        assertFalse(plan.contains("tableScan"), "history query fell back to a table scan:\n" + plan);
+        assertTrue(plan.contains(expected), "expected " + expected + " in plan:\n" + plan);
+    }
+}
@@ -0,0 +1,175 @@
+package nz.co.tsb.demofortsb.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Cost of authenticating one request in {@link JwtAuthFilter}: the old path, which parsed and verified the
+ * token once per claim with a signing key rebuilt each time, against {@link JwtUtil#verify} for a token seen
+ * for the first time (one parse) and for a token already verified (cache hit). The old path verifies HS256 tokens;
+ * the new one verifies ES256 tokens, whose signature check costs more but happens once per token.
+ * <p>
+ * Not part of the test suite (no *Test suffix); run with {@code make bench-jwt-filter}. The blacklist (Redis for
+ * the old path, the near-cache for the new one) is a mock that answers "not revoked" and the token epoch store a mock at epoch 0, so the numbers are CPU only. Allocation is per request, on the calling thread.
+ * </p>
+ */
+class JwtAuthFilterBenchmark {
+
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 10_000);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 20_000);
+    private static final String SECRET = "benchmark-secret-that-is-at-least-256-bits-long";
+
+    private RedisTemplate<String, String> redisTemplate;
+    private JwtUtil jwtUtil;
+    private JwtAuthFilter filter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // stubOnly: a mock that records every call would dominate the allocation figures
+        redisTemplate = mock(RedisTemplate.class, withSettings().stubOnly());
+        when(redisTemplate.hasKey(anyString())).thenReturn(false);
+        RevokedTokenNearCache revokedTokens = mock(RevokedTokenNearCache.class, withSettings().stubOnly());
+        when(revokedTokens.isRevoked(anyString())).thenReturn(false);
+        TokenEpochStore tokenEpochs = mock(TokenEpochStore.class, withSettings().stubOnly());
+        JwtKeyRing keyRing = new JwtKeyRing(
+                JwtKeyRingTest.entry("bench", Keys.keyPairFor(SignatureAlgorithm.ES256), true), "bench", new ObjectMapper());
+        jwtUtil = new JwtUtil(revokedTokens, tokenEpochs, keyRing, new MetricService(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(jwtUtil, "SECRET", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "TOKEN_TTL_MINUTES", 60L);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", (long) ITERATIONS + WARMUP);
+        jwtUtil.init();
+
+        filter = new JwtAuthFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void authenticateRequest() throws Exception {
+        String token = jwtUtil.generateToken("bench@test.nz", "ROLE_USER");
+        List<String> freshTokens = new ArrayList<>(WARMUP + ITERATIONS);
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            freshTokens.add(jwtUtil.generateToken("bench" + i + "@test.nz", "ROLE_USER"));
+        }
+
+        String hs256Token = Jwts.builder()
+                .setSubject("bench@test.nz")
+                .claim("role", "ROLE_USER")
+                .setId("bench-jti")
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+
+        Result perClaim = measure(i -> legacyAuthenticate(hs256Token));
+        Result firstSeen = measure(i -> authenticate(freshTokens.get(i)));
+        Result cached = measure(i -> authenticate(token));
+
+        System.out.printf("%nJwtAuthFilter, one request, %d iterations after %d warm-up%n", ITERATIONS, WARMUP);
+        System.out.printf("  %-34s %10s %10s %14s%n", "", "p50 us", "p95 us", "alloc B/call");
+        print("per-claim parse, key per call (old)", perClaim);
+        print("single ES256 parse, first seen", firstSeen);
+        print("single parse, verified-token hit", cached);
+    }
+
+    private void authenticate(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/accounts/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        FilterChain chain = (req, res) -> assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * What the filter did before: validateToken (parse, blacklist lookup, expiry), isPasswordResetToken,
+     * extractEmail and extractRole, each building the key and a parser and verifying the signature again.
+     */
+    private void legacyAuthenticate(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/accounts/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        String bearer = request.getHeader("Authorization").substring(7);
+
+        Claims claims = parse(bearer);
+        if (Boolean.TRUE.equals(redisTemplate.hasKey("jwt:blacklist:" + claims.getId()))
+                || claims.getExpiration().before(new Date())) {
+            throw new IllegalStateException("token rejected");
+        }
+        if (!"PASSWORD_RESET".equals(parse(bearer).get("type", String.class))) {
+            String email = parse(bearer).getSubject();
+            String role = parse(bearer).get("role", String.class);
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                    email, null, List.of(new SimpleGrantedAuthority(role))));
+        }
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    private static Claims parse(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static Result measure(Consumer<Integer> request) {
+        for (int i = 0; i < WARMUP; i++) {
+            request.accept(ITERATIONS + i);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] nanos = new long[ITERATIONS];
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            request.accept(i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        Arrays.sort(nanos);
+        return new Result(nanos[ITERATIONS / 2], nanos[(int) (ITERATIONS * 0.95)], allocated / ITERATIONS);
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("  %-34s %10.1f %10.1f %14d%n", label,
+                result.p50Nanos() / 1e3, result.p95Nanos() / 1e3, result.allocatedBytes());
+    }
+
+    private record Result(long p50Nanos, long p95Nanos, long allocatedBytes) {}
+}
@@ -0,0 +1,62 @@
+package nz.co.tsb.demofortsb.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyRingTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * A JWT_SIGNING_KEYS entry for this key pair, with or without its private key.
+     */
+    static String entry(String kid, KeyPair pair, boolean canSign) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        return kid + ":" + (canSign ? encoder.encodeToString(pair.getPrivate().getEncoded()) : "")
+                + ":" + encoder.encodeToString(pair.getPublic().getEncoded());
+    }
+
+    @Test
+    void jwks_ShouldPublishEveryKey_IncludingVerifyOnlyOnes() throws Exception {
+        // Arrange
+        KeyPair current = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        KeyPair next = Keys.keyPairFor(SignatureAlgorithm.ES256);
+
+        // Act
+        JwtKeyRing ring = new JwtKeyRing(entry("current", current, true) + "," + entry("next", next, false),
+                "current", objectMapper);
+
+        // Assert
+        JsonNode keys = objectMapper.readTree(ring.jwks()).get("keys");
+        assertEquals(2, keys.size());
+        assertEquals("current", keys.get(0).get("kid").asText());
+        assertEquals("next", keys.get(1).get("kid").asText());
+        assertEquals("ES256", keys.get(1).get("alg").asText());
+        assertEquals("P-256", keys.get(1).get("crv").asText());
+        // 32 bytes, base64url without padding
+        assertEquals(43, keys.get(1).get("x").asText().length());
+        assertEquals(43, keys.get(1).get("y").asText().length());
+        assertEquals(next.getPublic(), ring.verificationKey("next"));
+        assertEquals(current.getPrivate(), ring.signingKey());
+        assertNull(ring.verificationKey("retired"));
+    }
+
+    @Test
+    void constructor_ShouldRejectAnActiveKeyThatCannotSign() {
+        // Arrange
+        String keys = entry("current", Keys.keyPairFor(SignatureAlgorithm.ES256), true) + ","
+                + entry("next", Keys.keyPairFor(SignatureAlgorithm.ES256), false);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> new JwtKeyRing(keys, "next", objectMapper));
+        assertThrows(IllegalStateException.class, () -> new JwtKeyRing("current:abc", "current", objectMapper));
+    }
+}
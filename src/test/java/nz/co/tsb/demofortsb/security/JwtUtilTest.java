@@ -0,0 +1,168 @@
+package nz.co.tsb.demofortsb.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtUtilTest {
+
+    @Mock
+    private RevokedTokenNearCache revokedTokens;
+
+    @Mock
+    private TokenEpochStore tokenEpochs;
+
+    private static final String SECRET = "test-secret-that-is-at-least-256-bits-long";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final KeyPair oldKey = Keys.keyPairFor(SignatureAlgorithm.ES256);
+    private final KeyPair newKey = Keys.keyPairFor(SignatureAlgorithm.ES256);
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = jwtUtil(JwtKeyRingTest.entry("old", oldKey, true), "old", true);
+    }
+
+    private JwtUtil jwtUtil(String keys, String activeKid, boolean legacyHs256Enabled) {
+        JwtUtil util = new JwtUtil(revokedTokens, tokenEpochs, new JwtKeyRing(keys, activeKid, new ObjectMapper()),
+                new MetricService(meterRegistry));
+        ReflectionTestUtils.setField(util, "SECRET", SECRET);
+        ReflectionTestUtils.setField(util, "TOKEN_TTL_MINUTES", 60L);
+        ReflectionTestUtils.setField(util, "RESET_TOKEN_TTL_MINUTES", 15L);
+        ReflectionTestUtils.setField(util, "verifiedCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(util, "legacyHs256Enabled", legacyHs256Enabled);
+        util.init();
+        return util;
+    }
+
+    @Test
+    void verify_ShouldReturnClaims_AndCheckTheSignatureOnlyOnce() {
+        // Arrange
+        String token = jwtUtil.generateToken("alice@test.nz", "ROLE_USER");
+
+        // Act
+        VerifiedToken first = jwtUtil.verify(token);
+        VerifiedToken second = jwtUtil.verify(token);
+
+        // Assert
+        assertNotNull(first);
+        assertEquals("alice@test.nz", first.email());
+        assertEquals("ROLE_USER", first.role());
+        assertFalse(first.isPasswordResetToken());
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tags("cache", "verified_token", "result", "hit")
+                .functionCounter().count());
+        // Revocation is still checked on every request
+        verify(revokedTokens, times(2)).isRevoked(first.tokenId());
+    }
+
+    @Test
+    void verify_ShouldRejectBlacklistedTamperedAndResetTokens() {
+        // Arrange
+        String token = jwtUtil.generateToken("alice@test.nz", "ROLE_USER");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        String reset = jwtUtil.generatePasswordResetToken("alice@test.nz", "1");
+        when(revokedTokens.isRevoked(anyString())).thenReturn(true, false);
+
+        // Act & Assert
+        assertNull(jwtUtil.verify(token));
+        assertNull(jwtUtil.verify(tampered));
+        assertTrue(jwtUtil.verify(reset).isPasswordResetToken());
+    }
+
+    @Test
+    void verify_ShouldRejectTokensIssuedBeforeTheCurrentEpoch() {
+        // Arrange
+        when(tokenEpochs.issue("alice@test.nz")).thenReturn(2L, 3L);
+        String before = jwtUtil.generateToken("alice@test.nz", "ROLE_USER");
+        String after = jwtUtil.generateToken("alice@test.nz", "ROLE_USER");
+        when(tokenEpochs.current("alice@test.nz")).thenReturn(3L);
+
+        // Act & Assert
+        assertNull(jwtUtil.verify(before));
+        assertEquals(3L, jwtUtil.verify(after).epoch());
+    }
+
+    @Test
+    void invalidateToken_ShouldBlacklistForTheTokensRemainingLifetime() {
+        // Arrange
+        String token = jwtUtil.generateToken("alice@test.nz", "ROLE_USER");
+        ArgumentCaptor<Duration> remaining = ArgumentCaptor.forClass(Duration.class);
+
+        // Act
+        jwtUtil.invalidateToken(token);
+
+        // Assert
+        verify(revokedTokens).revoke(eq(jwtUtil.extractTokenId(token)), remaining.capture());
+        assertTrue(remaining.getValue().compareTo(Duration.ofMinutes(59)) > 0);
+        assertTrue(remaining.getValue().compareTo(Duration.ofMinutes(60)) <= 0);
+    }
+
+    @Test
+    void verify_ShouldAcceptTokensFromTheOldKey_AfterRotation() {
+        // Arrange
+        String beforeRotation = jwtUtil.generateToken("alice@test.nz", "ROLE_USER");
+        JwtUtil rotated = jwtUtil(JwtKeyRingTest.entry("old", oldKey, false) + ","
+                + JwtKeyRingTest.entry("new", newKey, true), "new", true);
+        JwtUtil oldKeyRemoved = jwtUtil(JwtKeyRingTest.entry("new", newKey, true), "new", true);
+
+        // Act
+        String afterRotation = rotated.generateToken("alice@test.nz", "ROLE_USER");
+
+        // Assert
+        assertEquals("new", Jwts.parserBuilder().setSigningKey(newKey.getPublic()).build()
+                .parseClaimsJws(afterRotation).getHeader().getKeyId());
+        assertNotNull(rotated.verify(beforeRotation));
+        assertNotNull(rotated.verify(afterRotation));
+        assertNull(oldKeyRemoved.verify(beforeRotation));
+    }
+
+    @Test
+    void verify_ShouldAcceptLegacyHs256Tokens_OnlyWhileEnabled() {
+        // Arrange
+        String legacy = Jwts.builder()
+                .setSubject("alice@test.nz")
+                .claim("role", "ROLE_USER")
+                .setId("legacy-jti")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+        JwtUtil legacyDisabled = jwtUtil(JwtKeyRingTest.entry("old", oldKey, true), "old", false);
+
+        // Act & Assert
+        assertEquals("alice@test.nz", jwtUtil.verify(legacy).email());
+        assertNull(legacyDisabled.verify(legacy));
+    }
+
+    @Test
+    void verify_ShouldRejectExpiredToken() {
+        // Arrange
+        ReflectionTestUtils.setField(jwtUtil, "TOKEN_TTL_MINUTES", -1L);
+        String expired = jwtUtil.generateToken("alice@test.nz", "ROLE_USER");
+
+        // Act & Assert
+        assertNull(jwtUtil.verify(expired));
+        verifyNoInteractions(revokedTokens);
+    }
+}
@@ -0,0 +1,118 @@
+package nz.co.tsb.demofortsb.security;
+
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenStoreTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private TokenEpochStore tokenEpochs;
+
+    @Mock
+    private MetricService metricService;
+
+    private RefreshTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new RefreshTokenStore(redisTemplate, tokenEpochs, metricService, 336);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void issue_ShouldStoreOnlyTheHashOfANewFamily() {
+        // Arrange
+        when(tokenEpochs.current("alice@test.nz")).thenReturn(2L);
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+
+        // Act
+        String token = store.issue("alice@test.nz", "ROLE_USER");
+
+        // Assert
+        verify(redisTemplate).execute(any(RedisScript.class), keys.capture(), args.capture(), args.capture(),
+                args.capture(), args.capture(), args.capture());
+        String familyId = token.substring(0, token.indexOf('.'));
+        assertEquals(List.of("jwt:refresh:" + familyId), keys.getValue());
+        assertNotEquals(token, args.getAllValues().get(0));
+        assertEquals(List.of("alice@test.nz", "ROLE_USER", "2", "1209600000"),
+                args.getAllValues().subList(1, 5));
+        verify(metricService).recordRefreshToken("issued");
+    }
+
+    @Test
+    void rotate_ShouldReturnTheNextTokenOfTheFamily() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("jwt:refresh:family-1")), anyString(), anyString()))
+                .thenReturn(List.of("rotated", "alice@test.nz", "ROLE_USER", "2"));
+        when(tokenEpochs.current("alice@test.nz")).thenReturn(2L);
+
+        // Act
+        RefreshTokenStore.Rotation rotation = store.rotate("family-1.secret");
+
+        // Assert
+        assertEquals("alice@test.nz", rotation.email());
+        assertEquals("ROLE_USER", rotation.role());
+        assertTrue(rotation.refreshToken().startsWith("family-1."));
+        assertNotEquals("family-1.secret", rotation.refreshToken());
+        verify(metricService).recordRefreshToken("rotated");
+    }
+
+    @Test
+    void rotate_ShouldRejectAReusedToken() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString()))
+                .thenReturn(List.of("reused", "alice@test.nz"));
+
+        // Act & Assert
+        assertNull(store.rotate("family-1.already-rotated"));
+        verify(metricService).recordRefreshToken("reused");
+        verifyNoInteractions(tokenEpochs);
+    }
+
+    @Test
+    void rotate_ShouldEndFamiliesStartedBeforeLogoutEverywhere() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString()))
+                .thenReturn(List.of("rotated", "alice@test.nz", "ROLE_USER", "2"));
+        when(tokenEpochs.current("alice@test.nz")).thenReturn(3L);
+
+        // Act & Assert
+        assertNull(store.rotate("family-1.secret"));
+        verify(redisTemplate).delete("jwt:refresh:family-1");
+        verify(metricService).recordRefreshToken("revoked");
+    }
+
+    @Test
+    void rotate_ShouldRejectMalformedAndUnknownTokens_WithoutAFamily() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString()))
+                .thenReturn(List.of("missing"));
+
+        // Act & Assert
+        assertNull(store.rotate("no-separator"));
+        assertNull(store.rotate("family-2.secret"));
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyString(), anyString());
+        verify(metricService, times(2)).recordRefreshToken("invalid");
+    }
+}
@@ -0,0 +1,120 @@
+package nz.co.tsb.demofortsb.security;
+
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.service.CacheInvalidationBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevokedTokenNearCacheTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private MetricService metricService;
+
+    @Mock
+    private Cursor<String> cursor;
+
+    private RevokedTokenNearCache nearCache;
+
+    @BeforeEach
+    void setUp() {
+        nearCache = new RevokedTokenNearCache(redisTemplate, invalidationBus, metricService, 60_000);
+    }
+
+    @Test
+    void isRevoked_ShouldAskRedis_UntilTheFirstResync() {
+        // Arrange
+        when(redisTemplate.hasKey("jwt:blacklist:jti-1")).thenReturn(true);
+
+        // Act & Assert
+        assertTrue(nearCache.isRevoked("jti-1"));
+        verify(metricService).recordRevocationCheck("redis");
+    }
+
+    @Test
+    void isRevoked_ShouldAnswerFromMemory_AfterResync() {
+        // Arrange
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        when(cursor.hasNext()).thenReturn(true, false);
+        when(cursor.next()).thenReturn("jwt:blacklist:jti-1");
+
+        // Act
+        nearCache.resync();
+
+        // Assert
+        assertTrue(nearCache.isRevoked("jti-1"));
+        assertFalse(nearCache.isRevoked("jti-2"));
+        verify(redisTemplate, never()).hasKey(anyString());
+        verify(metricService).recordRevocationCheck("near_cache_hit");
+        verify(metricService).recordRevocationCheck("redis_avoided");
+        verify(cursor).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void revocations_ShouldReachThisAndOtherInstances_WithoutWaitingForResync() {
+        // Arrange
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        nearCache.resync();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        ArgumentCaptor<Consumer<String>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq("jwt_blacklist"), handler.capture());
+
+        // Act
+        nearCache.revoke("local-jti", Duration.ofMillis(59_001));
+        nearCache.revoke("expired-jti", Duration.ofSeconds(-1));
+        handler.getValue().accept("remote-jti");
+
+        // Assert
+        assertTrue(nearCache.isRevoked("local-jti"));
+        assertTrue(nearCache.isRevoked("remote-jti"));
+        verify(valueOperations).set("jwt:blacklist:local-jti", "true", 60, TimeUnit.SECONDS);
+        verify(redisTemplate, never()).expire(anyString(), anyLong(), any(TimeUnit.class));
+        verifyNoMoreInteractions(valueOperations);
+        verify(invalidationBus).publish("jwt_blacklist", "local-jti");
+    }
+
+    @Test
+    void failedResync_ShouldKeepCheckingRedis() {
+        // Arrange
+        when(redisTemplate.scan(any(ScanOptions.class))).thenThrow(new QueryTimeoutException("Redis down"));
+        when(redisTemplate.hasKey("jwt:blacklist:jti-1")).thenReturn(false);
+
+        // Act
+        nearCache.resync();
+
+        // Assert
+        assertFalse(nearCache.isRevoked("jti-1"));
+        verify(metricService).recordRevocationResync(false);
+        verify(metricService).recordRevocationCheck("redis");
+    }
+}
@@ -0,0 +1,109 @@
+package nz.co.tsb.demofortsb.security;
+
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.service.CacheInvalidationBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenEpochStoreTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private MetricService metricService;
+
+    private TokenEpochStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new TokenEpochStore(redisTemplate, invalidationBus, metricService, 60, 336, 30_000, 100);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void current_ShouldReadRedisOnce_AndDefaultToZero() {
+        // Arrange
+        when(valueOperations.get("jwt:epoch:alice@test.nz")).thenReturn(null);
+
+        // Act
+        long first = store.current("alice@test.nz");
+        long second = store.current("alice@test.nz");
+
+        // Assert
+        assertEquals(0, first);
+        assertEquals(0, second);
+        verify(valueOperations, times(1)).get("jwt:epoch:alice@test.nz");
+    }
+
+    @Test
+    void increment_ShouldBumpTheEpochWithATtl_AndTellOtherInstances() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("jwt:epoch:alice@test.nz")), anyString()))
+                .thenReturn(4L);
+
+        // Act
+        long epoch = store.increment("alice@test.nz");
+
+        // Assert: INCR and PEXPIRE in one script, with the TTL in milliseconds
+        assertEquals(4, epoch);
+        assertEquals(4, store.current("alice@test.nz"));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("jwt:epoch:alice@test.nz")),
+                eq(Long.toString(Duration.ofHours(336).toMillis())));
+        verify(invalidationBus).publish("jwt_epoch", "alice@test.nz:4");
+        verify(valueOperations, never()).get("jwt:epoch:alice@test.nz");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void increments_FromOtherInstances_ShouldNeverMoveTheEpochBack() {
+        // Arrange
+        ArgumentCaptor<Consumer<String>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq("jwt_epoch"), handler.capture());
+        when(valueOperations.getAndExpire("jwt:epoch:alice@test.nz", Duration.ofHours(336))).thenReturn("2");
+
+        // Act
+        handler.getValue().accept("alice@test.nz:5");
+        long issued = store.issue("alice@test.nz");
+
+        // Assert
+        assertEquals(5, issued);
+        assertEquals(5, store.current("alice@test.nz"));
+    }
+
+    @Test
+    void issue_ShouldFallBackToTheCachedEpoch_WhenRedisIsDown() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString())).thenReturn(2L);
+        store.increment("alice@test.nz");
+        when(valueOperations.getAndExpire("jwt:epoch:alice@test.nz", Duration.ofHours(336)))
+                .thenThrow(new QueryTimeoutException("Redis down"));
+
+        // Act & Assert
+        assertEquals(2, store.issue("alice@test.nz"));
+        assertEquals(0, store.issue("bob@test.nz"));
+    }
+}
@@ -0,0 +1,100 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.dto.response.AccountResponse;
+import nz.co.tsb.demofortsb.exception.Customer.CustomerNotFoundException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountListCacheTest {
+
+    private static final Long CUSTOMER_ID = 7L;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private MetricService metricService;
+
+    @Test
+    void get_ShouldLoadOnce_UntilEvictedByACommittedWrite() {
+        // Arrange
+        AccountListCache cache = new AccountListCache(invalidationBus, metricService, 100, 60);
+        AtomicInteger loads = new AtomicInteger();
+        TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:account-list-cache")));
+
+        // Act
+        cache.get(CUSTOMER_ID, () -> load(loads));
+        cache.get(CUSTOMER_ID, () -> load(loads));
+        transactions.executeWithoutResult(status -> {
+            cache.evictAfterCommit(List.of(CUSTOMER_ID));
+            // Not evicted before the commit
+            cache.get(CUSTOMER_ID, () -> load(loads));
+        });
+        cache.get(CUSTOMER_ID, () -> load(loads));
+
+        // Assert
+        assertEquals(2, loads.get());
+        verify(invalidationBus).publish(AccountListCache.CACHE_NAME, "7");
+    }
+
+    @Test
+    void get_ShouldNotKeepALoad_ThatRacedAnEviction() {
+        // Arrange
+        AccountListCache cache = new AccountListCache(invalidationBus, metricService, 100, 60);
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act: a transfer commits while the database read is in flight
+        cache.get(CUSTOMER_ID, () -> {
+            cache.evictAfterCommit(List.of(CUSTOMER_ID));
+            return load(loads);
+        });
+        cache.get(CUSTOMER_ID, () -> load(loads));
+
+        // Assert
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void invalidationFromAnotherInstance_ShouldDropEntry_AndFailedLoadsCacheNothing() {
+        // Arrange
+        AccountListCache cache = new AccountListCache(invalidationBus, metricService, 100, 60);
+        ArgumentCaptor<Consumer<String>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq(AccountListCache.CACHE_NAME), handler.capture());
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(CUSTOMER_ID, () -> load(loads));
+
+        // Act
+        handler.getValue().accept("7");
+
+        // Assert
+        assertThrows(CustomerNotFoundException.class, () -> cache.get(CUSTOMER_ID, () -> {
+            throw new CustomerNotFoundException("7");
+        }));
+        cache.get(CUSTOMER_ID, () -> load(loads));
+        assertEquals(2, loads.get());
+        verify(invalidationBus, never()).publish(eq(AccountListCache.CACHE_NAME), eq("7"));
+    }
+
+    private static List<AccountResponse> load(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return List.of(new AccountResponse());
+    }
+}
@@ -0,0 +1,148 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.dto.response.AccountResponse;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Latency and allocation of the account and transaction list reads: managed entities mapped to DTOs in a
+ * read-write transaction (the old path) against constructor-expression projections in a read-only one.
+ * <p>
+ * Not part of the test suite (no *Test suffix); run with {@code make bench-read-models}, sizes via
+ * {@code -Dbench.accounts} and {@code -Dbench.transactions}. H2 in memory, so the numbers isolate the ORM
+ * cost rather than database or network time. Allocation is per call, on the calling thread.
+ * </p>
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.xml",
+        "spring.liquibase.contexts=test",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountReadModelBenchmark {
+
+    private static final int ACCOUNTS = Integer.getInteger("bench.accounts", 200);
+    private static final int TRANSACTIONS = Integer.getInteger("bench.transactions", 20_000);
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 20);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 50);
+
+    private static final long FIRST_ACCOUNT_ID = 500_001L;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+    private Long customerId;
+
+    @BeforeEach
+    void generateCustomer() {
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        jdbcTemplate.update("INSERT INTO customer (first_name, last_name, email, phone_number, national_id, status, password_hash) " +
+                "VALUES ('Bench', 'Reads', 'bench-reads@test.nz', '0210000003', 'BENCH1', 'ACTIVE', 'x')");
+        customerId = jdbcTemplate.queryForObject("SELECT id FROM customer WHERE email = 'bench-reads@test.nz'", Long.class);
+        jdbcTemplate.update("INSERT INTO account (account_id, customer_id, account_number, balance, currency_code, status, version) " +
+                "SELECT ? + x, ?, 'BENCH-' || x, 100.00, 'NZD', 'ACTIVE', 0 FROM SYSTEM_RANGE(0, ?)",
+                FIRST_ACCOUNT_ID, customerId, ACCOUNTS - 1);
+        // The whole transaction history sits on the first account
+        jdbcTemplate.update("INSERT INTO transaction (transaction_id, account_id, transaction_type, amount, transaction_date, " +
+                "transaction_status, currency_code, from_account_id, to_account_id, balance_after) " +
+                "SELECT 5000000 + x, ?, CASEWHEN(MOD(x, 3) = 0, 'TRANSFER_OUT', 'TRANSFER_IN'), 1.00, " +
+                "DATEADD('MINUTE', x, TIMESTAMP '2024-01-01 00:00:00'), 'COMPLETED', 'NZD', ?, ?, 100.00 " +
+                "FROM SYSTEM_RANGE(1, ?)", FIRST_ACCOUNT_ID, FIRST_ACCOUNT_ID, FIRST_ACCOUNT_ID + 1, TRANSACTIONS);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE account_id = ?", FIRST_ACCOUNT_ID);
+        jdbcTemplate.update("DELETE FROM account WHERE customer_id = ?", customerId);
+        jdbcTemplate.update("DELETE FROM customer WHERE id = ?", customerId);
+    }
+
+    @Test
+    void accountList() {
+        Result entities = measure(() -> readWrite.execute(status ->
+                accountRepository.findByCustomerId(customerId).stream().map(AccountResponse::new).toList()));
+        Result projection = measure(() -> readOnly.execute(status ->
+                accountRepository.findResponsesByCustomerId(customerId)));
+
+        report("accounts of one customer (" + ACCOUNTS + ")", entities, projection);
+        assertEquals(entities.rows(), projection.rows());
+    }
+
+    @Test
+    void transactionList() {
+        Result entities = measure(() -> readWrite.execute(status ->
+                transactionRepository.findAllTransactionsForAccount(FIRST_ACCOUNT_ID).stream()
+                        .map(TransactionResponse::new).toList()));
+        Result projection = measure(() -> readOnly.execute(status ->
+                transactionRepository.findResponsesForAccount(FIRST_ACCOUNT_ID)));
+
+        report("transactions of one account (" + TRANSACTIONS + ")", entities, projection);
+        assertEquals(entities.rows(), projection.rows());
+    }
+
+    private static Result measure(Supplier<List<?>> read) {
+        for (int i = 0; i < WARMUP; i++) {
+            read.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] nanos = new long[ITERATIONS];
+        long allocated = 0;
+        int rows = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            rows = read.get().size();
+            nanos[i] = System.nanoTime() - start;
+            allocated += threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        }
+        Arrays.sort(nanos);
+        return new Result(rows, nanos[ITERATIONS / 2], nanos[(int) (ITERATIONS * 0.95)], allocated / ITERATIONS);
+    }
+
+    private static void report(String name, Result entities, Result projection) {
+        System.out.printf("%n%s, %d iterations after %d warm-up%n", name, ITERATIONS, WARMUP);
+        System.out.printf("  %-22s %10s %10s %14s%n", "", "p50 ms", "p95 ms", "alloc KB/call");
+        print("entities, read-write", entities);
+        print("projection, read-only", projection);
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("  %-22s %10.2f %10.2f %14d%n", label,
+                result.p50Nanos() / 1e6, result.p95Nanos() / 1e6, result.allocatedBytes() / 1024);
+    }
+
+    private record Result(int rows, long p50Nanos, long p95Nanos, long allocatedBytes) {}
+}
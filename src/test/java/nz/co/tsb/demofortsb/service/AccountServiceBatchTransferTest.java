@@ -0,0 +1,237 @@
+package nz.co.tsb.demofortsb.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.tsb.demofortsb.dto.request.TransferRequest;
+import nz.co.tsb.demofortsb.dto.response.BatchTransferItemResult;
+import nz.co.tsb.demofortsb.dto.response.BatchTransferResponse;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.exception.ResourceNotFoundException;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Batch transfers against the real schema. Each batch commits, so the tests clean up after themselves.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.xml",
+        "spring.liquibase.contexts=test",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "app.transfer.batch.max-size=10"
+})
+@Import({AccountService.class, TransferEngine.class, JournalService.class, DailyBalanceService.class,
+        MetricService.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountServiceBatchTransferTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private CustomerService customerService;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private TransferSettlementService transferSettlementService;
+
+    @MockBean
+    private OutboxService outboxService;
+
+    @MockBean
+    private RecentActivityCache recentActivityCache;
+
+    @MockBean
+    private AccountListCache accountListCache;
+
+    private Long customerId;
+    private Long otherCustomerId;
+
+    @BeforeEach
+    void createAccounts() {
+        customerId = insertCustomer("batch@test.nz", "0210000005", "BATCH1");
+        otherCustomerId = insertCustomer("batch-other@test.nz", "0210000006", "BATCH2");
+        insertAccount(920L, customerId, "BATCH-A", "50.00", "ACTIVE");
+        insertAccount(921L, customerId, "BATCH-B", "10.00", "ACTIVE");
+        insertAccount(922L, customerId, "BATCH-INACTIVE", "80.00", "INACTIVE");
+        insertAccount(923L, otherCustomerId, "BATCH-OTHER", "70.00", "ACTIVE");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        String accounts = "920, 921, 922, 923";
+        List<Long> journalEntries = jdbcTemplate.queryForList(
+                "SELECT DISTINCT journal_entry_id FROM transaction WHERE account_id IN (" + accounts + ")", Long.class);
+        jdbcTemplate.update("DELETE FROM transaction WHERE account_id IN (" + accounts + ")");
+        journalEntries.forEach(id -> jdbcTemplate.update("DELETE FROM journal_entry WHERE id = ?", id));
+        jdbcTemplate.update("DELETE FROM account_daily_balance WHERE account_id IN (" + accounts + ")");
+        jdbcTemplate.update("DELETE FROM account WHERE account_id IN (" + accounts + ")");
+        jdbcTemplate.update("DELETE FROM customer WHERE id IN (?, ?)", customerId, otherCustomerId);
+    }
+
+    @Test
+    void transferBatch_ShouldPostValidItems_AndReportEachFailureOnItsOwn() {
+        // Arrange: the last-but-one item only fails because the items before it drained BATCH-A
+        List<TransferRequest> transfers = List.of(
+                transfer("BATCH-A", "BATCH-B", "20.00"),
+                transfer("BATCH-A", "BATCH-A", "1.00"),
+                transfer("BATCH-NONE", "BATCH-B", "1.00"),
+                transfer("BATCH-A", "BATCH-NONE", "1.00"),
+                transfer("BATCH-A", "BATCH-OTHER", "1.00"),
+                transfer("BATCH-INACTIVE", "BATCH-B", "1.00"),
+                transfer("BATCH-B", "BATCH-INACTIVE", "1.00"),
+                transfer("BATCH-A", "BATCH-B", "25.00"),
+                transfer("BATCH-A", "BATCH-B", "5.01"),
+                transfer("BATCH-B", "BATCH-A", "0.01"));
+
+        // Act
+        BatchTransferResponse response = accountService.transferBatch(customerId, transfers);
+
+        // Assert
+        assertEquals(10, response.total());
+        assertEquals(3, response.succeeded());
+        assertEquals(7, response.failed());
+        List<String> errors = response.results().stream().map(BatchTransferItemResult::error).toList();
+        assertNull(errors.get(0));
+        assertEquals("Cannot transfer to the same account", errors.get(1));
+        assertEquals(new ResourceNotFoundException("Source account", "BATCH-NONE").getMessage(), errors.get(2));
+        assertEquals(new ResourceNotFoundException("Destination account", "BATCH-NONE").getMessage(), errors.get(3));
+        assertEquals("Both accounts must belong to the same customer", errors.get(4));
+        assertEquals("Source account is not active", errors.get(5));
+        assertEquals("Destination account is not active", errors.get(6));
+        assertNull(errors.get(7));
+        assertEquals("Insufficient balance in source account", errors.get(8));
+        assertNull(errors.get(9));
+        for (BatchTransferItemResult result : response.results()) {
+            assertEquals(result.error() == null ? Transaction.TransactionStatus.COMPLETED : Transaction.TransactionStatus.FAILED,
+                    result.status());
+            assertEquals(result.error() == null, result.transaction() != null);
+        }
+
+        assertEquals(Money.parse("5.01"), balanceOf(920L));
+        assertEquals(Money.parse("54.99"), balanceOf(921L));
+        assertEquals(Money.parse("80.00"), balanceOf(922L));
+        assertEquals(Money.parse("70.00"), balanceOf(923L));
+        verify(outboxService, times(3)).transferCompleted(any(), any());
+    }
+
+    @Test
+    void transferBatch_ShouldInsertTwoRowsPerItem_WithIdsFromOnePooledAllocation() {
+        // Arrange
+        List<TransferRequest> transfers = List.of(
+                transfer("BATCH-A", "BATCH-B", "10.00"),
+                transfer("BATCH-B", "BATCH-A", "3.00"),
+                transfer("BATCH-A", "BATCH-B", "7.50"));
+
+        // Act
+        BatchTransferResponse response = accountService.transferBatch(customerId, transfers);
+
+        // Assert
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT transaction_id, account_id, transaction_type, balance_after, journal_entry_id FROM transaction " +
+                "WHERE account_id IN (920, 921) ORDER BY transaction_id");
+        assertEquals(6, rows.size());
+
+        // Rows are persisted in item order, debit before credit, each with the balance as of its own item
+        List<Long> ids = rows.stream().map(row -> ((Number) row.get("transaction_id")).longValue()).toList();
+        assertEquals(5, ids.get(5) - ids.get(0), "ids should come from one sequence allocation, not a round trip each");
+        assertEquals(List.of(920L, 921L, 921L, 920L, 920L, 921L),
+                rows.stream().map(row -> ((Number) row.get("account_id")).longValue()).toList());
+        assertEquals(List.of("40.00", "20.00", "17.00", "43.00", "35.50", "24.50"),
+                rows.stream().map(row -> ((BigDecimal) row.get("balance_after")).toPlainString()).toList());
+
+        // Debit and credit of one item share a journal entry; items do not
+        assertEquals(rows.get(0).get("journal_entry_id"), rows.get(1).get("journal_entry_id"));
+        assertNotEquals(rows.get(1).get("journal_entry_id"), rows.get(2).get("journal_entry_id"));
+
+        // Each item returns its credit row
+        assertEquals(List.of(ids.get(1), ids.get(3), ids.get(5)),
+                response.results().stream().map(result -> result.transaction().getTransactionId()).toList());
+    }
+
+    @Test
+    void transferBatch_ShouldRejectAnOversizedBatch_BeforePostingAnything() {
+        // Arrange
+        List<TransferRequest> transfers = Collections.nCopies(11, transfer("BATCH-A", "BATCH-B", "0.01"));
+
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> accountService.transferBatch(customerId, transfers));
+        assertEquals("A batch cannot contain more than 10 transfers", exception.getMessage());
+        assertEquals(Money.parse("50.00"), balanceOf(920L));
+    }
+
+    @Test
+    void postMany_ShouldCheckOwnershipPerItem_WhenCustomersDiffer() {
+        // Arrange: how group commit calls it, one transaction for several customers
+        List<AccountService.PostingItem> items = List.of(
+                new AccountService.PostingItem(customerId, transfer("BATCH-A", "BATCH-B", "1.00")),
+                new AccountService.PostingItem(otherCustomerId, transfer("BATCH-OTHER", "BATCH-A", "2.00")),
+                new AccountService.PostingItem(customerId, transfer("BATCH-B", "BATCH-A", "3.00")));
+
+        // Act
+        List<AccountService.PostingOutcome> outcomes = new TransactionTemplate(transactionManager)
+                .execute(status -> accountService.postMany(items));
+
+        // Assert
+        assertNull(outcomes.get(0).failure());
+        assertInstanceOf(ValidationException.class, outcomes.get(1).failure());
+        assertNull(outcomes.get(2).failure());
+        assertEquals(921L, outcomes.get(0).transaction().getAccountId());
+        assertEquals(Money.parse("52.00"), outcomes.get(2).transaction().getBalanceAfter());
+        assertEquals(Money.parse("70.00"), balanceOf(923L));
+    }
+
+    private Long insertCustomer(String email, String phoneNumber, String nationalId) {
+        jdbcTemplate.update("INSERT INTO customer (first_name, last_name, email, phone_number, national_id, status, password_hash) " +
+                "VALUES ('Batch', 'Transfer', ?, ?, ?, 'ACTIVE', 'x')", email, phoneNumber, nationalId);
+        return jdbcTemplate.queryForObject("SELECT id FROM customer WHERE email = ?", Long.class, email);
+    }
+
+    private void insertAccount(long accountId, Long owner, String accountNumber, String balance, String status) {
+        jdbcTemplate.update("INSERT INTO account (account_id, customer_id, account_number, balance, currency_code, status, version) " +
+                "VALUES (?, ?, ?, ?, 'NZD', ?, 0)", accountId, owner, accountNumber, new BigDecimal(balance), status);
+    }
+
+    private Money balanceOf(long accountId) {
+        return Money.of(jdbcTemplate.queryForObject("SELECT balance FROM account WHERE account_id = ?",
+                BigDecimal.class, accountId));
+    }
+
+    private static TransferRequest transfer(String from, String to, String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromAccountNumber(from);
+        request.setToAccountNumber(to);
+        request.setAmount(Money.parse(amount));
+        return request;
+    }
+}
@@ -0,0 +1,253 @@
+package nz.co.tsb.demofortsb.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.tsb.demofortsb.dto.request.TransferRequest;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The conditional posting path against the real schema: each transfer commits, so the tests clean up after
+ * themselves instead of relying on a rolled-back test transaction.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.xml",
+        "spring.liquibase.contexts=test",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "app.transfer.posting-mode=conditional"
+})
+@Import({AccountService.class, TransferEngine.class, JournalService.class, DailyBalanceService.class,
+        MetricService.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountServiceConditionalPostingTest {
+
+    private static final long SOURCE_ID = 910L;
+    private static final long DESTINATION_ID = 911L;
+    private static final long INACTIVE_ID = 912L;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private CustomerService customerService;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private TransferSettlementService transferSettlementService;
+
+    @MockBean
+    private OutboxService outboxService;
+
+    @MockBean
+    private RecentActivityCache recentActivityCache;
+
+    @MockBean
+    private AccountListCache accountListCache;
+
+    private Long customerId;
+
+    @BeforeEach
+    void createAccounts() {
+        jdbcTemplate.update("INSERT INTO customer (first_name, last_name, email, phone_number, national_id, status, password_hash) " +
+                "VALUES ('Conditional', 'Posting', 'conditional@test.nz', '0210000004', 'COND1', 'ACTIVE', 'x')");
+        customerId = jdbcTemplate.queryForObject("SELECT id FROM customer WHERE email = 'conditional@test.nz'", Long.class);
+        insertAccount(SOURCE_ID, "COND-SRC", "100.00", "ACTIVE");
+        insertAccount(DESTINATION_ID, "COND-DST", "5.00", "ACTIVE");
+        insertAccount(INACTIVE_ID, "COND-INACTIVE", "0.00", "INACTIVE");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        List<Long> journalEntries = jdbcTemplate.queryForList(
+                "SELECT journal_entry_id FROM transaction WHERE account_id IN (?, ?, ?)", Long.class,
+                SOURCE_ID, DESTINATION_ID, INACTIVE_ID);
+        jdbcTemplate.update("DELETE FROM transaction WHERE account_id IN (?, ?, ?)", SOURCE_ID, DESTINATION_ID, INACTIVE_ID);
+        journalEntries.forEach(id -> jdbcTemplate.update("DELETE FROM journal_entry WHERE id = ?", id));
+        jdbcTemplate.update("DELETE FROM account_daily_balance WHERE account_id IN (?, ?, ?)", SOURCE_ID, DESTINATION_ID, INACTIVE_ID);
+        jdbcTemplate.update("DELETE FROM account WHERE customer_id = ?", customerId);
+        jdbcTemplate.update("DELETE FROM customer WHERE id = ?", customerId);
+    }
+
+    @Test
+    void transfer_ShouldDebitAndCreditInOneStatementEach_AndRecordBalancesAfter() {
+        // Act
+        TransactionResponse response = accountService.transferBetweenAccounts(customerId,
+                transfer("COND-SRC", "COND-DST", "30.25"));
+
+        // Assert
+        assertEquals(Money.parse("69.75"), balanceOf(SOURCE_ID));
+        assertEquals(Money.parse("35.25"), balanceOf(DESTINATION_ID));
+        assertEquals(DESTINATION_ID, response.getAccountId());
+        assertEquals(Money.parse("35.25"), response.getBalanceAfter());
+        assertEquals(new BigDecimal("69.75"), jdbcTemplate.queryForObject(
+                "SELECT balance_after FROM transaction WHERE account_id = ? AND transaction_type = 'TRANSFER_OUT'",
+                BigDecimal.class, SOURCE_ID));
+        // One UPDATE per side bumps the version without loading the entity
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT version FROM account WHERE account_id = ?", Integer.class, SOURCE_ID));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT version FROM account WHERE account_id = ?", Integer.class, DESTINATION_ID));
+    }
+
+    @Test
+    void transfer_ShouldRejectAnOverdraft_WithoutTouchingEitherAccount() {
+        // Act
+        ValidationException exception = assertThrows(ValidationException.class, () ->
+                accountService.transferBetweenAccounts(customerId, transfer("COND-SRC", "COND-DST", "100.01")));
+
+        // Assert
+        assertEquals("Insufficient balance in source account", exception.getMessage());
+        assertEquals(Money.parse("100.00"), balanceOf(SOURCE_ID));
+        assertEquals(Money.parse("5.00"), balanceOf(DESTINATION_ID));
+        assertEquals(0, countTransactions());
+    }
+
+    @Test
+    void transfer_ShouldAllowDebitingTheWholeBalance() {
+        // Act
+        accountService.transferBetweenAccounts(customerId, transfer("COND-SRC", "COND-DST", "100.00"));
+
+        // Assert
+        assertEquals(Money.ZERO, balanceOf(SOURCE_ID));
+        assertEquals(Money.parse("105.00"), balanceOf(DESTINATION_ID));
+    }
+
+    @Test
+    void transfer_ShouldRollBackTheDebit_WhenTheDestinationIsInactive() {
+        // Source (910) is debited before the inactive destination (912) is tried, in account_id order
+
+        // Act
+        ValidationException exception = assertThrows(ValidationException.class, () ->
+                accountService.transferBetweenAccounts(customerId, transfer("COND-SRC", "COND-INACTIVE", "10.00")));
+
+        // Assert
+        assertEquals("Destination account is not active", exception.getMessage());
+        assertEquals(Money.parse("100.00"), balanceOf(SOURCE_ID));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT version FROM account WHERE account_id = ?", Integer.class, SOURCE_ID));
+        assertEquals(0, countTransactions());
+    }
+
+    @Test
+    void transfer_ShouldReportAnInactiveSource_RatherThanInsufficientFunds() {
+        // Act
+        ValidationException exception = assertThrows(ValidationException.class, () ->
+                accountService.transferBetweenAccounts(customerId, transfer("COND-INACTIVE", "COND-DST", "0.01")));
+
+        // Assert
+        assertEquals("Source account is not active", exception.getMessage());
+        assertEquals(Money.parse("5.00"), balanceOf(DESTINATION_ID));
+    }
+
+    @Test
+    void debitIfSufficient_ShouldBindMoneyAsAnExactDecimal() {
+        // Arrange
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Act
+        int overdraft = transaction.execute(status -> accountRepository.debitIfSufficient(SOURCE_ID, Money.parse("100.01")));
+        int exact = transaction.execute(status -> accountRepository.debitIfSufficient(SOURCE_ID, Money.parse("99.99")));
+
+        // Assert
+        assertEquals(0, overdraft);
+        assertEquals(1, exact);
+        assertEquals(new BigDecimal("0.01"), jdbcTemplate.queryForObject(
+                "SELECT balance FROM account WHERE account_id = ?", BigDecimal.class, SOURCE_ID));
+    }
+
+    @Test
+    void concurrentTransfers_ShouldNeverOverdrawTheSource() throws Exception {
+        // Arrange: ten transfers of 15.00 race for 100.00, so exactly six can succeed
+        int threads = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        // Act
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        accountService.transferBetweenAccounts(customerId, transfer("COND-SRC", "COND-DST", "15.00"));
+                        return true;
+                    } catch (ValidationException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    succeeded++;
+                }
+            }
+
+            // Assert
+            assertEquals(6, succeeded);
+            assertEquals(Money.parse("10.00"), balanceOf(SOURCE_ID));
+            assertEquals(Money.parse("95.00"), balanceOf(DESTINATION_ID));
+            assertEquals(12, countTransactions());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void insertAccount(long accountId, String accountNumber, String balance, String status) {
+        jdbcTemplate.update("INSERT INTO account (account_id, customer_id, account_number, balance, currency_code, status, version) " +
+                "VALUES (?, ?, ?, ?, 'NZD', ?, 0)", accountId, customerId, accountNumber, new BigDecimal(balance), status);
+    }
+
+    private Money balanceOf(long accountId) {
+        return Money.of(jdbcTemplate.queryForObject("SELECT balance FROM account WHERE account_id = ?",
+                BigDecimal.class, accountId));
+    }
+
+    private int countTransactions() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE account_id IN (?, ?, ?)",
+                Integer.class, SOURCE_ID, DESTINATION_ID, INACTIVE_ID);
+    }
+
+    private static TransferRequest transfer(String from, String to, String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromAccountNumber(from);
+        request.setToAccountNumber(to);
+        request.setAmount(Money.parse(amount));
+        return request;
+    }
+}
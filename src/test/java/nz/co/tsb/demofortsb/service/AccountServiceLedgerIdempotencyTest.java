@@ -0,0 +1,247 @@
+package nz.co.tsb.demofortsb.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.tsb.demofortsb.dto.request.TransferRequest;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.exception.Account.IdempotencyKeyInProgressException;
+import nz.co.tsb.demofortsb.exception.Account.LedgerRejectedException;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.entity.IdempotencyRecord;
+import nz.co.tsb.demofortsb.entity.LedgerCheckpoint;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.LedgerCheckpointRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Keyed transfers in ledger posting mode: the claim commits before the shard posts, and the write-behind completes
+ * it. The flusher is left idle so each test decides when postings reach the database, and the journal only holds
+ * two postings so a test can stall the shard.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.xml",
+        "spring.liquibase.contexts=test",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "app.transfer.posting-mode=ledger",
+        "app.ledger.shards=1",
+        "app.ledger.flush-interval-ms=3600000",
+        // Two postings fill the journal, and a full journal the flusher has not drained stalls the shard at once
+        "app.ledger.journal-capacity=2",
+        "app.ledger.journal-full-timeout-ms=50"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({AccountService.class, TransferEngine.class, JournalService.class, DailyBalanceService.class,
+        IdempotencyService.class, LedgerEngine.class, MetricService.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountServiceLedgerIdempotencyTest {
+
+    @DynamicPropertySource
+    static void journalDir(DynamicPropertyRegistry registry) throws IOException {
+        String dir = Files.createTempDirectory("ledger-idempotency").toString();
+        registry.add("app.ledger.journal-dir", () -> dir);
+    }
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LedgerCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MetricService metricService;
+
+    @Autowired
+    private JournalService journalService;
+
+    @Autowired
+    private DailyBalanceService dailyBalanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private RedisTemplate<String, String> redisTemplate;
+
+    @MockBean
+    private CustomerService customerService;
+
+    @MockBean
+    private TransferSettlementService transferSettlementService;
+
+    @MockBean
+    private OutboxService outboxService;
+
+    @MockBean
+    private RecentActivityCache recentActivityCache;
+
+    @MockBean
+    private AccountListCache accountListCache;
+
+    private Long customerId;
+
+    @BeforeEach
+    void createAccounts() {
+        // Redis down: every idempotency lookup goes to the table
+        when(redisTemplate.opsForValue()).thenThrow(new RedisConnectionFailureException("Redis down"));
+
+        // The shard keeps accounts resident once loaded, so they are created once and kept for every test
+        jdbcTemplate.update("MERGE INTO customer (first_name, last_name, email, phone_number, national_id, status, password_hash) " +
+                "KEY (email) VALUES ('Ledger', 'Keyed', 'ledger-keyed@test.nz', '0210000007', 'LEDGER1', 'ACTIVE', 'x')");
+        customerId = jdbcTemplate.queryForObject("SELECT id FROM customer WHERE email = 'ledger-keyed@test.nz'", Long.class);
+        jdbcTemplate.update("MERGE INTO account (account_id, customer_id, account_number, balance, currency_code, status, version) " +
+                "KEY (account_id) VALUES (930, ?, 'LEDGER-A', 60.00, 'NZD', 'ACTIVE', 0), (931, ?, 'LEDGER-B', 0.00, 'NZD', 'ACTIVE', 0)",
+                customerId, customerId);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        ledgerEngine.flush();
+        jdbcTemplate.update("DELETE FROM idempotency_record WHERE customer_id = ?", customerId);
+        jdbcTemplate.update("DELETE FROM transaction WHERE account_id IN (930, 931)");
+    }
+
+    @Test
+    void keyedTransfer_ShouldCommitTheClaimFirst_AndReplayTheWrittenBehindResponse() {
+        // Act: accepted by the shard, not yet in the database
+        TransactionResponse accepted = accountService.transferBetweenAccounts(customerId, transfer("10.00"), "key-1");
+
+        // Assert: the claim is visible to a retry, which must not post again
+        assertNull(accepted.getTransactionId());
+        assertEquals(1, countRecords("key-1"));
+        assertThrows(IdempotencyKeyInProgressException.class,
+                () -> accountService.transferBetweenAccounts(customerId, transfer("10.00"), "key-1"));
+
+        // Act: write-behind inserts the rows and completes the claim in one transaction
+        assertTrue(ledgerEngine.flush());
+        TransactionResponse replayed = accountService.transferBetweenAccounts(customerId, transfer("10.00"), "key-1");
+
+        // Assert
+        Long creditId = jdbcTemplate.queryForObject(
+                "SELECT transaction_id FROM transaction WHERE account_id = 931 AND transaction_type = 'TRANSFER_IN'", Long.class);
+        assertEquals(creditId, replayed.getTransactionId());
+        assertEquals(creditId, jdbcTemplate.queryForObject(
+                "SELECT transaction_id FROM idempotency_record WHERE customer_id = ?", Long.class, customerId));
+        assertEquals(Money.parse("10.00"), replayed.getAmount());
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transaction WHERE account_id IN (930, 931)", Integer.class));
+        assertEquals(new BigDecimal("10.00"), jdbcTemplate.queryForObject(
+                "SELECT balance FROM account WHERE account_id = 931", BigDecimal.class));
+    }
+
+    @Test
+    void keyedTransfer_ShouldGiveTheKeyBack_WhenTheShardRejectsIt() {
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> accountService.transferBetweenAccounts(customerId, transfer("1000.00"), "key-2"));
+        assertEquals("Insufficient balance in source account", exception.getMessage());
+        assertEquals(0, countRecords("key-2"));
+    }
+
+    @Test
+    void keyedTransfer_ShouldGiveTheKeyBack_WhenTheShardIsStalled() {
+        // Arrange: fill the journal with unkeyed postings until the shard stalls waiting for write-behind
+        LedgerRejectedException stalled = null;
+        for (int i = 0; i < 3 && stalled == null; i++) {
+            try {
+                accountService.transferBetweenAccounts(customerId, transfer("0.01"), null);
+            } catch (LedgerRejectedException e) {
+                stalled = e;
+            }
+        }
+        assertNotNull(stalled);
+
+        // Act & Assert: the keyed transfer is turned away before journaling, so its claim is released
+        assertThrows(LedgerRejectedException.class,
+                () -> accountService.transferBetweenAccounts(customerId, transfer("0.01"), "key-3"));
+        assertEquals(0, countRecords("key-3"));
+
+        // Act: write-behind catches up and the client retries with the same key
+        assertTrue(ledgerEngine.flush());
+        TransactionResponse accepted = accountService.transferBetweenAccounts(customerId, transfer("0.01"), "key-3");
+
+        // Assert: posted rather than reported as in progress
+        assertNull(accepted.getTransactionId());
+        assertEquals(Money.parse("0.01"), accepted.getAmount());
+        assertEquals(1, countRecords("key-3"));
+    }
+
+    @Test
+    void keyedTransfer_ShouldCompleteItsClaim_WhenReplayedFromTheJournal() throws Exception {
+        // Arrange: the claim committed and the posting was journaled, then the process died before write-behind
+        IdempotencyRecord claim = idempotencyService.claim(customerId, "key-4", "fingerprint");
+        long checkpoint = checkpointRepository.findById(0).map(LedgerCheckpoint::getLastSequence).orElse(0L);
+        Path journalDir = Files.createTempDirectory("ledger-crash");
+        try (LedgerJournal journal = new LedgerJournal(0, journalDir.resolve("shard-0.journal"), 2)) {
+            journal.append(new LedgerPosting(0, checkpoint + 1, 930, 931, 100, System.currentTimeMillis(),
+                    claim.getRecordKey()));
+        }
+
+        // Act: recovery writes the journaled posting behind before the shard starts
+        LedgerEngine restarted = new LedgerEngine(accountRepository, transactionRepository, checkpointRepository,
+                transactionManager, metricService, outboxService, journalService, dailyBalanceService,
+                recentActivityCache, accountListCache, idempotencyService, 1, journalDir.toString(), 2, 100, 8,
+                5_000, 50, 3_600_000, 100);
+        restarted.start();
+        restarted.stop();
+
+        // Assert: the claim answers with the recovered credit leg instead of staying in progress
+        Long creditId = jdbcTemplate.queryForObject(
+                "SELECT transaction_id FROM transaction WHERE account_id = 931 AND transaction_type = 'TRANSFER_IN'", Long.class);
+        assertEquals(creditId, jdbcTemplate.queryForObject(
+                "SELECT transaction_id FROM idempotency_record WHERE record_key = ?", Long.class, claim.getRecordKey()));
+    }
+
+    private int countRecords(String idempotencyKey) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_record WHERE record_key = ?",
+                Integer.class, customerId + ":" + idempotencyKey);
+    }
+
+    private static TransferRequest transfer(String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromAccountNumber("LEDGER-A");
+        request.setToAccountNumber("LEDGER-B");
+        request.setAmount(Money.parse(amount));
+        return request;
+    }
+}
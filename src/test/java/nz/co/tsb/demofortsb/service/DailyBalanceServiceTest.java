@@ -0,0 +1,123 @@
+package nz.co.tsb.demofortsb.service;
+
+import jakarta.persistence.EntityManager;
+import nz.co.tsb.demofortsb.dto.response.DailyBalanceResponse;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.xml",
+        "spring.liquibase.contexts=test",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+@Import(DailyBalanceService.class)
+class DailyBalanceServiceTest {
+
+    private static final long ACCOUNT_ID = 900L;
+    private static final LocalDate DAY_1 = LocalDate.of(2024, 1, 1);
+    private static final LocalDate DAY_3 = LocalDate.of(2024, 1, 3);
+
+    @Autowired
+    private DailyBalanceService dailyBalanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void createAccountWithHistory() {
+        // +100.00 on day 1, -30.00 on day 2 and a PENDING transfer that has not touched the balance yet
+        jdbcTemplate.update("INSERT INTO customer (first_name, last_name, email, phone_number, national_id, status, password_hash) " +
+                "VALUES ('Daily', 'Balance', 'daily@test.nz', '0210000001', 'DAILY1', 'ACTIVE', 'x')");
+        jdbcTemplate.update("INSERT INTO account (account_id, customer_id, account_number, balance, currency_code, status, version) " +
+                "VALUES (?, (SELECT MIN(id) FROM customer WHERE email = 'daily@test.nz'), 'DAILY-1', 70.00, 'NZD', 'ACTIVE', 0)", ACCOUNT_ID);
+        insertPosting(1, "TRANSFER_IN", "100.00", "2024-01-01 09:00:00", "COMPLETED");
+        insertPosting(2, "TRANSFER_OUT", "30.00", "2024-01-02 10:00:00", "COMPLETED");
+        insertPosting(3, "TRANSFER_OUT", "5.00", "2024-01-02 11:00:00", "PENDING");
+    }
+
+    @Test
+    void seedAccount_ShouldWalkBackFromCurrentBalance() {
+        // Act
+        boolean seeded = dailyBalanceService.seedAccount(ACCOUNT_ID);
+
+        // Assert
+        assertTrue(seeded);
+        assertFalse(dailyBalanceService.seedAccount(ACCOUNT_ID));
+        assertEquals(Money.parse("100.00"), dailyBalanceService.getBalanceAtEndOf(ACCOUNT_ID, DAY_1).balance());
+        assertEquals(Money.parse("70.00"), dailyBalanceService.getBalanceAtEndOf(ACCOUNT_ID, DAY_3).balance());
+        assertEquals(Money.ZERO, dailyBalanceService.getBalanceAtEndOf(ACCOUNT_ID, DAY_1.minusDays(1)).balance());
+    }
+
+    @Test
+    void getBalanceAt_ShouldAddSameDayPostingsToPreviousClose() {
+        // Act & Assert
+        assertEquals(Money.parse("100.00"),
+                dailyBalanceService.getBalanceAt(ACCOUNT_ID, LocalDateTime.of(2024, 1, 2, 9, 59)).balance());
+        assertEquals(Money.parse("70.00"),
+                dailyBalanceService.getBalanceAt(ACCOUNT_ID, LocalDateTime.of(2024, 1, 2, 10, 0)).balance());
+    }
+
+    @Test
+    void apply_ShouldStartNewDaysAndCarryLatePostingsForward() {
+        // Arrange
+        dailyBalanceService.seedAccount(ACCOUNT_ID);
+
+        // Act: a new day, then a posting that settles late into day 1
+        dailyBalanceService.apply(List.of(posting(Transaction.TransactionType.TRANSFER_IN, "10.00", DAY_3.atTime(8, 0))));
+        newTransaction();
+        dailyBalanceService.apply(List.of(posting(Transaction.TransactionType.TRANSFER_OUT, "5.00", DAY_1.atTime(12, 0))));
+        newTransaction();
+
+        // Assert
+        List<DailyBalanceResponse> series = dailyBalanceService.getDailyBalances(ACCOUNT_ID, DAY_1.minusDays(1), DAY_3.plusDays(1));
+        assertEquals(List.of("0.00", "95.00", "65.00", "75.00", "75.00"),
+                series.stream().map(day -> day.closingBalance().toString()).toList());
+        assertEquals(Money.parse("5.00"), series.get(1).debits());
+        assertEquals(2, series.get(1).postingCount());
+        assertEquals(0, series.get(4).postingCount());
+    }
+
+    @Test
+    void getDailyBalances_WhenRangeIsReversed_ShouldReject() {
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> dailyBalanceService.getDailyBalances(ACCOUNT_ID, DAY_3, DAY_1));
+    }
+
+    private void insertPosting(long id, String type, String amount, String date, String status) {
+        jdbcTemplate.update("INSERT INTO transaction (transaction_id, account_id, transaction_type, amount, transaction_date, " +
+                        "transaction_status, currency_code) VALUES (?, ?, ?, ?, TIMESTAMP '" + date + "', ?, 'NZD')",
+                900_000 + id, ACCOUNT_ID, type, new BigDecimal(amount), status);
+    }
+
+    private static Transaction posting(Transaction.TransactionType type, String amount, LocalDateTime date) {
+        Transaction posting = AccountService.buildTransferRow(type, ACCOUNT_ID, ACCOUNT_ID, Money.parse(amount));
+        posting.setTransactionDate(date);
+        return posting;
+    }
+
+    /**
+     * Postings arrive in separate transactions in the application; flush and clear to read what they wrote.
+     */
+    private void newTransaction() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
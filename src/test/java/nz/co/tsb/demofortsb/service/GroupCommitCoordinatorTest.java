@@ -0,0 +1,121 @@
+package nz.co.tsb.demofortsb.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.tsb.demofortsb.dto.request.TransferRequest;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.service.AccountService.PostingItem;
+import nz.co.tsb.demofortsb.service.AccountService.PostingOutcome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitCoordinatorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Integer> groupSizes = new CopyOnWriteArrayList<>();
+    private GroupCommitCoordinator coordinator;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        coordinator.stop();
+    }
+
+    @Test
+    void submit_ShouldCommitConcurrentTransfersTogether() throws Exception {
+        // Arrange: a wide window so all concurrent submits land in one group
+        coordinator = coordinator(items -> items.stream().map(GroupCommitCoordinatorTest::completed).toList(), 200_000);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        try {
+            // Act
+            List<Future<TransactionResponse>> results = List.of(
+                    executor.submit(() -> coordinator.submit(1L, transfer("10.00"))),
+                    executor.submit(() -> coordinator.submit(2L, transfer("20.00"))),
+                    executor.submit(() -> coordinator.submit(3L, transfer("30.00"))));
+
+            // Assert: each request gets its own result
+            assertEquals(Money.parse("10.00"), results.get(0).get(5, TimeUnit.SECONDS).getAmount());
+            assertEquals(Money.parse("20.00"), results.get(1).get(5, TimeUnit.SECONDS).getAmount());
+            assertEquals(Money.parse("30.00"), results.get(2).get(5, TimeUnit.SECONDS).getAmount());
+            assertEquals(3, groupSizes.stream().mapToInt(Integer::intValue).sum());
+            assertTrue(groupSizes.size() < 3, "expected transfers to share a commit: " + groupSizes);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void submit_ShouldThrowItemFailure_ToItsOwnRequestOnly() {
+        // Arrange
+        coordinator = coordinator(items -> items.stream()
+                .map(item -> item.customerId() == 2L
+                        ? new PostingOutcome(null, new ValidationException("Insufficient balance in source account"))
+                        : completed(item))
+                .toList(), 0);
+
+        // Act & Assert
+        assertNotNull(coordinator.submit(1L, transfer("10.00")));
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> coordinator.submit(2L, transfer("10.00")));
+        assertEquals("Insufficient balance in source account", exception.getMessage());
+    }
+
+    @Test
+    void submit_ShouldFallBackToSingleCommits_WhenGroupFails() throws Exception {
+        // Arrange: any group containing customer 2 fails as a whole
+        coordinator = coordinator(items -> {
+            if (items.stream().anyMatch(item -> item.customerId() == 2L)) {
+                throw new IllegalStateException("boom");
+            }
+            return items.stream().map(GroupCommitCoordinatorTest::completed).toList();
+        }, 200_000);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        try {
+            // Act
+            Future<TransactionResponse> healthy = executor.submit(() -> coordinator.submit(1L, transfer("10.00")));
+            Future<TransactionResponse> broken = executor.submit(() -> coordinator.submit(2L, transfer("10.00")));
+
+            // Assert
+            assertNotNull(healthy.get(5, TimeUnit.SECONDS));
+            Exception exception = assertThrows(Exception.class, () -> broken.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, exception.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private GroupCommitCoordinator coordinator(Function<List<PostingItem>, List<PostingOutcome>> committer,
+                                               long windowMicros) {
+        return new GroupCommitCoordinator(items -> {
+            groupSizes.add(items.size());
+            return committer.apply(items);
+        }, new MetricService(meterRegistry), windowMicros, 100, 100, 1);
+    }
+
+    private static PostingOutcome completed(PostingItem item) {
+        TransactionResponse response = new TransactionResponse();
+        response.setAmount(item.request().getAmount());
+        return new PostingOutcome(response, null);
+    }
+
+    private static TransferRequest transfer(String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromAccountNumber("ACC001");
+        request.setToAccountNumber("ACC002");
+        request.setAmount(Money.parse(amount));
+        return request;
+    }
+}
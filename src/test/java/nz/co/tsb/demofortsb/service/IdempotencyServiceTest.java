@@ -0,0 +1,227 @@
+package nz.co.tsb.demofortsb.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.co.tsb.demofortsb.dto.request.TransferRequest;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.entity.IdempotencyRecord;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.exception.Account.IdempotencyKeyReuseException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private MetricService metricService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    private TransferRequest request;
+    private String fingerprint;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(idempotencyService, "ttlHours", 24L);
+        ReflectionTestUtils.setField(idempotencyService, "waitTimeoutMs", 5000L);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        request = new TransferRequest();
+        request.setFromAccountNumber("ACC001");
+        request.setToAccountNumber("ACC002");
+        request.setAmount(Money.parse("25.00"));
+        fingerprint = IdempotencyService.fingerprint(request);
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResponse_WithoutRunningTransfer() {
+        // Arrange
+        IdempotencyRecord stored = storedRecord("1:key-1", fingerprint, response(42L));
+        when(idempotencyRecordRepository.findById("1:key-1")).thenReturn(Optional.of(stored));
+
+        // Act
+        TransactionResponse result = idempotencyService.execute(1L, "key-1", fingerprint,
+                () -> fail("transfer must not run for a replayed key"));
+
+        // Assert
+        assertEquals(42L, result.getTransactionId());
+        verify(valueOperations).set(eq("idempotency:1:key-1"), anyString(), any());
+        verify(metricService).recordIdempotency("db_hit");
+    }
+
+    @Test
+    void execute_ShouldRunTransferAgain_WhenStoredRecordHasExpired() {
+        // Arrange: retention has passed but the purge has not run yet
+        IdempotencyRecord expired = storedRecord("1:key-1", fingerprint, response(42L));
+        expired.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        when(idempotencyRecordRepository.findById("1:key-1")).thenReturn(Optional.of(expired));
+
+        // Act
+        TransactionResponse result = idempotencyService.execute(1L, "key-1", fingerprint, () -> response(43L));
+
+        // Assert
+        assertEquals(43L, result.getTransactionId());
+        verify(idempotencyRecordRepository).deleteIfExpired(eq("1:key-1"), any(LocalDateTime.class));
+        verify(metricService).recordIdempotency("expired");
+        verify(metricService).recordIdempotency("executed");
+    }
+
+    @Test
+    void execute_ShouldCacheReplayOnlyForTheRecordsRemainingRetention() {
+        // Arrange
+        IdempotencyRecord stored = storedRecord("1:key-1", fingerprint, response(42L));
+        stored.setExpiresAt(LocalDateTime.now().plusMinutes(10));
+        when(idempotencyRecordRepository.findById("1:key-1")).thenReturn(Optional.of(stored));
+
+        // Act
+        idempotencyService.execute(1L, "key-1", fingerprint, () -> fail("transfer must not run for a replayed key"));
+
+        // Assert
+        verify(valueOperations).set(eq("idempotency:1:key-1"), anyString(),
+                argThat((Duration ttl) -> ttl.compareTo(Duration.ofMinutes(10)) <= 0 && ttl.toMinutes() >= 9));
+    }
+
+    @Test
+    void execute_ShouldRejectKeyReusedForDifferentTransfer() {
+        // Arrange
+        IdempotencyRecord stored = storedRecord("1:key-1", "other-fingerprint", response(42L));
+        when(idempotencyRecordRepository.findById("1:key-1")).thenReturn(Optional.of(stored));
+
+        // Act & Assert
+        assertThrows(IdempotencyKeyReuseException.class,
+                () -> idempotencyService.execute(1L, "key-1", fingerprint, () -> response(43L)));
+    }
+
+    @Test
+    void execute_ShouldRunTransferOnce_ForConcurrentDuplicates() throws Exception {
+        // Arrange: once the first attempt commits, its record becomes visible
+        AtomicReference<IdempotencyRecord> committed = new AtomicReference<>();
+        when(idempotencyRecordRepository.findById("1:key-1"))
+                .thenAnswer(invocation -> Optional.ofNullable(committed.get()));
+
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<TransactionResponse> first = executor.submit(() -> idempotencyService.execute(1L, "key-1", fingerprint, () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                await(release);
+                TransactionResponse response = response(42L);
+                committed.set(storedRecord("1:key-1", fingerprint, response));
+                return response;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<TransactionResponse> duplicate = executor.submit(() -> idempotencyService.execute(1L, "key-1", fingerprint, () -> {
+                runs.incrementAndGet();
+                return response(99L);
+            }));
+            release.countDown();
+
+            // Assert
+            assertEquals(42L, first.get(5, TimeUnit.SECONDS).getTransactionId());
+            assertEquals(42L, duplicate.get(5, TimeUnit.SECONDS).getTransactionId());
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_ShouldReplayWinner_WhenInsertLosesPrimaryKeyRace() {
+        // Arrange: another instance commits the key while our transfer is running
+        IdempotencyRecord stored = storedRecord("1:key-1", fingerprint, response(42L));
+        when(idempotencyRecordRepository.findById("1:key-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(stored));
+
+        // Act
+        TransactionResponse result = idempotencyService.execute(1L, "key-1", fingerprint, () -> {
+            throw new DataIntegrityViolationException("duplicate key value violates unique constraint");
+        });
+
+        // Assert
+        assertEquals(42L, result.getTransactionId());
+    }
+
+    @Test
+    void fingerprint_ShouldIgnoreAmountScale() {
+        TransferRequest sameAmount = new TransferRequest();
+        sameAmount.setFromAccountNumber("ACC001");
+        sameAmount.setToAccountNumber("ACC002");
+        sameAmount.setAmount(Money.parse("25"));
+
+        assertEquals(fingerprint, IdempotencyService.fingerprint(sameAmount));
+    }
+
+    private TransactionResponse response(Long transactionId) {
+        TransactionResponse response = new TransactionResponse();
+        response.setTransactionId(transactionId);
+        response.setAmount(Money.parse("25.00"));
+        return response;
+    }
+
+    private IdempotencyRecord storedRecord(String recordKey, String fingerprint, TransactionResponse response) {
+        IdempotencyRecord record = new IdempotencyRecord(recordKey, 1L, fingerprint);
+        record.setExpiresAt(LocalDateTime.now().plusHours(24));
+        record.setTransactionId(response.getTransactionId());
+        try {
+            record.setResponseBody(objectMapper.writeValueAsString(response));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return record;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.entity.JournalEntry;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.repository.JournalEntryRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JournalServiceTest {
+
+    @Mock
+    private JournalEntryRepository journalEntryRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @InjectMocks
+    private JournalService journalService;
+
+    @Test
+    void post_ShouldLinkBalancedPostingsToOneEntry() {
+        // Arrange
+        Transaction debit = AccountService.buildTransferRow(Transaction.TransactionType.TRANSFER_OUT, 1L, 2L, Money.parse("25.00"));
+        Transaction credit = AccountService.buildTransferRow(Transaction.TransactionType.TRANSFER_IN, 1L, 2L, Money.parse("25.00"));
+        when(journalEntryRepository.save(any(JournalEntry.class))).thenAnswer(invocation -> {
+            JournalEntry entry = invocation.getArgument(0);
+            ReflectionTestUtils.setField(entry, "id", 7L);
+            return entry;
+        });
+
+        // Act
+        JournalEntry entry = journalService.post(JournalEntry.EntryType.TRANSFER, debit, credit);
+
+        // Assert
+        assertEquals("NZD", entry.getCurrencyCode());
+        assertEquals(7L, debit.getJournalEntryId());
+        assertEquals(7L, credit.getJournalEntryId());
+        assertEquals(Money.parse("-25.00"), debit.getSignedAmount());
+    }
+
+    @Test
+    void post_WhenPostingsDoNotBalance_ShouldRejectWithoutSaving() {
+        // Arrange
+        Transaction debit = AccountService.buildTransferRow(Transaction.TransactionType.TRANSFER_OUT, 1L, 2L, Money.parse("25.00"));
+        Transaction credit = AccountService.buildTransferRow(Transaction.TransactionType.TRANSFER_IN, 1L, 2L, Money.parse("24.99"));
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> journalService.post(JournalEntry.EntryType.TRANSFER, debit, credit));
+        assertTrue(exception.getMessage().contains("do not balance"));
+        verify(journalEntryRepository, never()).save(any());
+        assertNull(debit.getJournalEntryId());
+    }
+}
@@ -0,0 +1,174 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.entity.Account;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.exception.Account.LedgerRejectedException;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerShardTest {
+
+    @TempDir
+    Path journalDir;
+
+    private final List<LedgerPosting> flushed = new CopyOnWriteArrayList<>();
+    private Map<String, Account> accounts;
+    private LedgerJournal journal;
+    private LedgerShard shard;
+
+    @BeforeEach
+    void setUp() {
+        accounts = Map.of(
+                "ACC001", account(1L, 10L, "ACC001", "100.00"),
+                "ACC002", account(2L, 10L, "ACC002", "0.00"),
+                "ACC003", account(3L, 20L, "ACC003", "50.00"));
+
+        journal = new LedgerJournal(0, journalDir.resolve("shard-0.journal"), 16);
+        // Refresh interval 0: every transfer re-reads the status of its accounts
+        shard = new LedgerShard(0, journal, 1, 100, 8, 0, 1000,
+                number -> Optional.ofNullable(accounts.get(number)), flushed::addAll, () -> Long.MAX_VALUE);
+        shard.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        shard.stop();
+        journal.close();
+    }
+
+    @Test
+    void submit_ShouldPostTransfersInSequence_AndHandThemToWriteBehind() {
+        // Act
+        LedgerPosting first = shard.submit(10L, "ACC001", "ACC002", 6000, null).join();
+        LedgerPosting second = shard.submit(10L, "ACC002", "ACC001", 1000, null).join();
+
+        // Assert
+        assertEquals(1, first.sequence());
+        assertEquals(2, second.sequence());
+        assertEquals(List.of(first, second), flushed);
+    }
+
+    @Test
+    void submit_ShouldRejectTransfer_WhenBalanceIsInsufficient() {
+        // Arrange
+        shard.submit(10L, "ACC001", "ACC002", 6000, null).join();
+
+        // Act & Assert: only 40.00 left
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> shard.submit(10L, "ACC001", "ACC002", 6000, null).join());
+        assertInstanceOf(ValidationException.class, exception.getCause());
+        assertEquals(1, flushed.size());
+    }
+
+    @Test
+    void submit_ShouldRejectAccountOwnedByAnotherCustomer() {
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> shard.submit(10L, "ACC001", "ACC003", 100, null).join());
+
+        assertInstanceOf(ValidationException.class, exception.getCause());
+    }
+
+    @Test
+    void submit_ShouldRejectAnAccountDeactivatedAfterItWasLoaded() {
+        // Arrange
+        shard.submit(10L, "ACC001", "ACC002", 100, null).join();
+        accounts.get("ACC002").setStatus(Account.AccountStatus.SUSPENDED);
+        accounts.get("ACC002").setBalance(Money.ZERO);
+
+        // Act
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> shard.submit(10L, "ACC001", "ACC002", 100, null).join());
+        accounts.get("ACC002").setStatus(Account.AccountStatus.ACTIVE);
+        shard.submit(10L, "ACC002", "ACC001", 100, null).join();
+
+        // Assert: the status was re-read, the ledger's own balance of ACC002 was kept
+        assertEquals("Destination account is not active", exception.getCause().getMessage());
+        assertEquals(2, flushed.size());
+    }
+
+    @Test
+    void submit_ShouldFailPostings_WhileWriteBehindIsAWholeJournalBehind() throws Exception {
+        // Arrange: a two-slot journal whose write-behind is stuck at sequence 0
+        AtomicLong checkpointed = new AtomicLong();
+        LedgerJournal small = new LedgerJournal(1, journalDir.resolve("shard-1.journal"), 2);
+        LedgerShard stuck = new LedgerShard(1, small, 1, 100, 8, 0, 50,
+                number -> Optional.ofNullable(accounts.get(number)), flushed::addAll, checkpointed::get);
+        stuck.start();
+        try {
+            stuck.submit(10L, "ACC001", "ACC002", 100, null).join();
+            stuck.submit(10L, "ACC001", "ACC002", 100, null).join();
+
+            // Act & Assert: the bounded wait runs out, and later postings fail without waiting again
+            CompletionException timedOut = assertThrows(CompletionException.class,
+                    () -> stuck.submit(10L, "ACC001", "ACC002", 100, null).join());
+            assertInstanceOf(LedgerRejectedException.class, timedOut.getCause());
+            assertTrue(stuck.isStalled());
+            assertThrows(CompletionException.class, () -> stuck.submit(10L, "ACC001", "ACC002", 100, null).join());
+
+            // Act & Assert: once write-behind catches up the journal is rewound and the next sequence is used
+            checkpointed.set(2);
+            LedgerPosting resumed = stuck.submit(10L, "ACC001", "ACC002", 100, null).join();
+            assertFalse(stuck.isStalled());
+            assertEquals(3, resumed.sequence());
+        } finally {
+            stuck.stop();
+            small.close();
+        }
+    }
+
+    @Test
+    void journal_ShouldReturnOnlyRecordsAboveCheckpoint_AfterReopen() throws Exception {
+        // Arrange
+        shard.submit(10L, "ACC001", "ACC002", 100, null).join();
+        shard.submit(10L, "ACC001", "ACC002", 200, null).join();
+        shard.submit(10L, "ACC001", "ACC002", 300, null).join();
+        shard.stop();
+        journal.close();
+
+        // Act: as on restart, with sequence 1 already checkpointed
+        journal = new LedgerJournal(0, journalDir.resolve("shard-0.journal"), 16);
+        List<LedgerPosting> replay = journal.readAfter(1);
+
+        // Assert
+        assertEquals(List.of(2L, 3L), replay.stream().map(LedgerPosting::sequence).toList());
+        assertEquals(300, replay.get(1).amountMinor());
+    }
+
+    @Test
+    void journal_ShouldKeepTheIdempotencyRecordKey_AfterReopen() throws Exception {
+        // Arrange
+        shard.submit(10L, "ACC001", "ACC002", 100, "10:key-é").join();
+        shard.submit(10L, "ACC001", "ACC002", 200, null).join();
+        shard.stop();
+        journal.close();
+
+        // Act
+        journal = new LedgerJournal(0, journalDir.resolve("shard-0.journal"), 16);
+        List<LedgerPosting> replay = journal.readAfter(0);
+
+        // Assert
+        assertEquals("10:key-é", replay.get(0).idempotencyKey());
+        assertNull(replay.get(1).idempotencyKey());
+    }
+
+    private static Account account(Long accountId, Long customerId, String accountNumber, String balance) {
+        Account account = new Account(customerId);
+        account.setAccountId(accountId);
+        account.setAccountNumber(accountNumber);
+        account.setBalance(Money.parse(balance));
+        return account;
+    }
+}
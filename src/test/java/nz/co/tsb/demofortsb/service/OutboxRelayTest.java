@@ -0,0 +1,89 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.dto.event.OutboxMessage;
+import nz.co.tsb.demofortsb.entity.OutboxEvent;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OutboxPublisher publisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private MetricService metricService;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        outboxRelay = new OutboxRelay(outboxEventRepository, publisher, transactionManager, metricService, 2, 5, 72);
+    }
+
+    @Test
+    void relay_ShouldPublishBatchesUntilBacklogIsDrained() {
+        // Arrange
+        OutboxEvent first = new OutboxEvent("TRANSFER_COMPLETED", 1L, "{}");
+        OutboxEvent second = new OutboxEvent("TRANSFER_COMPLETED", 1L, "{}");
+        OutboxEvent third = new OutboxEvent("TRANSFER_FAILED", 2L, "{}");
+        when(outboxEventRepository.claimUnpublished(any(Pageable.class)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third));
+
+        // Act
+        outboxRelay.relay();
+
+        // Assert
+        verify(outboxEventRepository, times(2)).claimUnpublished(any(Pageable.class));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OutboxMessage>> batches = ArgumentCaptor.forClass(List.class);
+        verify(publisher, times(2)).publish(batches.capture());
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals("TRANSFER_FAILED", batches.getAllValues().get(1).get(0).eventType());
+        assertNotNull(first.getPublishedAt());
+        assertNotNull(third.getPublishedAt());
+        verify(metricService, times(3)).recordOutboxPublished(anyString(), anyLong());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void relay_WhenPublishFails_ShouldRollBackAndLeaveEventsUnpublished() {
+        // Arrange
+        OutboxEvent event = new OutboxEvent("TRANSFER_COMPLETED", 1L, "{}");
+        when(outboxEventRepository.claimUnpublished(any(Pageable.class))).thenReturn(List.of(event));
+        doThrow(new IllegalStateException("broker down")).when(publisher).publish(anyList());
+
+        // Act
+        outboxRelay.relay();
+
+        // Assert
+        assertNull(event.getPublishedAt());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(metricService).recordOutboxFailure();
+        verify(metricService, never()).recordOutboxPublished(anyString(), anyLong());
+    }
+}
@@ -0,0 +1,169 @@
+package nz.co.tsb.demofortsb.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.co.tsb.demofortsb.dto.response.TransactionResponse;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.exception.ResourceNotFoundException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecentActivityCacheTest {
+
+    private static final Long ACCOUNT_ID = 1L;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 9, 0, 0, 123_456_000);
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ListOperations<String, String> listOperations;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private MetricService metricService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void recent_ShouldLoadFromDatabaseOnce_ThenServeFromMemory() {
+        // Arrange
+        RecentActivityCache cache = cache(false);
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        List<TransactionResponse> first = cache.recent(ACCOUNT_ID, limit -> {
+            loads.incrementAndGet();
+            assertEquals(4, limit);
+            return List.of(row(2), row(1));
+        });
+        List<TransactionResponse> second = cache.recent(ACCOUNT_ID, limit -> fail("should be cached"));
+
+        // Assert
+        assertEquals(1, loads.get());
+        assertEquals(first, second);
+        verify(metricService).recordCacheRead(RecentActivityCache.CACHE_NAME, "database");
+        verify(metricService).recordCacheRead(RecentActivityCache.CACHE_NAME, "local");
+    }
+
+    @Test
+    void add_ShouldWriteThroughNewestFirst_KeepingPageSizePlusOneRows() {
+        // Arrange
+        RecentActivityCache cache = cache(false);
+        cache.recent(ACCOUNT_ID, limit -> List.of(row(4), row(3), row(2), row(1)));
+
+        // Act: no transaction is active, so the postings are added at once
+        cache.addAfterCommit(List.of(posting(5), posting(6)));
+
+        // Assert
+        List<TransactionResponse> rows = cache.recent(ACCOUNT_ID, limit -> fail("should be cached"));
+        assertEquals(List.of(6L, 5L, 4L, 3L), rows.stream().map(TransactionResponse::getTransactionId).toList());
+        assertEquals(START.plusMinutes(6), rows.get(0).getTransactionDate());
+        verify(invalidationBus).publish(RecentActivityCache.CACHE_NAME, "1");
+    }
+
+    @Test
+    void recent_ShouldNotKeepALoad_ThatRacedAWrite() {
+        // Arrange
+        RecentActivityCache cache = cache(false);
+
+        // Act: a transfer commits while the database read is in flight
+        List<TransactionResponse> raced = cache.recent(ACCOUNT_ID, limit -> {
+            cache.addAfterCommit(List.of(posting(2)));
+            return List.of(row(1));
+        });
+        List<TransactionResponse> reloaded = cache.recent(ACCOUNT_ID, limit -> List.of(row(2), row(1)));
+
+        // Assert
+        assertEquals(1, raced.size());
+        assertEquals(2, reloaded.size());
+    }
+
+    @Test
+    void recent_ShouldCacheNothing_WhenLoaderThrows() {
+        // Arrange
+        RecentActivityCache cache = cache(false);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> cache.recent(ACCOUNT_ID, limit -> {
+            throw new ResourceNotFoundException("Account", "1");
+        }));
+        assertEquals(1, cache.recent(ACCOUNT_ID, limit -> List.of(row(1))).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void invalidationFromAnotherInstance_ShouldDropLocalEntry() {
+        // Arrange
+        RecentActivityCache cache = cache(false);
+        ArgumentCaptor<Consumer<String>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq(RecentActivityCache.CACHE_NAME), handler.capture());
+        cache.recent(ACCOUNT_ID, limit -> List.of(row(1)));
+
+        // Act
+        handler.getValue().accept("1");
+
+        // Assert
+        assertEquals(2, cache.recent(ACCOUNT_ID, limit -> List.of(row(2), row(1))).size());
+    }
+
+    @Test
+    void recent_ShouldServeRedisTier_InNewestFirstOrder() throws Exception {
+        // Arrange
+        RecentActivityCache cache = cache(true);
+        List<String> stored = new ArrayList<>();
+        for (int id : new int[]{2, 3, 1}) {
+            stored.add(objectMapper.writeValueAsString(RecentActivityCache.CachedRow.of(row(id))));
+        }
+        when(redisTemplate.opsForList()).thenReturn(listOperations);
+        when(listOperations.range("recent-activity:1", 0, -1)).thenReturn(stored);
+
+        // Act
+        List<TransactionResponse> rows = cache.recent(ACCOUNT_ID, limit -> fail("should come from Redis"));
+
+        // Assert: full precision survives, so the next-page cursor matches the stored row
+        assertEquals(List.of(3L, 2L, 1L), rows.stream().map(TransactionResponse::getTransactionId).toList());
+        assertEquals(START.plusMinutes(3), rows.get(0).getTransactionDate());
+        assertEquals(Money.parse("10.00"), rows.get(0).getAmount());
+        verify(metricService).recordCacheRead(RecentActivityCache.CACHE_NAME, "redis");
+        verify(redisTemplate, never()).execute(any(SessionCallback.class));
+    }
+
+    private RecentActivityCache cache(boolean redisEnabled) {
+        return new RecentActivityCache(redisTemplate, objectMapper, invalidationBus, metricService,
+                3, 100, 300, redisEnabled);
+    }
+
+    private static Transaction posting(long id) {
+        Transaction transaction = AccountService.buildTransferRow(Transaction.TransactionType.TRANSFER_OUT,
+                ACCOUNT_ID, 2L, Money.parse("10.00"));
+        transaction.setTransactionId(id);
+        transaction.setTransactionDate(START.plusMinutes(id));
+        return transaction;
+    }
+
+    private static TransactionResponse row(long id) {
+        return new TransactionResponse(posting(id));
+    }
+}
@@ -0,0 +1,122 @@
+package nz.co.tsb.demofortsb.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.exception.ResourceNotFoundException;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementServiceTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private MetricService metricService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @InjectMocks
+    private StatementService statementService;
+
+    @Test
+    void writeStatement_Csv_ShouldWriteHeaderAndOneLinePerRowInHalfOpenPeriod() throws Exception {
+        // Arrange
+        Transaction debit = posting(11L, Transaction.TransactionType.TRANSFER_OUT, "25.50");
+        debit.setBalanceAfter(Money.parse("74.50"));
+        Transaction credit = posting(12L, Transaction.TransactionType.TRANSFER_IN, "3.00");
+        when(transactionRepository.streamStatement(1L,
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0)))
+                .thenReturn(Stream.of(debit, credit));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = statementService.writeStatement(1L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                StatementService.Format.CSV, out);
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, rows);
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("transaction_id,"));
+        assertEquals("11,2024-01-15T09:30,TRANSFER_OUT,25.50,NZD,1,2,COMPLETED,74.50", lines[1]);
+        assertTrue(lines[2].endsWith(",COMPLETED,"));
+        verify(entityManager).detach(debit);
+        verify(entityManager).detach(credit);
+        verify(metricService).recordStatementExport(eq("csv"), eq(2L), anyLong(), eq(true));
+    }
+
+    @Test
+    void writeStatement_Ndjson_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        // Arrange
+        when(transactionRepository.streamStatement(eq(1L), any(), any()))
+                .thenReturn(Stream.of(posting(11L, Transaction.TransactionType.TRANSFER_OUT, "25.50"),
+                        posting(12L, Transaction.TransactionType.TRANSFER_IN, "3.00")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        statementService.writeStatement(1L, null, null, StatementService.Format.NDJSON, out);
+
+        // Assert
+        String body = out.toString(StandardCharsets.UTF_8);
+        String[] lines = body.split("\n");
+        assertTrue(body.endsWith("\n"));
+        assertEquals(2, lines.length);
+        assertEquals(11L, objectMapper.readTree(lines[0]).get("transactionId").asLong());
+        assertTrue(lines[0].contains("\"amount\":25.50"));
+    }
+
+    @Test
+    void checkStatement_WhenAccountMissing_ShouldThrowBeforeStreaming() {
+        // Arrange
+        when(accountRepository.existsByAccountId(9L)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> statementService.checkStatement(9L, null, null));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void format_WhenUnknown_ShouldBeRejected() {
+        // Act & Assert
+        assertEquals(StatementService.Format.NDJSON, StatementService.Format.of("NDJson"));
+        assertThrows(ValidationException.class, () -> StatementService.Format.of("pdf"));
+    }
+
+    private static Transaction posting(Long id, Transaction.TransactionType type, String amount) {
+        Transaction t = AccountService.buildTransferRow(type, 1L, 2L, Money.parse(amount));
+        t.setTransactionId(id);
+        t.setTransactionDate(LocalDateTime.of(2024, 1, 15, 9, 30));
+        return t;
+    }
+}
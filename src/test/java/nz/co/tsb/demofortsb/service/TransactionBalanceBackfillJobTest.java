@@ -0,0 +1,141 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs without a test transaction: the job's workers commit their own chunks on other threads.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.xml",
+        "spring.liquibase.contexts=test",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransactionBalanceBackfillJobTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionBalanceBackfillJob job;
+
+    @BeforeEach
+    void createAccountsWithHistory() {
+        // One account per chunk, two workers
+        job = new TransactionBalanceBackfillJob(accountRepository, transactionRepository, transactionManager, dataSource,
+                2, 1);
+
+        jdbcTemplate.update("INSERT INTO customer (first_name, last_name, email, phone_number, national_id, status, password_hash) " +
+                "VALUES ('Running', 'Balance', 'running@test.nz', '0210000002', 'RUNNING1', 'ACTIVE', 'x')");
+        insertAccount(910L, "70.00");
+        insertAccount(911L, "15.00");
+
+        insertPosting(1, 910L, "TRANSFER_IN", "100.00", "2024-01-01 09:00:00", "COMPLETED", null);
+        insertPosting(2, 910L, "TRANSFER_OUT", "30.00", "2024-01-02 10:00:00", "COMPLETED", null);
+        insertPosting(3, 910L, "TRANSFER_OUT", "5.00", "2024-01-02 11:00:00", "PENDING", null);
+        insertPosting(4, 911L, "TRANSFER_IN", "20.00", "2024-01-01 09:00:00", "COMPLETED", null);
+        insertPosting(5, 911L, "WITHDRAWAL", "5.00", "2024-01-01 09:00:00", "COMPLETED", "15.00");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM transaction WHERE account_id IN (910, 911)");
+        jdbcTemplate.update("DELETE FROM account WHERE account_id IN (910, 911)");
+        jdbcTemplate.update("DELETE FROM customer WHERE email = 'running@test.nz'");
+    }
+
+    @Test
+    void backfill_ShouldWalkBackFromCurrentBalance_AndSkipPendingRows() {
+        // Act
+        long filled = job.backfill();
+
+        // Assert
+        assertEquals(3, filled);
+        assertEquals(new BigDecimal("100.00"), balanceAfter(1));
+        assertEquals(new BigDecimal("70.00"), balanceAfter(2));
+        assertNull(balanceAfter(3));
+        // Same timestamp: the higher id is the later posting
+        assertEquals(new BigDecimal("20.00"), balanceAfter(4));
+        assertEquals(new BigDecimal("15.00"), balanceAfter(5));
+    }
+
+    @Test
+    void backfill_WhenRunAgain_ShouldFindNothingToDo() {
+        // Arrange
+        job.backfill();
+
+        // Act & Assert
+        assertEquals(0, job.backfill());
+    }
+
+    @Test
+    void checkDatabaseSupportsMerge_ShouldAcceptH2_AndRejectPostgresOlderThan15() throws Exception {
+        // Arrange
+        DataSource postgres14 = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(postgres14.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(metaData.getDatabaseMajorVersion()).thenReturn(14);
+        when(metaData.getDatabaseProductVersion()).thenReturn("14.12");
+        TransactionBalanceBackfillJob onPostgres14 = new TransactionBalanceBackfillJob(accountRepository,
+                transactionRepository, transactionManager, postgres14, 2, 1);
+
+        // Act & Assert
+        assertDoesNotThrow(job::checkDatabaseSupportsMerge);
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                onPostgres14::checkDatabaseSupportsMerge);
+        assertEquals("Running balance backfill needs PostgreSQL 15 or later for MERGE, but the database is 14.12",
+                exception.getMessage());
+        verify(connection).close();
+    }
+
+    private void insertAccount(long accountId, String balance) {
+        jdbcTemplate.update("INSERT INTO account (account_id, customer_id, account_number, balance, currency_code, status, version) " +
+                        "VALUES (?, (SELECT MIN(id) FROM customer WHERE email = 'running@test.nz'), ?, ?, 'NZD', 'ACTIVE', 0)",
+                accountId, "RUNNING-" + accountId, new BigDecimal(balance));
+    }
+
+    private void insertPosting(long id, long accountId, String type, String amount, String date, String status,
+                               String balanceAfter) {
+        jdbcTemplate.update("INSERT INTO transaction (transaction_id, account_id, transaction_type, amount, transaction_date, " +
+                        "transaction_status, currency_code, balance_after) VALUES (?, ?, ?, ?, TIMESTAMP '" + date + "', ?, 'NZD', ?)",
+                910_000 + id, accountId, type, new BigDecimal(amount), status,
+                balanceAfter != null ? new BigDecimal(balanceAfter) : null);
+    }
+
+    private BigDecimal balanceAfter(long id) {
+        return jdbcTemplate.queryForObject("SELECT balance_after FROM transaction WHERE transaction_id = ?",
+                BigDecimal.class, 910_000 + id);
+    }
+}
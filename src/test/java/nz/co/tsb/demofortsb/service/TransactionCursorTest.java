@@ -0,0 +1,32 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCursorTest {
+
+    @Test
+    void decode_ShouldRoundTripEncodedPosition() {
+        // Arrange
+        TransactionCursor cursor = new TransactionCursor(42L, LocalDateTime.of(2025, 3, 1, 9, 30, 0, 123456000), 987L);
+
+        // Act
+        TransactionCursor decoded = TransactionCursor.decode(cursor.encode(), 42L);
+
+        // Assert
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void decode_WhenTokenIsForAnotherAccountOrMalformed_ShouldReject() {
+        String token = new TransactionCursor(42L, LocalDateTime.of(2025, 3, 1, 9, 30), 987L).encode();
+
+        assertThrows(ValidationException.class, () -> TransactionCursor.decode(token, 43L));
+        assertThrows(ValidationException.class, () -> TransactionCursor.decode("not-a-cursor", 42L));
+        assertThrows(ValidationException.class, () -> TransactionCursor.decode("%%%", 42L));
+    }
+}
@@ -0,0 +1,131 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionPartitionMaintenanceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private MetricService metricService;
+
+    @Test
+    void maintain_ShouldCreateMissingFutureMonthsAndArchiveExpiredOnes() {
+        // Arrange
+        TransactionPartitionMaintenance maintenance =
+                new TransactionPartitionMaintenance(jdbcTemplate, transactionManager, metricService, 2, 3, "archive");
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("transaction")))
+                .thenReturn(List.of("transaction_p202606", "transaction_p202607", "transaction_p202610",
+                        "transaction_p202611"));
+
+        // Act
+        maintenance.maintain(YearMonth.of(2026, 10));
+
+        // Assert
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transaction_p202612 PARTITION OF transaction " +
+                "FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+        verify(jdbcTemplate).execute("ALTER TABLE transaction DETACH PARTITION transaction_p202606");
+        verify(jdbcTemplate).execute("ALTER TABLE transaction_p202606 SET SCHEMA archive");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE transaction DETACH PARTITION transaction_p202607");
+        verify(metricService).recordPartitionMaintenance("create", true);
+        verify(metricService).recordPartitionMaintenance("archive", true);
+        assertEquals(2, maintenance.monthsAhead());
+    }
+
+    @Test
+    void maintain_WithoutRetention_ShouldNeverDetach() {
+        // Arrange
+        TransactionPartitionMaintenance maintenance =
+                new TransactionPartitionMaintenance(jdbcTemplate, transactionManager, metricService, 1, 0, "archive");
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("transaction")))
+                .thenReturn(List.of("transaction_p200001"));
+        lenient().doThrow(new DataIntegrityViolationException("overlap")).when(jdbcTemplate)
+                .execute(startsWith("CREATE TABLE IF NOT EXISTS transaction_p202611"));
+
+        // Act
+        maintenance.maintain(YearMonth.of(2026, 10));
+
+        // Assert
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS transaction_p202610"));
+        verify(jdbcTemplate, never()).execute(startsWith("ALTER TABLE"));
+        verify(metricService).recordPartitionMaintenance("create", false);
+        verifyNoInteractions(transactionManager);
+        assertEquals(0, maintenance.monthsAhead());
+    }
+
+    @Test
+    void maintain_RunDaily_ShouldAlwaysHaveTheNextMonthsBeforeTheyStart() {
+        // Arrange: a fresh table, and a catalog that remembers what the job creates
+        TransactionPartitionMaintenance maintenance =
+                new TransactionPartitionMaintenance(jdbcTemplate, transactionManager, metricService, 1, 0, "archive");
+        Set<String> partitions = new TreeSet<>();
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("transaction")))
+                .thenAnswer(invocation -> new ArrayList<>(partitions));
+        doAnswer(invocation -> partitions.add(((String) invocation.getArgument(0)).split(" ")[5]))
+                .when(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS"));
+
+        // Act & Assert: every day for two years, including each month's last day and the turn of the year
+        for (LocalDate day = LocalDate.of(2026, 1, 1); day.getYear() < 2028; day = day.plusDays(1)) {
+            maintenance.maintain(YearMonth.from(day));
+
+            assertTrue(partitions.contains(TransactionPartitionMaintenance.partitionName(YearMonth.from(day))));
+            assertTrue(partitions.contains(TransactionPartitionMaintenance.partitionName(YearMonth.from(day).plusMonths(1))),
+                    "no partition for the month after " + day);
+            assertEquals(1, maintenance.monthsAhead());
+        }
+        assertEquals(25, partitions.size());
+    }
+
+    @Test
+    void maintain_ShouldReportTheHorizonShrinking_WhileCreationKeepsFailing() {
+        // Arrange
+        TransactionPartitionMaintenance maintenance =
+                new TransactionPartitionMaintenance(jdbcTemplate, transactionManager, metricService, 2, 0, "archive");
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("transaction")))
+                .thenReturn(List.of("transaction_p202610", "transaction_p202611", "transaction_p202612"));
+        doThrow(new DataIntegrityViolationException("permission denied")).when(jdbcTemplate)
+                .execute(startsWith("CREATE TABLE IF NOT EXISTS"));
+
+        // Act & Assert
+        maintenance.maintain(YearMonth.of(2026, 11));
+        assertEquals(1, maintenance.monthsAhead());
+        maintenance.maintain(YearMonth.of(2026, 12));
+        assertEquals(0, maintenance.monthsAhead());
+        maintenance.maintain(YearMonth.of(2027, 1));
+        assertEquals(-1, maintenance.monthsAhead());
+    }
+
+    @Test
+    void monthOf_ShouldOnlyRecogniseMonthlyPartitionNames() {
+        // Act & Assert
+        assertEquals("transaction_p202601", TransactionPartitionMaintenance.partitionName(YearMonth.of(2026, 1)));
+        assertEquals(Optional.of(YearMonth.of(2026, 1)), TransactionPartitionMaintenance.monthOf("transaction_p202601"));
+        assertEquals(Optional.empty(), TransactionPartitionMaintenance.monthOf("transaction_default"));
+        assertEquals(Optional.empty(), TransactionPartitionMaintenance.monthOf("transaction_pold"));
+    }
+}
@@ -0,0 +1,99 @@
+package nz.co.tsb.demofortsb.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.tsb.demofortsb.exception.Account.ConcurrentTransferException;
+import nz.co.tsb.demofortsb.exception.ValidationException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferEngineTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransferEngine transferEngine;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transferEngine = new TransferEngine(transactionManager, new MetricService(meterRegistry), 3, 1, 2);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void execute_ShouldRetryConcurrencyFailures_UntilAnAttemptCommits() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        String result = transferEngine.execute("transfer", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Account", 1L);
+            }
+            return "done";
+        });
+
+        // Assert
+        assertEquals("done", result);
+        assertEquals(3, calls.get());
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(2.0, meterRegistry.get("transfer_retry_total").counter().count());
+    }
+
+    @Test
+    void execute_ShouldThrowConcurrentTransferException_WhenRetriesAreExhausted() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act & Assert
+        ConcurrentTransferException exception = assertThrows(ConcurrentTransferException.class,
+                () -> transferEngine.execute("transfer", () -> {
+                    calls.incrementAndGet();
+                    throw new CannotAcquireLockException("deadlock detected");
+                }));
+
+        assertEquals(3, calls.get());
+        assertEquals(3, exception.getAttempts());
+        assertEquals("TRANSFER_CONTENTION", exception.getErrorCode());
+    }
+
+    @Test
+    void execute_ShouldNotRetryBusinessFailures() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> transferEngine.execute("transfer", () -> {
+            calls.incrementAndGet();
+            throw new ValidationException("Insufficient balance in source account");
+        }));
+
+        assertEquals(1, calls.get());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void backoffMs_ShouldStayWithinCap() {
+        for (int attempt = 1; attempt <= 30; attempt++) {
+            long backoff = transferEngine.backoffMs(attempt);
+            assertTrue(backoff >= 0 && backoff <= 2, "backoff out of range: " + backoff);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package nz.co.tsb.demofortsb.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.tsb.demofortsb.dto.request.TransferRequest;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.LedgerCheckpointRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Transfer throughput and latency of each {@link AccountService.PostingMode} under concurrent load on a few hot
+ * customers: entity locking, conditional UPDATEs, group commit and the in-memory ledger.
+ * <p>
+ * Not part of the test suite (no *Test suffix); run with {@code make bench-posting-modes}, load via
+ * {@code -Dbench.threads}, {@code -Dbench.customers} and {@code -Dbench.transfers}. H2 in memory has no commit
+ * fsync, so this shows lock and ORM cost per mode; group commit's gain, which comes from sharing that fsync, only
+ * shows against PostgreSQL, which {@code make bench-posting-modes-pg} runs against (the compose db, schema
+ * "bench_posting"). Ledger figures are to the journal acknowledgement; write-behind drains afterwards.
+ * </p>
+ * <p>
+ * {@link #groupCommitCurve()} ({@code make bench-group-commit}) traces group commit's latency against throughput
+ * over {@code -Dbench.group.windows-us} and {@code -Dbench.group.max-items}.
+ * </p>
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.xml",
+        "spring.liquibase.contexts=test",
+        "spring.jpa.hibernate.ddl-auto=none",
+        // SQL, bind and H2 logging are on by default and would cost more than the postings themselves
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+        "logging.level.org.h2=WARN",
+        "logging.level.nz.co.tsb.demofortsb=WARN"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({AccountService.class, TransferEngine.class, JournalService.class, DailyBalanceService.class,
+        OutboxService.class, MetricService.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferPostingBenchmark {
+
+    private static final int THREADS = Integer.getInteger("bench.threads", 16);
+    private static final int CUSTOMERS = Integer.getInteger("bench.customers", 8);
+    private static final int TRANSFERS = Integer.getInteger("bench.transfers", 4_000);
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 1_000);
+    private static final String GROUP_WINDOWS_MICROS = System.getProperty("bench.group.windows-us", "0,500,1000,2000,5000");
+    private static final String GROUP_MAX_ITEMS = System.getProperty("bench.group.max-items", "4,16");
+
+    private static final long FIRST_ACCOUNT_ID = 600_001L;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LedgerCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MetricService metricService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private JournalService journalService;
+
+    @Autowired
+    private DailyBalanceService dailyBalanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private CustomerService customerService;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private TransferSettlementService transferSettlementService;
+
+    @MockBean
+    private RecentActivityCache recentActivityCache;
+
+    @MockBean
+    private AccountListCache accountListCache;
+
+    private final List<Long> customerIds = new ArrayList<>();
+
+    @BeforeEach
+    void generateCustomers() {
+        // Two accounts per customer, with enough money that no transfer is ever refused
+        for (int i = 0; i < CUSTOMERS; i++) {
+            String email = "bench-posting-" + i + "@test.nz";
+            jdbcTemplate.update("INSERT INTO customer (first_name, last_name, email, phone_number, national_id, status, password_hash) " +
+                    "VALUES ('Bench', 'Posting', ?, ?, ?, 'ACTIVE', 'x')", email, "029" + (1_000_000 + i), "BENCHP" + i);
+            Long customerId = jdbcTemplate.queryForObject("SELECT id FROM customer WHERE email = ?", Long.class, email);
+            customerIds.add(customerId);
+            jdbcTemplate.update("INSERT INTO account (account_id, customer_id, account_number, balance, currency_code, status, version) " +
+                    "VALUES (?, ?, ?, 10000000.00, 'NZD', 'ACTIVE', 0), (?, ?, ?, 10000000.00, 'NZD', 'ACTIVE', 0)",
+                    FIRST_ACCOUNT_ID + 2L * i, customerId, "BENCH-P" + i + "-A",
+                    FIRST_ACCOUNT_ID + 2L * i + 1, customerId, "BENCH-P" + i + "-B");
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM outbox_event");
+        jdbcTemplate.update("DELETE FROM transaction");
+        jdbcTemplate.update("DELETE FROM journal_entry");
+        jdbcTemplate.update("DELETE FROM account_daily_balance");
+        jdbcTemplate.update("DELETE FROM ledger_checkpoint");
+        jdbcTemplate.update("DELETE FROM account WHERE account_id >= ?", FIRST_ACCOUNT_ID);
+        customerIds.forEach(id -> jdbcTemplate.update("DELETE FROM customer WHERE id = ?", id));
+    }
+
+    @Test
+    void postingModes() throws Exception {
+        AccountService target = AopTestUtils.getUltimateTargetObject(accountService);
+        BigDecimal totalBefore = totalBalance();
+
+        Result entity = run(target, AccountService.PostingMode.ENTITY);
+        Result conditional = run(target, AccountService.PostingMode.CONDITIONAL);
+        Result group = run(target, AccountService.PostingMode.GROUP);
+        Result ledger = run(target, AccountService.PostingMode.LEDGER);
+
+        System.out.printf("%nTransfers between %d customers' own accounts from %d threads, %d timed after %d warm-up%n",
+                CUSTOMERS, THREADS, TRANSFERS, WARMUP);
+        System.out.printf("  %-12s %12s %10s %10s%n", "", "transfers/s", "p50 ms", "p95 ms");
+        print("entity", entity);
+        print("conditional", conditional);
+        print("group", group);
+        print("ledger", ledger);
+
+        // Every mode moved money within a customer only, so the total never changes
+        assertEquals(totalBefore, totalBalance());
+        assertEquals(2L * 4 * (TRANSFERS + WARMUP), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transaction", Long.class));
+    }
+
+    @Test
+    void groupCommitCurve() throws Exception {
+        AccountService target = AopTestUtils.getUltimateTargetObject(accountService);
+        Object defaultWindow = ReflectionTestUtils.getField(target, "groupCommitWindowMicros");
+        Object defaultMaxItems = ReflectionTestUtils.getField(target, "groupCommitMaxItems");
+        long[] windows = Arrays.stream(GROUP_WINDOWS_MICROS.split(",")).map(String::trim).mapToLong(Long::parseLong).toArray();
+        int[] maxItems = Arrays.stream(GROUP_MAX_ITEMS.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        BigDecimal totalBefore = totalBalance();
+
+        // Each group is one commit, so a longer window or a larger group trades each transfer's latency for throughput
+        List<String> rows = new ArrayList<>();
+        try {
+            for (int items : maxItems) {
+                for (long window : windows) {
+                    ReflectionTestUtils.setField(target, "groupCommitWindowMicros", window);
+                    ReflectionTestUtils.setField(target, "groupCommitMaxItems", items);
+                    Result result = run(target, AccountService.PostingMode.GROUP);
+                    rows.add(String.format("  %10d %10d %12.0f %10.2f %10.2f", window, items,
+                            result.perSecond(), result.p50Nanos() / 1e6, result.p95Nanos() / 1e6));
+                }
+            }
+        } finally {
+            ReflectionTestUtils.setField(target, "groupCommitWindowMicros", defaultWindow);
+            ReflectionTestUtils.setField(target, "groupCommitMaxItems", defaultMaxItems);
+        }
+
+        System.out.printf("%nGroup commit between %d customers' own accounts from %d threads, %d timed after %d warm-up%n",
+                CUSTOMERS, THREADS, TRANSFERS, WARMUP);
+        System.out.printf("  %10s %10s %12s %10s %10s%n", "window us", "max items", "transfers/s", "p50 ms", "p95 ms");
+        rows.forEach(System.out::println);
+
+        assertEquals(totalBefore, totalBalance());
+        assertEquals(2L * windows.length * maxItems.length * (TRANSFERS + WARMUP), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transaction", Long.class));
+    }
+
+    private Result run(AccountService target, AccountService.PostingMode mode) throws Exception {
+        ReflectionTestUtils.setField(target, "postingMode", mode);
+        LedgerEngine ledger = null;
+        if (mode == AccountService.PostingMode.GROUP) {
+            target.startGroupCommit();
+        } else if (mode == AccountService.PostingMode.LEDGER) {
+            Path journalDir = Files.createTempDirectory("bench-ledger");
+            ledger = new LedgerEngine(accountRepository, transactionRepository, checkpointRepository, transactionManager,
+                    metricService, outboxService, journalService, dailyBalanceService, recentActivityCache,
+                    accountListCache, idempotencyService, 4, journalDir.toString(), 1_048_576, 10_000, 256,
+                    5_000, 30_000, 50, 5_000);
+            ledger.start();
+            ReflectionTestUtils.setField(target, "ledgerEngine", ledger);
+        }
+        try {
+            load(WARMUP);
+            return load(TRANSFERS);
+        } finally {
+            if (mode == AccountService.PostingMode.GROUP) {
+                target.stopGroupCommit();
+            } else if (ledger != null) {
+                // Drains the write-behind, so the rows are all in the tables before the next mode runs
+                ledger.stop();
+                ReflectionTestUtils.setField(target, "ledgerEngine", null);
+            }
+        }
+    }
+
+    /**
+     * Post the transfers from {@link #THREADS} threads, round robin over the customers, alternating direction.
+     */
+    private Result load(int transfers) throws Exception {
+        long[] nanos = new long[transfers];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(pool.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < transfers) {
+                        int customer = i % CUSTOMERS;
+                        boolean forward = (i / CUSTOMERS) % 2 == 0;
+                        TransferRequest request = new TransferRequest();
+                        request.setFromAccountNumber("BENCH-P" + customer + (forward ? "-A" : "-B"));
+                        request.setToAccountNumber("BENCH-P" + customer + (forward ? "-B" : "-A"));
+                        request.setAmount(Money.parse("1.00"));
+                        long begin = System.nanoTime();
+                        accountService.transferBetweenAccounts(customerIds.get(customer), request);
+                        nanos[i] = System.nanoTime() - begin;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(nanos);
+        return new Result(transfers * 1e9 / elapsed, nanos[transfers / 2], nanos[(int) (transfers * 0.95)]);
+    }
+
+    private BigDecimal totalBalance() {
+        return jdbcTemplate.queryForObject("SELECT SUM(balance) FROM account WHERE account_id >= ?",
+                BigDecimal.class, FIRST_ACCOUNT_ID);
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("  %-12s %12.0f %10.2f %10.2f%n", label,
+                result.perSecond(), result.p50Nanos() / 1e6, result.p95Nanos() / 1e6);
+    }
+
+    private record Result(double perSecond, long p50Nanos, long p95Nanos) {}
+}
@@ -0,0 +1,195 @@
+package nz.co.tsb.demofortsb.service;
+
+import nz.co.tsb.demofortsb.entity.Account;
+import nz.co.tsb.demofortsb.entity.JournalEntry;
+import nz.co.tsb.demofortsb.entity.Money;
+import nz.co.tsb.demofortsb.entity.Transaction;
+import nz.co.tsb.demofortsb.entity.TransactionBuilder;
+import nz.co.tsb.demofortsb.exception.Account.ConcurrentTransferException;
+import nz.co.tsb.demofortsb.healthCheck.MetricService;
+import nz.co.tsb.demofortsb.repository.AccountRepository;
+import nz.co.tsb.demofortsb.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferSettlementServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private TransferEngine transferEngine;
+
+    @Mock
+    private MetricService metricService;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private JournalService journalService;
+
+    @Mock
+    private DailyBalanceService dailyBalanceService;
+
+    @Mock
+    private RecentActivityCache recentActivityCache;
+
+    @Mock
+    private AccountListCache accountListCache;
+
+    @InjectMocks
+    private TransferSettlementService transferSettlementService;
+
+    private Account fromAccount;
+    private Account toAccount;
+
+    @BeforeEach
+    void setUp() {
+        fromAccount = account(1L, "100.00");
+        toAccount = account(2L, "0.00");
+        lenient().when(transferEngine.lock(any())).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+    }
+
+    @Test
+    void settle_ShouldCompleteFundedTransfers_AndFailTheRest() {
+        // Arrange
+        runEngineInline();
+        Transaction funded = pending(10L, "60.00");
+        Transaction unfunded = pending(11L, "60.00");
+        when(transactionRepository.findPendingByIdInForUpdate(List.of(10L, 11L))).thenReturn(List.of(funded, unfunded));
+        when(accountRepository.findAllByAccountIdInForUpdate(anyCollection())).thenReturn(List.of(fromAccount, toAccount));
+
+        // Act
+        transferSettlementService.settle(List.of(10L, 11L));
+
+        // Assert
+        assertEquals(Transaction.TransactionStatus.COMPLETED, funded.getTransactionStatus());
+        assertEquals(Transaction.TransactionStatus.FAILED, unfunded.getTransactionStatus());
+        assertEquals("Insufficient balance in source account", unfunded.getFailureReason());
+        assertEquals(Money.parse("40.00"), fromAccount.getBalance());
+        assertEquals(Money.parse("60.00"), toAccount.getBalance());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Transaction>> credits = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository).saveAll(credits.capture());
+        assertEquals(1, credits.getValue().size());
+        assertEquals(Transaction.TransactionType.TRANSFER_IN, credits.getValue().get(0).getTransactionType());
+        assertEquals(Money.parse("40.00"), funded.getBalanceAfter());
+        assertEquals(Money.parse("60.00"), credits.getValue().get(0).getBalanceAfter());
+        assertNull(unfunded.getBalanceAfter());
+        assertEquals(credits.getValue().get(0).getTransactionDate(), funded.getTransactionDate());
+        assertEquals(0, funded.getTransactionDate().getNano() % 1_000);
+        verify(metricService).recordTransferSettle(eq("completed"), anyLong());
+        verify(outboxService).transferCompleted(funded, credits.getValue().get(0));
+        verify(outboxService).transferFailed(unfunded);
+        verify(journalService).post(JournalEntry.EntryType.TRANSFER, funded, credits.getValue().get(0));
+        verify(metricService).recordTransferSettle(eq("failed"), anyLong());
+    }
+
+    @Test
+    void settle_ShouldLeaveTransfersPending_WhenContentionExhaustsRetries() {
+        // Arrange
+        when(transferEngine.execute(anyString(), any()))
+                .thenThrow(new ConcurrentTransferException(5, new CannotAcquireLockException("lock timeout")));
+
+        // Act
+        transferSettlementService.settle(List.of(10L, 11L));
+
+        // Assert: nothing marked FAILED, the sweeper will pick them up again
+        verify(transferEngine, times(1)).execute(anyString(), any());
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void settle_ShouldLeaveTransfersPending_WhenTheDatabaseErrorIsTransient() {
+        // Arrange
+        when(transferEngine.execute(anyString(), any()))
+                .thenThrow(new QueryTimeoutException("statement timeout"));
+
+        // Act
+        transferSettlementService.settle(List.of(10L, 11L));
+
+        // Assert: neither split into single retries nor marked FAILED
+        verify(transferEngine, times(1)).execute(anyString(), any());
+        verifyNoInteractions(transactionRepository, outboxService);
+    }
+
+    @Test
+    void settle_ShouldNotFailASingleTransfer_WhenTheDatabaseIsUnreachable() {
+        // Arrange
+        when(transferEngine.execute(anyString(), any()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        // Act
+        transferSettlementService.settle(List.of(10L));
+
+        // Assert: no markFailed attempt, the sweeper will pick it up again
+        verify(transferEngine, times(1)).execute(anyString(), any());
+        verifyNoInteractions(transactionRepository, outboxService);
+    }
+
+    @Test
+    void settle_ShouldFailASingleTransfer_WhenTheErrorIsNotTransient() {
+        // Arrange: the settlement itself fails, marking it FAILED runs inline
+        Transaction transfer = pending(10L, "60.00");
+        when(transferEngine.execute(anyString(), any()))
+                .thenThrow(new IllegalStateException("corrupt transfer"))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+        when(transactionRepository.findPendingByIdInForUpdate(List.of(10L))).thenReturn(List.of(transfer));
+
+        // Act
+        transferSettlementService.settle(List.of(10L));
+
+        // Assert
+        assertEquals(Transaction.TransactionStatus.FAILED, transfer.getTransactionStatus());
+        assertEquals("Settlement error", transfer.getFailureReason());
+        verify(outboxService).transferFailed(transfer);
+    }
+
+    private void runEngineInline() {
+        when(transferEngine.execute(anyString(), any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+    }
+
+    private static Account account(Long accountId, String balance) {
+        Account account = new Account(7L);
+        account.setAccountId(accountId);
+        account.setBalance(Money.parse(balance));
+        return account;
+    }
+
+    private static Transaction pending(Long transactionId, String amount) {
+        return new TransactionBuilder()
+                .transactionId(transactionId)
+                .accountId(1L)
+                .transactionType(Transaction.TransactionType.TRANSFER_OUT)
+                .amount(Money.parse(amount))
+                .fromAccountId(1L)
+                .toAccountId(2L)
+                .status(Transaction.TransactionStatus.PENDING)
+                .currencyCode("NZD")
+                .createdAt(LocalDateTime.now().minusSeconds(1))
+                .build();
+    }
+}